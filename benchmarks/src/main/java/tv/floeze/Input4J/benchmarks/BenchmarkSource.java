@@ -0,0 +1,91 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.ArrayList;
+
+import tv.floeze.Input4J.BindingTable;
+import tv.floeze.Input4J.InputConfiguration;
+import tv.floeze.Input4J.InputMap;
+import tv.floeze.Input4J.InputSource;
+import tv.floeze.Input4J.InputSourceBuilder;
+import tv.floeze.Input4J.InputSourceImpl;
+import tv.floeze.Input4J.SourceConfiguration;
+
+/**
+ * An {@link InputSource} without any device behind it. Every update, it sets
+ * all inputs bound to it to the value stored in their {@link Config}, so it
+ * costs about as much as a real source reading its configuration.
+ * 
+ * @author Floeze
+ *
+ */
+public class BenchmarkSource extends InputSourceImpl {
+
+	/**
+	 * Configuration of an input, which is always set to {@link #value}
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Config implements SourceConfiguration {
+		public short value;
+
+		public Config() {
+		}
+
+		public Config(short value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Config && ((Config) obj).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+	}
+
+	/**
+	 * Builder for {@link BenchmarkSource}s
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Builder extends InputSourceBuilder {
+		@Override
+		protected InputSource build() {
+			return new BenchmarkSource();
+		}
+	}
+
+	@Override
+	protected boolean handleEnable() {
+		return true;
+	}
+
+	@Override
+	protected boolean handleDisable() {
+		return true;
+	}
+
+	@Override
+	protected <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		BindingTable<T> t = config.getBindings(BenchmarkSource.class);
+		for (int i = 0; i < t.size(); i++)
+			map.setById(t.getPlayer(i), t.getAction(i), ((Config) t.getConfiguration(i)).value);
+	}
+
+	@Override
+	protected void handleSaveInputs() {
+	}
+
+	@Override
+	protected <T> boolean handleSetInput(int player, T identifier, short value, InputConfiguration<T> config) {
+		config.getConfiguration(player, BenchmarkSource.class).computeIfAbsent(identifier, k -> new ArrayList<SourceConfiguration>())
+				.add(new Config(value));
+		return true;
+	}
+
+}
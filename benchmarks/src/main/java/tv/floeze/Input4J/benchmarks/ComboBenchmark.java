@@ -0,0 +1,86 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.Combo;
+import tv.floeze.Input4J.HashActionRegistry;
+import tv.floeze.Input4J.Input4J;
+import tv.floeze.Input4J.InputConfiguration;
+import tv.floeze.Input4J.InputMap;
+import tv.floeze.Input4J.SyntheticInputSource;
+
+/**
+ * Benchmarks {@link Input4J#update()} with many {@link Combo}s, to show that
+ * the time spent depends on the changed inputs and not on the number of
+ * {@link Combo}s.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComboBenchmark {
+
+	@Param({ "1000" })
+	public int players;
+
+	@Param({ "64" })
+	public int actions;
+
+	@Param({ "0", "100", "10000" })
+	public int combos;
+
+	@Param({ "0.01" })
+	public double rate;
+
+	private Input4J<String> input;
+
+	@Setup
+	public void setup() {
+		InputConfiguration<String> config = new InputConfiguration<String>(new HashActionRegistry<String>());
+		List<String> identifiers = new ArrayList<String>();
+		for (int a = 0; a < actions; a++)
+			identifiers.add("action" + a);
+		SyntheticInputSource.bindAll(config, players, identifiers, (short) 1);
+		Random random = new Random(42);
+		for (int c = 0; c < combos; c++) {
+			String a = identifiers.get(random.nextInt(actions));
+			String b = identifiers.get((identifiers.indexOf(a) + 1 + random.nextInt(actions - 1)) % actions);
+			String d = identifiers.get(random.nextInt(actions));
+			if (c % 2 == 0)
+				config.addCombo(Combo.chord("combo" + c % actions, a, b));
+			else
+				config.addCombo(Combo.sequence("combo" + c % actions, 10, a, b, d));
+		}
+		input = new Input4J<String>(config);
+		input.addInputSource("synthetic",
+				new SyntheticInputSource.Builder(SyntheticInputSource.Pattern.RANDOM).seed(42).rate(rate));
+		input.enableAll();
+		input.enableDoubleBuffering(players);
+	}
+
+	@Benchmark
+	public InputMap<String> update() {
+		return input.update();
+	}
+
+}
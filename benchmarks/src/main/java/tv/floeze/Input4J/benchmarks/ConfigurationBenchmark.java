@@ -0,0 +1,85 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.Input4J;
+import tv.floeze.Input4J.InputConfiguration;
+import tv.floeze.Input4J.SourceConfiguration;
+
+/**
+ * Benchmarks reading and changing an {@link InputConfiguration}.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationBenchmark {
+
+	@Param({ "1", "100" })
+	public int players;
+
+	@Param({ "16" })
+	public int actions;
+
+	private InputConfiguration<String> config;
+
+	private Input4J<String> input;
+
+	private int player;
+
+	@Setup
+	public void setup() {
+		config = new InputConfiguration<String>();
+		input = new Input4J<String>();
+		input.addInputSource("source", new BenchmarkSource.Builder());
+		input.enableAll();
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++) {
+				config.addInput(p, BenchmarkSource.class, "action" + a, new BenchmarkSource.Config((short) (a + 1)));
+				input.setInput(p, "action" + a, (short) (a + 1));
+			}
+	}
+
+	@Benchmark
+	public Map<String, List<SourceConfiguration>> getConfiguration() {
+		player = (player + 1) % players;
+		return config.getConfiguration(player, BenchmarkSource.class);
+	}
+
+	@Benchmark
+	public void clean() {
+		config.clean();
+	}
+
+	/**
+	 * Binds an input through {@link Input4J#setInput(int, Object, short)} and
+	 * removes it again, so the configuration doesn't grow.
+	 */
+	@Benchmark
+	public boolean setInput() {
+		player = (player + 1) % players;
+		boolean r = input.setInput(player, "benchmark", (short) 1);
+		input.clearInput(player, "benchmark");
+		return r;
+	}
+
+}
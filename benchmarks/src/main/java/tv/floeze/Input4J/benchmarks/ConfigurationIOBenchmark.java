@@ -0,0 +1,136 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.InputConfiguration;
+import tv.floeze.Input4J.SourceConfiguration;
+
+/**
+ * Benchmarks saving and loading {@link InputConfiguration}s as xml and in the
+ * binary format.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationIOBenchmark {
+
+	@Param({ "1", "100", "10000" })
+	public int players;
+
+	@Param({ "16" })
+	public int actions;
+
+	private InputConfiguration<String> config;
+
+	private String xml;
+
+	private byte[] binary;
+
+	@Setup
+	public void setup() throws IOException {
+		config = new InputConfiguration<String>();
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				config.getConfiguration(p, BenchmarkSource.class)
+						.computeIfAbsent("action" + a, k -> new ArrayList<SourceConfiguration>())
+						.add(new BenchmarkSource.Config((short) (a % 8 + 1)));
+		config.compile();
+		xml = config.save();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		config.saveBinary(out);
+		binary = out.toByteArray();
+	}
+
+	/**
+	 * Drops the cached xml of all sections before every invocation, so the whole
+	 * configuration is serialized.
+	 */
+	@State(Scope.Thread)
+	public static class Uncached {
+
+		private InputConfiguration<String> config;
+
+		@Setup
+		public void setup(ConfigurationIOBenchmark b) {
+			config = b.config;
+		}
+
+		@Setup(Level.Invocation)
+		public void invalidate() {
+			config.compile();
+		}
+
+	}
+
+	/**
+	 * Marks the section of one player as changed before every invocation, like
+	 * the save after a rebind.
+	 */
+	@State(Scope.Thread)
+	public static class OneChanged {
+
+		private InputConfiguration<String> config;
+
+		@Setup
+		public void setup(ConfigurationIOBenchmark b) {
+			config = b.config;
+		}
+
+		@Setup(Level.Invocation)
+		public void invalidate() {
+			config.getConfiguration(0, BenchmarkSource.class);
+		}
+
+	}
+
+	@Benchmark
+	public String saveXml(Uncached u) throws IOException {
+		return u.config.save();
+	}
+
+	@Benchmark
+	public String saveXmlOneChanged(OneChanged c) throws IOException {
+		return c.config.save();
+	}
+
+	@Benchmark
+	public InputConfiguration<String> loadXml() throws IOException, ClassNotFoundException {
+		return InputConfiguration.load(xml, String.class);
+	}
+
+	@Benchmark
+	public int saveBinary() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(binary.length);
+		config.saveBinary(out);
+		return out.size();
+	}
+
+	@Benchmark
+	public InputConfiguration<String> loadBinary() throws IOException, ClassNotFoundException {
+		return InputConfiguration.loadBinary(new ByteArrayInputStream(binary), String.class);
+	}
+
+}
@@ -0,0 +1,83 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.DenseInputMap;
+import tv.floeze.Input4J.InputDeltaCodec;
+
+/**
+ * Benchmarks encoding and decoding the difference between two frames with the
+ * {@link InputDeltaCodec}, for a number of changed inputs in frames of
+ * different sizes.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputDeltaBenchmark {
+
+	@Param({ "4", "10000" })
+	public int players;
+
+	@Param({ "64" })
+	public int actions;
+
+	@Param({ "1", "32" })
+	public int changes;
+
+	private DenseInputMap<Object> reference;
+
+	private DenseInputMap<Object> current;
+
+	private DenseInputMap<Object> target;
+
+	private ByteBuffer buffer;
+
+	private ByteBuffer encoded;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		reference = new DenseInputMap<Object>(players, actions);
+		current = new DenseInputMap<Object>(players, actions);
+		target = new DenseInputMap<Object>(players, actions);
+		for (int i = 0; i < changes; i++)
+			current.setById(random.nextInt(players), random.nextInt(actions), (short) (random.nextInt(32767) + 1));
+		buffer = ByteBuffer.allocate(InputDeltaCodec.maxSize(current, reference));
+		encoded = ByteBuffer.allocate(buffer.capacity());
+		InputDeltaCodec.encode(encoded, current, reference);
+		encoded.flip();
+	}
+
+	@Benchmark
+	public int encode() {
+		buffer.clear();
+		return InputDeltaCodec.encode(buffer, current, reference);
+	}
+
+	@Benchmark
+	public int decode() {
+		encoded.rewind();
+		return InputDeltaCodec.decode(encoded, target);
+	}
+
+}
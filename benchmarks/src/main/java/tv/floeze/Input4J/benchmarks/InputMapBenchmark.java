@@ -0,0 +1,94 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.DenseInputMap;
+import tv.floeze.Input4J.HashActionRegistry;
+import tv.floeze.Input4J.InputMap;
+
+/**
+ * Benchmarks setting and getting every input of an {@link InputMap}, by
+ * identifier and by id.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputMapBenchmark {
+
+	/**
+	 * "hash" for a plain {@link InputMap}, "dense" for a {@link DenseInputMap}
+	 */
+	@Param({ "hash", "dense" })
+	public String type;
+
+	@Param({ "4" })
+	public int players;
+
+	@Param({ "16" })
+	public int actions;
+
+	private String[] identifiers;
+
+	private InputMap<String> map;
+
+	@Setup
+	public void setup() {
+		HashActionRegistry<String> registry = new HashActionRegistry<String>();
+		identifiers = new String[actions];
+		for (int a = 0; a < actions; a++)
+			registry.register(identifiers[a] = "action" + a);
+		map = type.equals("dense") ? new DenseInputMap<String>(registry, players) : new InputMap<String>(registry);
+		set();
+	}
+
+	@Benchmark
+	public void set() {
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				map.set(p, identifiers[a], (short) (p + a + 1));
+	}
+
+	@Benchmark
+	public int get() {
+		int sum = 0;
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				sum += map.get(p, identifiers[a]);
+		return sum;
+	}
+
+	@Benchmark
+	public void setById() {
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				map.setById(p, a, (short) (p + a + 1));
+	}
+
+	@Benchmark
+	public int getById() {
+		int sum = 0;
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				sum += map.getById(p, a);
+		return sum;
+	}
+
+}
@@ -0,0 +1,81 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.HashActionRegistry;
+import tv.floeze.Input4J.Input4J;
+import tv.floeze.Input4J.InputConfiguration;
+import tv.floeze.Input4J.InputMap;
+import tv.floeze.Input4J.SyntheticInputSource;
+
+/**
+ * Benchmarks {@link Input4J#update()} at production scale, with a
+ * {@link SyntheticInputSource} generating the inputs of many players,
+ * optionally split into shards (see {@link Input4J#enableSharding(int)}).
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheticUpdateBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int players;
+
+	@Param({ "16" })
+	public int actions;
+
+	@Param({ "RANDOM", "BURSTY", "ALL_PRESSED" })
+	public SyntheticInputSource.Pattern pattern;
+
+	@Param({ "0.1" })
+	public double rate;
+
+	/**
+	 * Maximum number of shards, or 0 to not shard
+	 */
+	@Param({ "0", "4" })
+	public int shards;
+
+	private Input4J<String> input;
+
+	@Setup
+	public void setup() {
+		InputConfiguration<String> config = new InputConfiguration<String>(new HashActionRegistry<String>());
+		List<String> identifiers = new ArrayList<String>();
+		for (int a = 0; a < actions; a++)
+			identifiers.add("action" + a);
+		SyntheticInputSource.bindAll(config, players, identifiers, (short) 1);
+		input = new Input4J<String>(config);
+		input.addInputSource("synthetic", new SyntheticInputSource.Builder(pattern).seed(42).rate(rate));
+		input.enableAll();
+		input.enableDoubleBuffering(players);
+		if (shards > 0)
+			input.enableSharding(shards);
+	}
+
+	@Benchmark
+	public InputMap<String> update() {
+		return input.update();
+	}
+
+}
@@ -0,0 +1,80 @@
+package tv.floeze.Input4J.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tv.floeze.Input4J.HashActionRegistry;
+import tv.floeze.Input4J.Input4J;
+import tv.floeze.Input4J.InputMap;
+
+/**
+ * Benchmarks {@link Input4J#update()} with a number of
+ * {@link BenchmarkSource}s, each setting every action of every player.
+ * 
+ * @author Floeze
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+
+	@Param({ "1", "4" })
+	public int sources;
+
+	@Param({ "1", "16" })
+	public int players;
+
+	@Param({ "8", "64" })
+	public int actions;
+
+	/**
+	 * Whether to update into reused buffers instead of a new {@link InputMap}
+	 */
+	@Param({ "false", "true" })
+	public boolean doubleBuffered;
+
+	/**
+	 * Whether to measure every source, see {@link Input4J#enableMetrics()}
+	 */
+	@Param({ "false", "true" })
+	public boolean metrics;
+
+	private Input4J<String> input;
+
+	@Setup
+	public void setup() {
+		HashActionRegistry<String> registry = new HashActionRegistry<String>();
+		input = new Input4J<String>(registry);
+		for (int s = 0; s < sources; s++)
+			input.addInputSource("source" + s, new BenchmarkSource.Builder());
+		input.enableAll();
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				input.setInput(p, "action" + a, (short) ((p + a) % 100 + 1));
+		if (doubleBuffered)
+			input.enableDoubleBuffering(players);
+		if (metrics)
+			input.enableMetrics();
+	}
+
+	@Benchmark
+	public InputMap<String> update() {
+		return input.update();
+	}
+
+}
@@ -0,0 +1,72 @@
+package tv.floeze.Input4J;
+
+/**
+ * A registry assigning every identifier of an action a stable {@code int} id.
+ * 
+ * Ids start at 0 and count up without any skips, so they can be used to index
+ * arrays (see {@link DenseInputMap}). Once an identifier has an id, that id
+ * never changes for this registry. <br />
+ * 
+ * Resolving an identifier to its id hashes it once; code on the hot path can
+ * store the id and use it directly with the {@code ById} methods of
+ * {@link InputMap} and {@link Input4J}.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public interface ActionRegistry<T> {
+
+	/**
+	 * Gets the id of an identifier and assigns a new one if it has none yet.
+	 * 
+	 * @param action identifier to get id for
+	 * @return the id of the identifier
+	 * @throws NullPointerException if the identifier is null
+	 */
+	public int register(T action);
+
+	/**
+	 * Gets the id of an identifier without assigning a new one.
+	 * 
+	 * @param action identifier to get id for
+	 * @return the id of the identifier, or -1 if it has no id
+	 */
+	public int getId(T action);
+
+	/**
+	 * Gets the identifier with an id.
+	 * 
+	 * @param id id of identifier
+	 * @return the identifier with the id
+	 * @throws IndexOutOfBoundsException if no identifier has that id
+	 */
+	public T getAction(int id);
+
+	/**
+	 * Gets the number of registered identifiers. This is also the smallest id
+	 * that is not assigned yet.
+	 * 
+	 * @return the number of registered identifiers
+	 */
+	public int size();
+
+	/**
+	 * Creates a new {@link ActionRegistry} for identifiers of the given class.
+	 * 
+	 * If the class is an enum, this returns an {@link EnumActionRegistry} using
+	 * the ordinals as ids. Otherwise a new, empty {@link HashActionRegistry} is
+	 * returned.
+	 * 
+	 * @param <T> Class of identifier
+	 * @param c   Class of identifier
+	 * @return a new {@link ActionRegistry} for the class
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T> ActionRegistry<T> forClass(Class<T> c) {
+		if (c != null && c.isEnum())
+			return new EnumActionRegistry(c);
+		return new HashActionRegistry<T>();
+	}
+
+}
@@ -0,0 +1,33 @@
+package tv.floeze.Input4J;
+
+/**
+ * How the samples of an input reported during one frame (see
+ * {@link InputMap#sampleById(int, int, short, long)}) are combined into the
+ * value of the input in that frame.
+ * 
+ * @author Floeze
+ *
+ */
+public enum Aggregation {
+	/**
+	 * The value with the largest absolute value, like
+	 * {@link InputMap#set(int, Object, short)}. This is the default.
+	 */
+	MAX_ABS,
+	/**
+	 * The value of the sample with the latest timestamp. Of samples with the same
+	 * timestamp, the one reported last is used.
+	 */
+	LAST,
+	/**
+	 * The mean of all values, rounded to the nearest integer.
+	 */
+	MEAN,
+	/**
+	 * The number of presses: samples with a value other than 0 that are the
+	 * first sample of the input in the frame or follow a sample with a value of
+	 * 0. A tap that starts and ends between two updates therefore counts as 1.
+	 * Counts above {@link Short#MAX_VALUE} are capped.
+	 */
+	PRESS_COUNT
+}
@@ -0,0 +1,185 @@
+package tv.floeze.Input4J;
+
+/**
+ * An {@link InputSourceImpl} for input that arrives as callbacks on other
+ * threads instead of being polled. <br />
+ * 
+ * Callback threads call {@link #publish(int, short)} with a source specific
+ * code (like a key code) and a value. The events are stored in a bounded,
+ * lock-free ring buffer, so publishing neither locks nor allocates. When this
+ * {@link InputSource} is updated, the events are drained in batches and passed
+ * to {@link #handleEvent(int, short, long)} in the order they were published,
+ * on the updating thread. Afterwards
+ * {@link #handleAsyncUpdate(InputMap, InputConfiguration)} writes the resulting
+ * state into the {@link InputMap}. <br />
+ * 
+ * Because the state of the source is only changed by the updating thread,
+ * subclasses don't need any locking. Events published before this
+ * {@link InputSource} was last enabled or disabled are discarded, so they are
+ * not handled as new ones after enabling it again. <br />
+ * 
+ * To keep every value an input had between two updates instead of only the
+ * resulting state, {@link #handleEvent(int, short, long)} can report the
+ * events as timestamped samples using
+ * {@link #sampleById(int, int, short, long)}.
+ * 
+ * @author Floeze
+ *
+ */
+public abstract class AsyncInputSourceImpl extends InputSourceImpl {
+
+	/**
+	 * Default number of events the buffer can hold
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Maximum number of events drained at once
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	private final EventRingBuffer events;
+
+	/**
+	 * Passes drained events to {@link #handleEvent(int, short, long)}
+	 */
+	private final EventRingBuffer.EventHandler handler = this::handleEvent;
+
+	/**
+	 * {@link InputMap} of the current update, or null if not updating
+	 */
+	private InputMap<?> map;
+
+	/**
+	 * Events published before this position are discarded by the next update
+	 * (see {@link EventRingBuffer#published()})
+	 */
+	private volatile long discardBefore;
+
+	/**
+	 * Creates a new {@link AsyncInputSourceImpl} with a buffer for
+	 * {@value #DEFAULT_CAPACITY} events.
+	 */
+	protected AsyncInputSourceImpl() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@link AsyncInputSourceImpl}.
+	 * 
+	 * @param capacity minimum number of events the buffer can hold between two
+	 *                 updates. This is rounded up to a power of two.
+	 */
+	protected AsyncInputSourceImpl(int capacity) {
+		events = new EventRingBuffer(capacity);
+	}
+
+	/**
+	 * Publishes an event with the current time. This may be called from any
+	 * thread.
+	 * 
+	 * See {@link #publish(int, short, long)}.
+	 * 
+	 * @param code  source specific code of the event
+	 * @param value value of the event
+	 * @return true if the event was published, false if it was dropped
+	 */
+	protected final boolean publish(int code, short value) {
+		return publish(code, value, System.nanoTime());
+	}
+
+	/**
+	 * Publishes an event. This may be called from any thread and does not lock
+	 * or allocate. <br />
+	 * 
+	 * Events are dropped while this {@link InputSource} is disabled or if the
+	 * buffer is full because it wasn't updated for too long.
+	 * 
+	 * @param code      source specific code of the event
+	 * @param value     value of the event
+	 * @param timestamp timestamp of the event (see {@link System#nanoTime()})
+	 * @return true if the event was published, false if it was dropped
+	 */
+	protected final boolean publish(int code, short value, long timestamp) {
+		if (!isEnabled())
+			return false;
+		return events.offer(code, value, timestamp);
+	}
+
+	@Override
+	final void enabledChanged(boolean enabled) {
+		discardBefore = events.published();
+	}
+
+	/**
+	 * Gets the number of events dropped because the buffer was full.
+	 * 
+	 * @return the number of dropped events
+	 */
+	public long getDroppedEvents() {
+		return events.dropped();
+	}
+
+	/**
+	 * Reports a timestamped sample into the {@link InputMap} of the current
+	 * update. This may only be called from {@link #handleEvent(int, short, long)}
+	 * and {@link #handleAsyncUpdate(InputMap, InputConfiguration)}.
+	 * 
+	 * See {@link InputMap#sampleById(int, int, short, long)}.
+	 * 
+	 * @param player    player of input
+	 * @param action    id of the identifier of input (see {@link ActionRegistry})
+	 * @param value     value of input
+	 * @param timestamp timestamp of the event (see {@link System#nanoTime()})
+	 * @throws IllegalStateException if this {@link InputSource} is not being
+	 *                               updated
+	 */
+	protected final void sampleById(int player, int action, short value, long timestamp) {
+		InputMap<?> m = map;
+		if (m == null)
+			throw new IllegalStateException("Samples can only be reported while updating");
+		m.sampleById(player, action, value, timestamp);
+	}
+
+	/**
+	 * This method is called for every published event when this
+	 * {@link InputSource} is updated, in the order the events were published.
+	 * It should only update the state of this {@link InputSource}.
+	 * 
+	 * @param code      source specific code of the event
+	 * @param value     value of the event
+	 * @param timestamp timestamp of the event (see {@link System#nanoTime()})
+	 */
+	protected abstract void handleEvent(int code, short value, long timestamp);
+
+	/**
+	 * This method is called when this {@link InputSource} is updated, after all
+	 * published events have been passed to
+	 * {@link #handleEvent(int, short, long)}.
+	 * 
+	 * See {@link InputSourceImpl#handleUpdate(InputMap, InputConfiguration)}.
+	 * 
+	 * @param <T>    Type of identifier
+	 * @param map    {@link InputMap} to write values to
+	 * @param config {@link InputConfiguration} storing the configurations for the
+	 *               players
+	 */
+	protected abstract <T> void handleAsyncUpdate(InputMap<T> map, InputConfiguration<T> config);
+
+	@Override
+	protected final <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		// stop after one buffer full, so fast producers can't keep the update from finishing
+		int remaining = events.capacity();
+		int n;
+		events.discard(discardBefore);
+		this.map = map;
+		try {
+			while (remaining > 0 && (n = events.drain(handler, Math.min(BATCH_SIZE, remaining))) > 0)
+				remaining -= n;
+			handleAsyncUpdate(map, config);
+		} finally {
+			this.map = null;
+		}
+	}
+
+}
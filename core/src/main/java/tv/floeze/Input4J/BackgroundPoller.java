@@ -0,0 +1,176 @@
+package tv.floeze.Input4J;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Polls an {@link Input4J} at a fixed rate on its own thread, independent of
+ * the frame rate of the application. <br />
+ * 
+ * Every poll is scheduled a fixed period after the previous one was scheduled,
+ * not after it finished, so the rate does not drift with the time a poll takes.
+ * The thread sleeps until the next poll with {@link LockSupport#parkNanos(long)}.
+ * If polling falls behind by more than a period, the missed polls are skipped
+ * instead of being run back to back. <br />
+ * 
+ * The frames of all polls are merged (keeping the largest absolute value of
+ * every input) until they are taken, so inputs that only lasted between two
+ * takes are not lost.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class BackgroundPoller<T> {
+
+	private static final String NAME = "Input4J poller";
+
+	private final Supplier<InputMap<T>> poll;
+
+	private final long period;
+
+	private final Consumer<Exception> onError;
+
+	private final Thread thread;
+
+	/**
+	 * Frames merged since they were last taken. Guarded by itself.
+	 */
+	private final DenseInputMap<T> merged;
+
+	/**
+	 * Number of polls merged since they were last taken. Guarded by
+	 * {@link #merged}.
+	 */
+	private long polls;
+
+	private volatile long missed;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Starts polling.
+	 * 
+	 * @param poll     updates the {@link Input4J} and returns the frame
+	 * @param registry {@link ActionRegistry} of the frames
+	 * @param period   time between two polls in nanoseconds
+	 * @param virtual  true to poll on a virtual thread if the JVM supports them,
+	 *                 false to poll on a platform thread
+	 * @param onError  called on the background thread with the exception if a
+	 *                 poll failed, or null to ignore errors
+	 */
+	BackgroundPoller(Supplier<InputMap<T>> poll, ActionRegistry<T> registry, long period, boolean virtual,
+			Consumer<Exception> onError) {
+		this.poll = poll;
+		this.period = period;
+		this.onError = onError;
+		this.merged = new DenseInputMap<T>(registry, 1);
+		Thread t = virtual ? newVirtualThread(this::run) : null;
+		if (t == null) {
+			t = new Thread(this::run, NAME);
+			t.setDaemon(true);
+			t.setPriority(Thread.MAX_PRIORITY);
+		}
+		thread = t;
+		t.start();
+	}
+
+	/**
+	 * Creates a virtual thread using reflection, so this also runs on JVMs that
+	 * do not support them.
+	 * 
+	 * @param task {@link Runnable} to run on the thread
+	 * @return the unstarted thread, or null if the JVM does not support virtual
+	 *         threads
+	 */
+	private static Thread newVirtualThread(Runnable task) {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object b = Thread.class.getMethod("ofVirtual").invoke(null);
+			b = builder.getMethod("name", String.class).invoke(b, NAME);
+			return (Thread) builder.getMethod("unstarted", Runnable.class).invoke(b, task);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Polls until stopped.
+	 */
+	private void run() {
+		long next = System.nanoTime();
+		while (running) {
+			try {
+				InputMap<T> frame = poll.get();
+				synchronized (merged) {
+					frame.mergeInto(merged);
+					polls++;
+				}
+			} catch (RuntimeException e) {
+				if (onError != null)
+					onError.accept(e);
+			}
+			next += period;
+			long now = System.nanoTime();
+			if (now - next > period) {
+				missed += (now - next) / period;
+				next = now;
+				continue;
+			}
+			long wait;
+			while (running && (wait = next - System.nanoTime()) > 0)
+				LockSupport.parkNanos(this, wait);
+		}
+	}
+
+	/**
+	 * Replaces the inputs of an {@link InputMap} with the frames merged since the
+	 * last call.
+	 * 
+	 * @param target {@link InputMap} to copy the inputs into
+	 * @return the number of polls merged into it
+	 */
+	long take(InputMap<T> target) {
+		target.clear();
+		synchronized (merged) {
+			merged.mergeInto(target);
+			merged.clear();
+			long p = polls;
+			polls = 0;
+			return p;
+		}
+	}
+
+	/**
+	 * Gets the number of polls that were skipped because polling fell behind.
+	 * 
+	 * @return the number of skipped polls
+	 */
+	long getMissed() {
+		return missed;
+	}
+
+	/**
+	 * Stops polling and waits for a poll in progress to finish, unless called
+	 * from the polling thread itself.
+	 */
+	void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+		if (Thread.currentThread() == thread)
+			return;
+		boolean interrupted = false;
+		while (true) {
+			try {
+				thread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+}
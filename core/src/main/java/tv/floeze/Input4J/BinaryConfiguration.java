@@ -0,0 +1,466 @@
+package tv.floeze.Input4J;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Reads and writes {@link ConfigPOJO}s in a compact binary format. <br />
+ * 
+ * All strings (class names, String and enum identifiers) are stored once in a
+ * string table, and every distinct identifier and {@link SourceConfiguration}
+ * is stored once in a value table. The players only reference these by index,
+ * so configurations with many similar players stay small and fast to read.
+ * {@link SourceConfiguration}s and identifiers that are neither Strings nor
+ * enums are stored as JSON, using the same Jackson annotations as the xml
+ * format. {@link SourceConfiguration}s are mutable, so every reference to one
+ * is read as a new instance, like when loading xml.
+ * 
+ * <pre>
+ * int magic, short version
+ * strings:     varint count, UTF string...
+ * identifiers: varint count, (byte tag, data)...
+ *                 0: String   varint string
+ *                 1: enum     varint class name, varint constant name
+ *                 2: other    varint class name, varint length, JSON
+ * configs:     varint count, (varint length, JSON)...
+ * players:     varint count, (zigzag varint number, varint count,
+ *                (varint class name, varint count,
+ *                  (varint identifier, varint count, varint config...)...)...)...
+ * combos:      varint count, (byte type, varint window, short value,
+ *                varint action identifier, varint count, varint identifier...)...
+ * </pre>
+ * 
+ * Version 1 has no combos and can still be read.
+ * 
+ * @author Floeze
+ *
+ */
+final class BinaryConfiguration {
+
+	/**
+	 * "I4JB"
+	 */
+	private static final int MAGIC = 0x49344A42;
+
+	private static final short VERSION = 2;
+
+	private static final byte STRING = 0;
+
+	private static final byte ENUM = 1;
+
+	private static final byte OTHER = 2;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final ObjectWriter CONFIG_WRITER = MAPPER.writerFor(SourceConfiguration.class);
+
+	private static final ObjectReader CONFIG_READER = MAPPER.readerFor(SourceConfiguration.class);
+
+	private BinaryConfiguration() {
+	}
+
+	/**
+	 * Writes a {@link ConfigPOJO}.
+	 * 
+	 * @param c   {@link ConfigPOJO} to write
+	 * @param out {@link OutputStream} to write to. It is flushed, but not closed.
+	 * @throws IOException if writing failed
+	 */
+	static void write(ConfigPOJO c, OutputStream out) throws IOException {
+		Table<String> strings = new Table<String>();
+		Table<Object> identifiers = new Table<Object>();
+		Table<SourceConfiguration> configs = new Table<SourceConfiguration>();
+		PlayerPOJO[] players = c.players == null ? new PlayerPOJO[0] : c.players;
+		for (PlayerPOJO p : players) {
+			if (p.inputSourceConfigs == null)
+				continue;
+			for (InputSourcePOJO i : p.inputSourceConfigs) {
+				if (i.className == null || i.sourceConfigs == null)
+					continue;
+				strings.add(i.className);
+				for (SourceConfigPOJO<?> s : i.sourceConfigs) {
+					if (s.key == null || s.configs == null)
+						continue;
+					addIdentifier(strings, identifiers, s.key);
+					for (SourceConfiguration sc : s.configs)
+						configs.add(sc);
+				}
+			}
+		}
+		List<ComboPOJO> combos = new ArrayList<ComboPOJO>();
+		if (c.combos != null) {
+			for (ComboPOJO combo : c.combos) {
+				if (combo.type == null || combo.action == null || combo.action.key == null || combo.inputs == null)
+					continue;
+				addIdentifier(strings, identifiers, combo.action.key);
+				for (IdentifierPOJO<?> i : combo.inputs)
+					if (i.key != null)
+						addIdentifier(strings, identifiers, i.key);
+				combos.add(combo);
+			}
+		}
+
+		DataOutputStream d = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		d.writeInt(MAGIC);
+		d.writeShort(VERSION);
+		writeVarint(d, strings.values.size());
+		for (String s : strings.values)
+			d.writeUTF(s);
+		writeVarint(d, identifiers.values.size());
+		for (Object k : identifiers.values) {
+			if (k instanceof String) {
+				d.writeByte(STRING);
+				writeVarint(d, strings.indexOf((String) k));
+			} else if (k instanceof Enum) {
+				d.writeByte(ENUM);
+				writeVarint(d, strings.indexOf(((Enum<?>) k).getDeclaringClass().getName()));
+				writeVarint(d, strings.indexOf(((Enum<?>) k).name()));
+			} else {
+				d.writeByte(OTHER);
+				writeVarint(d, strings.indexOf(k.getClass().getName()));
+				writeBytes(d, MAPPER.writeValueAsBytes(k));
+			}
+		}
+		writeVarint(d, configs.values.size());
+		for (SourceConfiguration sc : configs.values)
+			writeBytes(d, CONFIG_WRITER.writeValueAsBytes(sc));
+		writeVarint(d, players.length);
+		for (PlayerPOJO p : players) {
+			writeVarint(d, (p.num << 1) ^ (p.num >> 31));
+			int sources = 0;
+			if (p.inputSourceConfigs != null)
+				for (InputSourcePOJO i : p.inputSourceConfigs)
+					if (i.className != null && i.sourceConfigs != null)
+						sources++;
+			writeVarint(d, sources);
+			if (sources == 0)
+				continue;
+			for (InputSourcePOJO i : p.inputSourceConfigs) {
+				if (i.className == null || i.sourceConfigs == null)
+					continue;
+				writeVarint(d, strings.indexOf(i.className));
+				int keys = 0;
+				for (SourceConfigPOJO<?> s : i.sourceConfigs)
+					if (s.key != null && s.configs != null)
+						keys++;
+				writeVarint(d, keys);
+				for (SourceConfigPOJO<?> s : i.sourceConfigs) {
+					if (s.key == null || s.configs == null)
+						continue;
+					writeVarint(d, identifiers.indexOf(s.key));
+					writeVarint(d, s.configs.length);
+					for (SourceConfiguration sc : s.configs)
+						writeVarint(d, configs.indexOf(sc));
+				}
+			}
+		}
+		writeVarint(d, combos.size());
+		for (ComboPOJO combo : combos) {
+			d.writeByte(combo.type.ordinal());
+			writeVarint(d, combo.window);
+			d.writeShort(combo.value);
+			writeVarint(d, identifiers.indexOf(combo.action.key));
+			int inputs = 0;
+			for (IdentifierPOJO<?> i : combo.inputs)
+				if (i.key != null)
+					inputs++;
+			writeVarint(d, inputs);
+			for (IdentifierPOJO<?> i : combo.inputs)
+				if (i.key != null)
+					writeVarint(d, identifiers.indexOf(i.key));
+		}
+		d.flush();
+	}
+
+	/**
+	 * Adds an identifier and the strings it is stored with to the tables.
+	 * 
+	 * @param strings     string table
+	 * @param identifiers identifier table
+	 * @param key         identifier to add
+	 */
+	private static void addIdentifier(Table<String> strings, Table<Object> identifiers, Object key) {
+		if (!identifiers.add(key))
+			return;
+		if (key instanceof String) {
+			strings.add((String) key);
+		} else if (key instanceof Enum) {
+			strings.add(((Enum<?>) key).getDeclaringClass().getName());
+			strings.add(((Enum<?>) key).name());
+		} else {
+			strings.add(key.getClass().getName());
+		}
+	}
+
+	/**
+	 * Reads a {@link ConfigPOJO}.
+	 * 
+	 * @param in {@link InputStream} to read from. It is not closed. It is read
+	 *           ahead, so bytes after the {@link ConfigPOJO} may be read as well.
+	 * @return the {@link ConfigPOJO} read
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an identifier could
+	 *                                not be found
+	 */
+	static ConfigPOJO read(InputStream in) throws IOException, ClassNotFoundException {
+		return read(new DataInputStream(new BufferedInputStream(in, 1 << 16)));
+	}
+
+	/**
+	 * Reads a {@link ConfigPOJO} from a {@link FileChannel}, starting at its
+	 * current position. Afterwards, the channel is positioned right after the
+	 * {@link ConfigPOJO}, although it is read ahead.
+	 * 
+	 * @param f {@link FileChannel} to read from. It is not closed.
+	 * @return the {@link ConfigPOJO} read
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an identifier could
+	 *                                not be found
+	 */
+	static ConfigPOJO read(FileChannel f) throws IOException, ClassNotFoundException {
+		long start = f.position();
+		CountingInputStream in = new CountingInputStream(
+				new BufferedInputStream(Channels.newInputStream(f), 1 << 16));
+		ConfigPOJO c = read(new DataInputStream(in));
+		f.position(start + in.count);
+		return c;
+	}
+
+	/**
+	 * Reads a {@link ConfigPOJO}.
+	 * 
+	 * @param d {@link DataInputStream} to read from
+	 * @return the {@link ConfigPOJO} read
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an identifier could
+	 *                                not be found
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static ConfigPOJO read(DataInputStream d) throws IOException, ClassNotFoundException {
+		if (d.readInt() != MAGIC)
+			throw new IOException("Not a binary InputConfiguration");
+		short version = d.readShort();
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported binary InputConfiguration version: " + version);
+		String[] strings = new String[readCount(d)];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = d.readUTF();
+		Object[] identifiers = new Object[readCount(d)];
+		for (int i = 0; i < identifiers.length; i++) {
+			byte tag = d.readByte();
+			if (tag == STRING) {
+				identifiers[i] = readEntry(d, strings);
+			} else if (tag == ENUM) {
+				Class c = InputConfiguration.resolve(readEntry(d, strings));
+				identifiers[i] = Enum.valueOf(c, readEntry(d, strings));
+			} else if (tag == OTHER) {
+				Class<?> c = InputConfiguration.resolve(readEntry(d, strings));
+				identifiers[i] = MAPPER.readValue(readBytes(d), c);
+			} else {
+				throw new IOException("Unknown identifier type: " + tag);
+			}
+		}
+		byte[][] configs = new byte[readCount(d)][];
+		for (int i = 0; i < configs.length; i++)
+			configs[i] = readBytes(d);
+		ConfigPOJO c = new ConfigPOJO();
+		c.players = new PlayerPOJO[readCount(d)];
+		for (int p = 0; p < c.players.length; p++) {
+			PlayerPOJO player = new PlayerPOJO();
+			int num = readVarint(d);
+			player.num = (num >>> 1) ^ -(num & 1);
+			player.inputSourceConfigs = new InputSourcePOJO[readCount(d)];
+			for (int i = 0; i < player.inputSourceConfigs.length; i++) {
+				InputSourcePOJO source = new InputSourcePOJO();
+				source.className = readEntry(d, strings);
+				source.sourceConfigs = new SourceConfigPOJO<?>[readCount(d)];
+				for (int s = 0; s < source.sourceConfigs.length; s++) {
+					SourceConfigPOJO<Object> sc = new SourceConfigPOJO<Object>();
+					sc.key = readEntry(d, identifiers);
+					sc.configs = new SourceConfiguration[readCount(d)];
+					for (int k = 0; k < sc.configs.length; k++)
+						sc.configs[k] = CONFIG_READER.readValue(readEntry(d, configs));
+					source.sourceConfigs[s] = sc;
+				}
+				player.inputSourceConfigs[i] = source;
+			}
+			c.players[p] = player;
+		}
+		if (version < 2)
+			return c;
+		Combo.Type[] types = Combo.Type.values();
+		c.combos = new ComboPOJO[readCount(d)];
+		for (int i = 0; i < c.combos.length; i++) {
+			ComboPOJO combo = new ComboPOJO();
+			int type = d.readByte();
+			if (type < 0 || type >= types.length)
+				throw new IOException("Unknown combo type: " + type);
+			combo.type = types[type];
+			combo.window = readVarint(d);
+			combo.value = d.readShort();
+			combo.action = identifier(readEntry(d, identifiers));
+			combo.inputs = new IdentifierPOJO<?>[readCount(d)];
+			for (int k = 0; k < combo.inputs.length; k++)
+				combo.inputs[k] = identifier(readEntry(d, identifiers));
+			c.combos[i] = combo;
+		}
+		return c;
+	}
+
+	private static IdentifierPOJO<Object> identifier(Object key) {
+		IdentifierPOJO<Object> i = new IdentifierPOJO<Object>();
+		i.key = key;
+		return i;
+	}
+
+	private static void writeVarint(DataOutputStream d, int v) throws IOException {
+		while ((v & ~0x7F) != 0) {
+			d.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		d.writeByte(v);
+	}
+
+	private static int readVarint(DataInputStream d) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = d.read();
+			if (b < 0)
+				throw new EOFException();
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	/**
+	 * Reads the number of entries of an array.
+	 * 
+	 * @param d {@link DataInputStream} to read from
+	 * @return the number of entries
+	 * @throws IOException if reading failed or the number does not fit in an
+	 *                     {@code int}
+	 */
+	private static int readCount(DataInputStream d) throws IOException {
+		int n = readVarint(d);
+		if (n < 0)
+			throw new IOException("Invalid count: " + (n & 0xFFFFFFFFL));
+		return n;
+	}
+
+	/**
+	 * Reads an index into a table and gets the entry at that index.
+	 * 
+	 * @param <V>   Class of entries
+	 * @param d     {@link DataInputStream} to read from
+	 * @param table table to get entry from
+	 * @return the entry at the index
+	 * @throws IOException if reading failed or the index is not in the table
+	 */
+	private static <V> V readEntry(DataInputStream d, V[] table) throws IOException {
+		int i = readVarint(d);
+		if (i < 0 || i >= table.length)
+			throw new IOException("Invalid index: " + (i & 0xFFFFFFFFL) + " of " + table.length);
+		return table[i];
+	}
+
+	private static void writeBytes(DataOutputStream d, byte[] b) throws IOException {
+		writeVarint(d, b.length);
+		d.write(b);
+	}
+
+	private static byte[] readBytes(DataInputStream d) throws IOException {
+		byte[] b = new byte[readCount(d)];
+		d.readFully(b);
+		return b;
+	}
+
+	/**
+	 * An {@link InputStream} counting the bytes read from it.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b >= 0)
+				count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n > 0)
+				count += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long s = in.skip(n);
+			count += s;
+			return s;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * A table assigning every distinct value an index.
+	 * 
+	 * @param <V> Class of values
+	 */
+	private static final class Table<V> {
+		final List<V> values = new ArrayList<V>();
+		final Map<V, Integer> indices = new HashMap<V, Integer>();
+
+		/**
+		 * Adds a value if it isn't in the table yet.
+		 * 
+		 * @param v value to add
+		 * @return true if it was added, false if it was in the table already
+		 */
+		boolean add(V v) {
+			if (indices.containsKey(v))
+				return false;
+			indices.put(v, values.size());
+			values.add(v);
+			return true;
+		}
+
+		int indexOf(V v) {
+			return indices.get(v);
+		}
+	}
+
+}
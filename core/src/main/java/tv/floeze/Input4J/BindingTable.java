@@ -0,0 +1,223 @@
+package tv.floeze.Input4J;
+
+/**
+ * An immutable table of all bindings of one {@link InputSource} class,
+ * compiled from an {@link InputConfiguration}. <br />
+ * 
+ * Every binding of a player and an identifier to a {@link SourceConfiguration}
+ * is one entry. Entries are sorted by player and then by the id of the
+ * identifier and can be iterated like an array:
+ * 
+ * <pre>
+ * BindingTable&lt;T&gt; t = config.getBindings(getClass());
+ * for (int i = 0; i &lt; t.size(); i++)
+ * 	map.setById(t.getPlayer(i), t.getAction(i), read(t.getConfiguration(i)));
+ * </pre>
+ * 
+ * Reading a {@link BindingTable} neither hashes nor allocates and is safe from
+ * any thread.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class BindingTable<T> {
+
+	/**
+	 * A {@link BindingTable} without any entries
+	 */
+	private static final BindingTable<?> EMPTY = new BindingTable<Object>(new int[0], new int[0], new Object[0],
+			new SourceConfiguration[0]);
+
+	private final int[] players;
+
+	private final int[] actions;
+
+	private final Object[] identifiers;
+
+	private final SourceConfiguration[] configs;
+
+	/**
+	 * Creates a new {@link BindingTable}. The arrays have to be sorted already and
+	 * must not be changed afterwards.
+	 * 
+	 * @param players     player of each entry
+	 * @param actions     id of the identifier of each entry
+	 * @param identifiers identifier of each entry
+	 * @param configs     {@link SourceConfiguration} of each entry
+	 */
+	BindingTable(int[] players, int[] actions, Object[] identifiers, SourceConfiguration[] configs) {
+		this.players = players;
+		this.actions = actions;
+		this.identifiers = identifiers;
+		this.configs = configs;
+	}
+
+	/**
+	 * Gets a {@link BindingTable} without any entries.
+	 * 
+	 * @param <T> Class of identifier
+	 * @return an empty {@link BindingTable}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BindingTable<T> empty() {
+		return (BindingTable<T>) EMPTY;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * 
+	 * @return the number of entries
+	 */
+	public int size() {
+		return players.length;
+	}
+
+	/**
+	 * Gets the index of the first entry of a player or a later player. <br />
+	 * 
+	 * As the entries are sorted by player, the entries of the players from
+	 * {@code from} to {@code to - 1} are the ones from {@code indexOfPlayer(from)}
+	 * to {@code indexOfPlayer(to) - 1}. This does not allocate.
+	 * 
+	 * @param player player to search for
+	 * @return the index of the first entry with a player greater than or equal to
+	 *         the given one, or {@link #size()} if there is none
+	 */
+	public int indexOfPlayer(int player) {
+		int low = 0;
+		int high = players.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (players[mid] < player)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the player of an entry.
+	 * 
+	 * @param i index of entry
+	 * @return the player of the entry
+	 */
+	public int getPlayer(int i) {
+		return players[i];
+	}
+
+	/**
+	 * Gets the id of the identifier of an entry (see {@link ActionRegistry}).
+	 * 
+	 * @param i index of entry
+	 * @return the id of the identifier of the entry
+	 */
+	public int getAction(int i) {
+		return actions[i];
+	}
+
+	/**
+	 * Gets the identifier of an entry.
+	 * 
+	 * @param i index of entry
+	 * @return the identifier of the entry
+	 */
+	@SuppressWarnings("unchecked")
+	public T getIdentifier(int i) {
+		return (T) identifiers[i];
+	}
+
+	/**
+	 * Gets the {@link SourceConfiguration} of an entry.
+	 * 
+	 * @param i index of entry
+	 * @return the {@link SourceConfiguration} of the entry
+	 */
+	public SourceConfiguration getConfiguration(int i) {
+		return configs[i];
+	}
+
+	/**
+	 * Creates a copy of this {@link BindingTable} with one more entry, keeping
+	 * the entries sorted. If the table already has an entry with the same player,
+	 * id and {@link SourceConfiguration}, this table is returned.
+	 * 
+	 * @param player     player of the entry
+	 * @param action     id of the identifier of the entry
+	 * @param identifier identifier of the entry
+	 * @param config     {@link SourceConfiguration} of the entry
+	 * @return a {@link BindingTable} containing the entry
+	 */
+	BindingTable<T> with(int player, int action, T identifier, SourceConfiguration config) {
+		int n = players.length;
+		int at = 0;
+		while (at < n && (players[at] < player || (players[at] == player && actions[at] <= action))) {
+			if (players[at] == player && actions[at] == action && configs[at].equals(config))
+				return this;
+			at++;
+		}
+		int[] p = new int[n + 1];
+		int[] a = new int[n + 1];
+		Object[] i = new Object[n + 1];
+		SourceConfiguration[] c = new SourceConfiguration[n + 1];
+		System.arraycopy(players, 0, p, 0, at);
+		System.arraycopy(actions, 0, a, 0, at);
+		System.arraycopy(identifiers, 0, i, 0, at);
+		System.arraycopy(configs, 0, c, 0, at);
+		p[at] = player;
+		a[at] = action;
+		i[at] = identifier;
+		c[at] = config;
+		System.arraycopy(players, at, p, at + 1, n - at);
+		System.arraycopy(actions, at, a, at + 1, n - at);
+		System.arraycopy(identifiers, at, i, at + 1, n - at);
+		System.arraycopy(configs, at, c, at + 1, n - at);
+		return new BindingTable<T>(p, a, i, c);
+	}
+
+	/**
+	 * Creates a copy of this {@link BindingTable} without the entries of a player
+	 * and an id.
+	 * 
+	 * @param player player of the entries to remove
+	 * @param action id of the identifier of the entries to remove
+	 * @return a {@link BindingTable} without the entries, or null if it would be
+	 *         empty
+	 */
+	BindingTable<T> without(int player, int action) {
+		int n = 0;
+		for (int i = 0; i < players.length; i++)
+			if (players[i] != player || actions[i] != action)
+				n++;
+		if (n == 0)
+			return null;
+		if (n == players.length)
+			return this;
+		int[] p = new int[n];
+		int[] a = new int[n];
+		Object[] id = new Object[n];
+		SourceConfiguration[] c = new SourceConfiguration[n];
+		for (int i = 0, j = 0; i < players.length; i++) {
+			if (players[i] == player && actions[i] == action)
+				continue;
+			p[j] = players[i];
+			a[j] = actions[i];
+			id[j] = identifiers[i];
+			c[j++] = configs[i];
+		}
+		return new BindingTable<T>(p, a, id, c);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("[");
+		for (int i = 0; i < players.length; i++) {
+			if (i > 0)
+				b.append(", ");
+			b.append(players[i]).append('/').append(identifiers[i]).append('=').append(configs[i]);
+		}
+		return b.append(']').toString();
+	}
+
+}
@@ -0,0 +1,205 @@
+package tv.floeze.Input4J;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A combination of inputs that triggers a derived action. Combos are declared
+ * in an {@link InputConfiguration} (see
+ * {@link InputConfiguration#addCombo(Combo)}) and detected by
+ * {@link Input4J#update()}, which writes the derived action into the
+ * {@link InputMap} of the frame. <br />
+ * 
+ * A {@link Type#CHORD} is active while all of its inputs are pressed together.
+ * A {@link Type#SEQUENCE} is triggered for one frame when its inputs are
+ * pressed one after another, each within a number of updates (the window) of
+ * the one before. Other inputs pressed in between do not break a sequence.
+ * <br />
+ * 
+ * The inputs of a combo are the inputs of the {@link InputSource}s; derived
+ * actions of other combos are not taken into account. An input counts as
+ * pressed if its value is not 0.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class Combo<T> {
+
+	/**
+	 * The kind of a {@link Combo}
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public enum Type {
+		/**
+		 * All inputs held together
+		 */
+		CHORD,
+		/**
+		 * Inputs pressed one after another
+		 */
+		SEQUENCE
+	}
+
+	/**
+	 * Value the derived action of a {@link Combo} is set to by default
+	 */
+	public static final short DEFAULT_VALUE = Short.MAX_VALUE;
+
+	private final Type type;
+
+	private final T action;
+
+	private final List<T> inputs;
+
+	private final int window;
+
+	private final short value;
+
+	/**
+	 * Creates a new {@link Combo}.
+	 * 
+	 * @param type   {@link Type} of combo
+	 * @param action identifier of the derived action
+	 * @param inputs identifiers of the inputs, in order for a
+	 *               {@link Type#SEQUENCE}
+	 * @param window maximum number of updates between two inputs of a
+	 *               {@link Type#SEQUENCE}. Ignored for a {@link Type#CHORD}.
+	 * @param value  value to set the derived action to, must not be 0
+	 * @throws IllegalArgumentException if there are no inputs, an input is null,
+	 *                                  a {@link Type#CHORD} contains an input
+	 *                                  twice, the window of a
+	 *                                  {@link Type#SEQUENCE} is not positive or
+	 *                                  the value is 0
+	 */
+	public Combo(Type type, T action, List<T> inputs, int window, short value) {
+		this.type = Objects.requireNonNull(type, "type");
+		this.action = Objects.requireNonNull(action, "action");
+		if (inputs == null || inputs.isEmpty())
+			throw new IllegalArgumentException("A combo needs at least one input");
+		List<T> l = new ArrayList<T>(inputs);
+		if (l.contains(null))
+			throw new IllegalArgumentException("Inputs must not be null: " + inputs);
+		if (type == Type.CHORD && new HashSet<T>(l).size() != l.size())
+			throw new IllegalArgumentException("A chord must not contain an input twice: " + inputs);
+		if (type == Type.SEQUENCE && window < 1)
+			throw new IllegalArgumentException("Window must be positive: " + window);
+		if (value == 0)
+			throw new IllegalArgumentException("Value must not be 0");
+		this.inputs = Collections.unmodifiableList(l);
+		this.window = type == Type.CHORD ? 0 : window;
+		this.value = value;
+	}
+
+	/**
+	 * Creates a new {@link Type#CHORD} setting its action to
+	 * {@link #DEFAULT_VALUE}.
+	 * 
+	 * @param <T>    Class of identifier
+	 * @param action identifier of the derived action
+	 * @param inputs identifiers of the inputs to hold together
+	 * @return the {@link Combo}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <T> Combo<T> chord(T action, T... inputs) {
+		return new Combo<T>(Type.CHORD, action, Arrays.asList(inputs), 0, DEFAULT_VALUE);
+	}
+
+	/**
+	 * Creates a new {@link Type#SEQUENCE} setting its action to
+	 * {@link #DEFAULT_VALUE}.
+	 * 
+	 * @param <T>    Class of identifier
+	 * @param action identifier of the derived action
+	 * @param window maximum number of updates between two inputs
+	 * @param inputs identifiers of the inputs to press one after another
+	 * @return the {@link Combo}
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <T> Combo<T> sequence(T action, int window, T... inputs) {
+		return new Combo<T>(Type.SEQUENCE, action, Arrays.asList(inputs), window, DEFAULT_VALUE);
+	}
+
+	/**
+	 * Creates a copy of this {@link Combo} with another value.
+	 * 
+	 * @param value value to set the derived action to, must not be 0
+	 * @return the new {@link Combo}
+	 */
+	public Combo<T> withValue(short value) {
+		return new Combo<T>(type, action, inputs, window, value);
+	}
+
+	/**
+	 * @return the {@link Type} of this combo
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the identifier of the derived action
+	 */
+	public T getAction() {
+		return action;
+	}
+
+	/**
+	 * @return the identifiers of the inputs (unmodifiable)
+	 */
+	public List<T> getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return the maximum number of updates between two inputs of a
+	 *         {@link Type#SEQUENCE}, or 0 for a {@link Type#CHORD}
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return the value the derived action is set to
+	 */
+	public short getValue() {
+		return value;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Combo))
+			return false;
+		Combo<?> c = (Combo<?>) obj;
+		return type == c.type && window == c.window && value == c.value && action.equals(c.action)
+				&& inputs.equals(c.inputs);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(type, action, inputs, window, value);
+	}
+
+	@Override
+	public String toString() {
+		String joined = type == Type.CHORD ? "+" : " > ";
+		StringBuilder b = new StringBuilder();
+		for (T input : inputs) {
+			if (b.length() > 0)
+				b.append(joined);
+			b.append(input);
+		}
+		if (type == Type.SEQUENCE)
+			b.append(" (").append(window).append(')');
+		return b.append(" = ").append(action).append('=').append(value).toString();
+	}
+
+}
@@ -0,0 +1,306 @@
+package tv.floeze.Input4J;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects the {@link Combo}s of an {@link InputConfiguration} and writes their
+ * derived actions into the frames of {@link Input4J#update()}. <br />
+ * 
+ * The {@link Combo}s are compiled into tables indexed by the id of an input,
+ * listing the chords containing the input and the steps of sequences expecting
+ * it. Every frame, only the inputs that changed are looked up in these tables,
+ * so the time spent does not depend on the number of {@link Combo}s, but on
+ * the number of changed inputs and the {@link Combo}s they belong to. <br />
+ * 
+ * The state of every player is a counter of pressed inputs per chord and the
+ * progress and time of the last step per sequence. Active chords are kept in a
+ * list, so writing them costs time proportional to the active chords only.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ComboEngine<T> {
+
+	private static final int[] NONE = new int[0];
+
+	/**
+	 * The {@link Combo}s this was compiled from
+	 */
+	private final List<Combo<T>> combos;
+
+	/**
+	 * Edges of the inputs of the {@link InputSource}s
+	 */
+	private final InputEdges<T> edges;
+
+	private final int chords;
+
+	private final int[] chordAction;
+
+	private final short[] chordValue;
+
+	private final int[] chordSize;
+
+	/**
+	 * input id -> chords containing the input
+	 */
+	private final int[][] chordsByInput;
+
+	private final int sequences;
+
+	private final int[] sequenceAction;
+
+	private final short[] sequenceValue;
+
+	private final int[] sequenceWindow;
+
+	private final int[] sequenceLength;
+
+	/**
+	 * input id -> sequences expecting the input, in the same order as
+	 * {@link #stepsByInput}
+	 */
+	private final int[][] sequencesByInput;
+
+	/**
+	 * input id -> steps of the sequences expecting the input, latest step first
+	 */
+	private final int[][] stepsByInput;
+
+	/**
+	 * Number of players the state has room for
+	 */
+	private int players;
+
+	/**
+	 * Number of pressed inputs, indexed by {@code player * chords + chord}
+	 */
+	private int[] chordCount = NONE;
+
+	/**
+	 * Position in {@link #active} plus one, indexed by
+	 * {@code player * chords + chord}, or 0 if not active
+	 */
+	private int[] activePosition = NONE;
+
+	/**
+	 * {@code player * chords + chord} of every active chord
+	 */
+	private int[] active = NONE;
+
+	private int activeCount;
+
+	/**
+	 * Number of steps done, indexed by {@code player * sequences + sequence}
+	 */
+	private int[] progress = NONE;
+
+	/**
+	 * Frame of the last step done, indexed by
+	 * {@code player * sequences + sequence}
+	 */
+	private long[] lastStep = new long[0];
+
+	/**
+	 * Number of the current frame
+	 */
+	private long frame;
+
+	/**
+	 * Compiles {@link Combo}s.
+	 * 
+	 * @param combos   {@link Combo}s to detect
+	 * @param registry {@link ActionRegistry} assigning ids to the identifiers
+	 */
+	ComboEngine(List<Combo<T>> combos, ActionRegistry<T> registry) {
+		this.combos = combos;
+		this.edges = new InputEdges<T>(registry);
+		List<Combo<T>> c = new ArrayList<Combo<T>>();
+		List<Combo<T>> s = new ArrayList<Combo<T>>();
+		int inputs = 0;
+		for (Combo<T> combo : combos) {
+			(combo.getType() == Combo.Type.CHORD ? c : s).add(combo);
+			for (T input : combo.getInputs())
+				inputs = Math.max(inputs, registry.register(input) + 1);
+		}
+
+		chords = c.size();
+		chordAction = new int[chords];
+		chordValue = new short[chords];
+		chordSize = new int[chords];
+		chordsByInput = new int[inputs][];
+		for (int i = 0; i < chords; i++) {
+			Combo<T> combo = c.get(i);
+			chordAction[i] = registry.register(combo.getAction());
+			chordValue[i] = combo.getValue();
+			chordSize[i] = combo.getInputs().size();
+			for (T input : combo.getInputs())
+				chordsByInput[registry.getId(input)] = append(chordsByInput[registry.getId(input)], i);
+		}
+
+		sequences = s.size();
+		sequenceAction = new int[sequences];
+		sequenceValue = new short[sequences];
+		sequenceWindow = new int[sequences];
+		sequenceLength = new int[sequences];
+		sequencesByInput = new int[inputs][];
+		stepsByInput = new int[inputs][];
+		for (int i = 0; i < sequences; i++) {
+			Combo<T> combo = s.get(i);
+			sequenceAction[i] = registry.register(combo.getAction());
+			sequenceValue[i] = combo.getValue();
+			sequenceWindow[i] = combo.getWindow();
+			sequenceLength[i] = combo.getInputs().size();
+			// latest step first, so a step is never advanced twice by one press
+			for (int step = combo.getInputs().size() - 1; step >= 0; step--) {
+				int id = registry.getId(combo.getInputs().get(step));
+				sequencesByInput[id] = append(sequencesByInput[id], i);
+				stepsByInput[id] = append(stepsByInput[id], step);
+			}
+		}
+	}
+
+	private static int[] append(int[] a, int v) {
+		if (a == null)
+			return new int[] { v };
+		int[] b = Arrays.copyOf(a, a.length + 1);
+		b[a.length] = v;
+		return b;
+	}
+
+	/**
+	 * Checks if this {@link ComboEngine} was compiled from a list of
+	 * {@link Combo}s.
+	 * 
+	 * @param combos list of {@link Combo}s returned by
+	 *               {@link InputConfiguration#getCombos()}
+	 * @return true if it was compiled from this list, false otherwise
+	 */
+	boolean isFor(List<Combo<T>> combos) {
+		return this.combos == combos;
+	}
+
+	/**
+	 * Advances the {@link Combo}s with the inputs of a frame and writes the
+	 * derived actions into it.
+	 * 
+	 * @param inputs {@link DenseInputMap} storing the inputs of the frame. The
+	 *               derived actions are written into it as well, so it can be
+	 *               used in place of {@code target} afterwards.
+	 * @param target {@link InputMap} to write the derived actions to. This may be
+	 *               {@code inputs} itself.
+	 */
+	void update(DenseInputMap<T> inputs, InputMap<T> target) {
+		frame++;
+		edges.update(inputs);
+		if (inputs.players() > players)
+			grow(inputs.players());
+		for (int i = edges.nextChanged(0); i >= 0; i = edges.nextChanged(i + 1)) {
+			int action = edges.getAction(i);
+			if (action >= chordsByInput.length)
+				continue;
+			int player = edges.getPlayer(i);
+			boolean down = edges.isPressedById(player, action);
+			int[] c = chordsByInput[action];
+			if (c != null)
+				for (int chord : c)
+					chord(player * chords + chord, chord, down);
+			if (down && sequencesByInput[action] != null)
+				step(inputs, target, player, sequencesByInput[action], stepsByInput[action]);
+		}
+		for (int i = 0; i < activeCount; i++) {
+			int key = active[i];
+			int chord = key % chords;
+			set(inputs, target, key / chords, chordAction[chord], chordValue[chord]);
+		}
+	}
+
+	/**
+	 * Writes a derived action into the frame and the target.
+	 * 
+	 * @param inputs {@link DenseInputMap} storing the inputs of the frame
+	 * @param target {@link InputMap} to write the derived actions to
+	 * @param player player of the derived action
+	 * @param action id of the derived action
+	 * @param value  value of the derived action
+	 */
+	private static <T> void set(DenseInputMap<T> inputs, InputMap<T> target, int player, int action, short value) {
+		target.setById(player, action, value);
+		if (target != inputs)
+			inputs.setById(player, action, value);
+	}
+
+	/**
+	 * Counts an input of a chord of a player.
+	 * 
+	 * @param key   {@code player * chords + chord}
+	 * @param chord index of chord
+	 * @param down  whether the input was pressed or released
+	 */
+	private void chord(int key, int chord, boolean down) {
+		if (down) {
+			if (++chordCount[key] == chordSize[chord]) {
+				active[activeCount++] = key;
+				activePosition[key] = activeCount;
+			}
+		} else if (chordCount[key]-- == chordSize[chord]) {
+			int position = activePosition[key] - 1;
+			int last = active[--activeCount];
+			active[position] = last;
+			activePosition[last] = position + 1;
+			activePosition[key] = 0;
+		}
+	}
+
+	/**
+	 * Advances the sequences of a player expecting a pressed input.
+	 * 
+	 * @param inputs    {@link DenseInputMap} storing the inputs of the frame
+	 * @param target    {@link InputMap} to write the derived actions to
+	 * @param player    player that pressed the input
+	 * @param sequences sequences expecting the input
+	 * @param steps     steps of the sequences expecting the input
+	 */
+	private void step(DenseInputMap<T> inputs, InputMap<T> target, int player, int[] sequences, int[] steps) {
+		for (int j = 0; j < sequences.length; j++) {
+			int sequence = sequences[j];
+			int step = steps[j];
+			int key = player * this.sequences + sequence;
+			if (lastStep[key] == frame)
+				continue;
+			boolean inTime = frame - lastStep[key] <= sequenceWindow[sequence];
+			if (step == 0) {
+				// (re)start, unless this would throw away progress that is still valid
+				if (progress[key] > 1 && inTime)
+					continue;
+			} else if (progress[key] != step || !inTime) {
+				continue;
+			}
+			lastStep[key] = frame;
+			if (step + 1 == sequenceLength[sequence]) {
+				progress[key] = 0;
+				set(inputs, target, player, sequenceAction[sequence], sequenceValue[sequence]);
+			} else {
+				progress[key] = step + 1;
+			}
+		}
+	}
+
+	/**
+	 * Grows the state to have room for more players.
+	 * 
+	 * @param p new number of players
+	 */
+	private void grow(int p) {
+		chordCount = Arrays.copyOf(chordCount, p * chords);
+		activePosition = Arrays.copyOf(activePosition, p * chords);
+		active = Arrays.copyOf(active, p * chords);
+		progress = Arrays.copyOf(progress, p * sequences);
+		lastStep = Arrays.copyOf(lastStep, p * sequences);
+		players = p;
+	}
+
+}
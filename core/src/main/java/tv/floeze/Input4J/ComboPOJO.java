@@ -0,0 +1,28 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+/**
+ * POJO for serializing the {@link Combo}s of an {@link InputConfiguration}
+ * 
+ * @author Floeze
+ *
+ */
+final class ComboPOJO {
+	@JacksonXmlProperty(isAttribute = true, localName = "type")
+	public Combo.Type type;
+
+	@JacksonXmlProperty(isAttribute = true, localName = "window")
+	public int window;
+
+	@JacksonXmlProperty(isAttribute = true, localName = "value")
+	public short value = Combo.DEFAULT_VALUE;
+
+	@JacksonXmlProperty(localName = "action")
+	public IdentifierPOJO<?> action;
+
+	@JacksonXmlProperty(localName = "input")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public IdentifierPOJO<?>[] inputs;
+}
@@ -0,0 +1,30 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+// ConfigPOJO:         PlayerPOJO[],                     ComboPOJO[]
+// PlayerPOJO:         Integer,                          InputSourcePOJO[]
+// InputSourcePOJO:    Class<? extends InputSource>,     SourceConfigPOJO[]
+// SourceConfigPOJO:   T,                                SourceConfiguration[]
+// ComboPOJO:          Combo.Type, int, short,           IdentifierPOJO, IdentifierPOJO[]
+// IdentifierPOJO:     T
+
+/**
+ * POJO for serializing {@link InputConfiguration}
+ * 
+ * @author Floeze
+ *
+ */
+@JsonRootName("InputConfiguration")
+final class ConfigPOJO {
+
+	@JacksonXmlProperty(localName = "player")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public PlayerPOJO[] players;
+
+	@JacksonXmlProperty(localName = "combo")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public ComboPOJO[] combos;
+}
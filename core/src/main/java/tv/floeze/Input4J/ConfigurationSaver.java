@@ -0,0 +1,197 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Saves an {@link InputConfiguration} to a xml file on a background thread
+ * whenever it changes. <br />
+ * 
+ * Changes are collected until the configuration has not changed for a delay,
+ * so a burst of changes (for example rebinding all inputs of a player) is
+ * written once. Only the players and {@link InputSource}s that changed are
+ * serialized again (see {@link InputConfiguration#save()}), and the file is
+ * replaced atomically, so it is never left half-written.
+ * 
+ * @author Floeze
+ *
+ */
+final class ConfigurationSaver implements Closeable {
+
+	/**
+	 * Default time without changes after which a changed configuration is saved
+	 */
+	static final long DELAY_MILLIS = 500;
+
+	private final File file;
+
+	private final long delay;
+
+	private final Consumer<Exception> onError;
+
+	private final Runnable listener = this::schedule;
+
+	private final Thread thread;
+
+	/**
+	 * {@link InputConfiguration} to save
+	 */
+	private volatile InputConfiguration<?> config;
+
+	/**
+	 * {@link System#nanoTime()} of the last change
+	 */
+	private volatile long changed;
+
+	/**
+	 * true if there are changes that have not been saved
+	 */
+	private volatile boolean dirty;
+
+	private volatile boolean running = true;
+
+	/**
+	 * {@link InputConfiguration} last saved and its number of changes at that
+	 * time. Only used by the thread saving.
+	 */
+	private InputConfiguration<?> savedConfig;
+
+	private long savedModifications;
+
+	/**
+	 * Content of the file last written, or null
+	 */
+	private volatile byte[] written;
+
+	/**
+	 * Starts saving an {@link InputConfiguration} whenever it changes.
+	 * 
+	 * @param config  {@link InputConfiguration} to save
+	 * @param file    xml file to save to
+	 * @param delay   time without changes after which the configuration is saved
+	 *                in nanoseconds
+	 * @param onError called on the background thread with the exception if
+	 *                saving failed, or null to ignore errors
+	 */
+	ConfigurationSaver(InputConfiguration<?> config, File file, long delay, Consumer<Exception> onError) {
+		this.file = file.getAbsoluteFile();
+		this.delay = delay;
+		this.onError = onError;
+		thread = new Thread(this::run, "Input4J configuration saver");
+		thread.setDaemon(true);
+		attach(config);
+		thread.start();
+	}
+
+	/**
+	 * Saves another {@link InputConfiguration} from now on, for example one that
+	 * was loaded to replace the current one. It is saved with its next change.
+	 * 
+	 * @param config {@link InputConfiguration} to save
+	 */
+	void attach(InputConfiguration<?> config) {
+		InputConfiguration<?> previous = this.config;
+		if (previous == config)
+			return;
+		if (previous != null)
+			previous.setChangeListener(null);
+		this.config = config;
+		config.setChangeListener(listener);
+	}
+
+	/**
+	 * Schedules a save. Called with the lock of the {@link InputConfiguration}
+	 * held, so this never blocks.
+	 */
+	private void schedule() {
+		changed = System.nanoTime();
+		if (!dirty) {
+			dirty = true;
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Waits for changes and saves them, until closed.
+	 */
+	private void run() {
+		while (running) {
+			if (!dirty) {
+				LockSupport.park(this);
+				continue;
+			}
+			long wait = changed + delay - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(this, wait);
+				continue;
+			}
+			dirty = false;
+			save();
+		}
+	}
+
+	/**
+	 * Saves the {@link InputConfiguration} if it changed since it was last saved.
+	 */
+	private void save() {
+		InputConfiguration<?> c = config;
+		long m = c.modifications();
+		if (c == savedConfig && m == savedModifications)
+			return;
+		try {
+			byte[] xml = c.save().getBytes(StandardCharsets.UTF_8);
+			written = xml;
+			InputConfiguration.write(file, xml);
+			savedConfig = c;
+			savedModifications = m;
+		} catch (IOException | RuntimeException e) {
+			if (onError != null)
+				onError.accept(e);
+		}
+	}
+
+	/**
+	 * Checks if data is what this {@link ConfigurationSaver} last wrote, so
+	 * watching the file does not load the configuration that was just saved
+	 * (see {@link ConfigurationWatcher}).
+	 * 
+	 * @param data content of the file
+	 * @return true if the data was written by this {@link ConfigurationSaver},
+	 *         false otherwise
+	 */
+	boolean wrote(byte[] data) {
+		return Arrays.equals(written, data);
+	}
+
+	/**
+	 * Stops saving. Changes that have not been saved yet are saved before this
+	 * returns.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+		while (true) {
+			try {
+				thread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		config.setChangeListener(null);
+		if (dirty) {
+			dirty = false;
+			save();
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+}
@@ -0,0 +1,155 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Watches a xml configuration file and loads it on a background thread
+ * whenever it changes. <br />
+ * 
+ * The directory of the file is watched, so files replaced by editors (written
+ * to a temporary file and renamed) are picked up as well. Changes are
+ * collected until the file has been quiet for {@link #QUIET_MILLIS}, so a file
+ * is not read while it is still being written. Files written by this process
+ * itself (see {@link ConfigurationSaver}) can be ignored, so saving the current
+ * configuration does not load it again.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ConfigurationWatcher<T> implements Closeable {
+
+	/**
+	 * Time without changes after which a changed file is loaded
+	 */
+	static final long QUIET_MILLIS = 50;
+
+	private final File file;
+
+	private final ActionRegistry<T> registry;
+
+	private final Consumer<InputConfiguration<T>> onLoad;
+
+	private final Consumer<Exception> onError;
+
+	private final Predicate<byte[]> ignore;
+
+	private final WatchService service;
+
+	private final Thread thread;
+
+	/**
+	 * Starts watching a file.
+	 * 
+	 * @param file     xml file to watch
+	 * @param registry {@link ActionRegistry} to load the
+	 *                 {@link InputConfiguration}s with
+	 * @param onLoad   called on the background thread with every
+	 *                 {@link InputConfiguration} loaded
+	 * @param onError  called on the background thread if loading the file failed,
+	 *                 or null to ignore errors
+	 * @param ignore   tests the content of the file and returns true if it should
+	 *                 not be loaded, or null to load every change
+	 * @throws IOException if the directory of the file could not be watched
+	 */
+	ConfigurationWatcher(File file, ActionRegistry<T> registry, Consumer<InputConfiguration<T>> onLoad,
+			Consumer<Exception> onError, Predicate<byte[]> ignore) throws IOException {
+		this.file = file.getAbsoluteFile();
+		this.registry = registry;
+		this.onLoad = onLoad;
+		this.onError = onError;
+		this.ignore = ignore;
+		Path dir = this.file.toPath().getParent();
+		service = FileSystems.getDefault().newWatchService();
+		try {
+			dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			service.close();
+			throw e;
+		}
+		thread = new Thread(this::run, "Input4J configuration watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Waits for changes of the file and loads it, until the {@link WatchService}
+	 * is closed.
+	 */
+	private void run() {
+		Path name = file.toPath().getFileName();
+		try {
+			while (true) {
+				if (!changed(service.take(), name))
+					continue;
+				// wait for the writer to finish
+				WatchKey key;
+				while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+					changed(key, name);
+				load();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	/**
+	 * Checks if the events of a {@link WatchKey} are about the file and resets
+	 * the key.
+	 * 
+	 * @param key  {@link WatchKey} to check
+	 * @param name name of the file
+	 * @return true if the file changed
+	 */
+	private static boolean changed(WatchKey key, Path name) {
+		boolean changed = false;
+		for (WatchEvent<?> e : key.pollEvents())
+			if (e.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(e.context()))
+				changed = true;
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Loads the file and passes it on, unless it is ignored.
+	 */
+	private void load() {
+		InputConfiguration<T> c;
+		try {
+			// check and parse the same content, even if the file changes in between
+			byte[] xml = Files.readAllBytes(file.toPath());
+			if (ignore != null && ignore.test(xml))
+				return;
+			c = InputConfiguration.load(xml, registry);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			if (onError != null)
+				onError.accept(e);
+			return;
+		}
+		onLoad.accept(c);
+	}
+
+	/**
+	 * Stops watching the file. A load that is already in progress may still
+	 * finish.
+	 */
+	@Override
+	public void close() throws IOException {
+		service.close();
+		thread.interrupt();
+	}
+
+}
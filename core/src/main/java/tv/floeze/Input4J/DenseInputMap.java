@@ -0,0 +1,521 @@
+package tv.floeze.Input4J;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An {@link InputMap} storing the input values in a flat {@code short} array
+ * instead of nested {@link Map}s. <br />
+ * 
+ * Every identifier is interned to an {@code int} id using an
+ * {@link ActionRegistry}. The value of a player and an identifier is then
+ * stored at {@code player * actions + id}, so setting and getting values
+ * neither boxes nor allocates once all players and identifiers have been seen.
+ * Using {@link #setById(int, int, short)} and {@link #getById(int, int)} also
+ * skips hashing the identifier. <br />
+ * 
+ * The array grows when a player or identifier outside of the current capacity
+ * is set, so it is best to create the map with the expected number of players
+ * and an {@link ActionRegistry} that already knows all identifiers. Players
+ * should start from 0 counting up. Negative players and players from
+ * {@link #MAX_DENSE_PLAYERS} on are stored in a map like in an
+ * {@link InputMap}, so a single large player number does not allocate room for
+ * all players below it. They work, but are slower and are not part of the
+ * array (so they are not copied by {@link InputSnapshot}s, encoded by
+ * {@link InputDeltaCodec} or tracked by {@link InputEdges}). <br />
+ * 
+ * The identifiers of a player are divided into groups of 64. The map keeps a
+ * bit for every group that may hold a value other than 0, so clearing, merging
+ * and encoding a difference (see {@link InputDeltaCodec}) only visit the
+ * groups that were set.
+ * 
+ * @author Floeze
+ * 
+ * @param <T> Class of identifier
+ */
+public class DenseInputMap<T> extends InputMap<T> {
+
+	/**
+	 * Number of players stored in the array at most. Larger players are stored
+	 * like negative players.
+	 */
+	static final int MAX_DENSE_PLAYERS = 1 << 16;
+
+	/**
+	 * Largest length of the array
+	 */
+	private static final long MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+	/**
+	 * identifier <-> id
+	 */
+	private final ActionRegistry<T> registry;
+
+	/**
+	 * Number of players the array has room for
+	 */
+	private int players;
+
+	/**
+	 * Number of identifiers the array has room for per player
+	 */
+	private int actions;
+
+	/**
+	 * The values, indexed by {@code player * actions + id}
+	 */
+	private short[] values;
+
+	/**
+	 * Number of groups of 64 identifiers per player
+	 */
+	private int words;
+
+	/**
+	 * One bit per group, indexed by {@code player * words + id / 64}, set if a
+	 * value of the group may not be 0
+	 */
+	private long[] touched;
+
+	/**
+	 * Inputs of players not stored in the array (see {@link #isDense(int)}), or
+	 * null if none were set
+	 */
+	private InputMap<T> sparse;
+
+	/**
+	 * Creates a new empty {@link DenseInputMap} with its own
+	 * {@link HashActionRegistry}.
+	 * 
+	 * @param players expected number of players
+	 * @param actions expected number of identifiers
+	 */
+	public DenseInputMap(int players, int actions) {
+		this(new HashActionRegistry<T>(actions), players, actions);
+	}
+
+	/**
+	 * Creates a new empty {@link DenseInputMap} with room for all identifiers
+	 * currently known to an {@link ActionRegistry}.
+	 * 
+	 * @param registry {@link ActionRegistry} to intern identifiers with
+	 * @param players  expected number of players
+	 */
+	public DenseInputMap(ActionRegistry<T> registry, int players) {
+		this(registry, players, registry.size());
+	}
+
+	/**
+	 * Creates a new empty {@link DenseInputMap}.
+	 * 
+	 * @param registry {@link ActionRegistry} to intern identifiers with
+	 * @param players  expected number of players
+	 * @param actions  expected number of identifiers
+	 * @throws IllegalArgumentException if the capacity is negative or too large
+	 */
+	private DenseInputMap(ActionRegistry<T> registry, int players, int actions) {
+		super(registry, false);
+		if (players < 0 || actions < 0)
+			throw new IllegalArgumentException("Capacity must not be negative");
+		this.registry = registry;
+		this.players = Math.max(Math.min(players, MAX_DENSE_PLAYERS), 1);
+		this.actions = Math.max(actions, 1);
+		this.values = new short[length(this.players, this.actions)];
+		this.words = words(this.actions);
+		this.touched = new long[touchedLength(this.players, words)];
+	}
+
+	/**
+	 * Gets the number of groups needed for a number of identifiers.
+	 * 
+	 * @param actions number of identifiers
+	 * @return the number of groups of 64 identifiers
+	 */
+	private static int words(int actions) {
+		return (actions + 63) >>> 6;
+	}
+
+	/**
+	 * Gets the number of {@code long}s needed for the bits of the groups.
+	 * 
+	 * @param players number of players
+	 * @param words   number of groups per player
+	 * @return the length of the array of bits
+	 */
+	private static int touchedLength(int players, int words) {
+		return (int) (((long) players * words + 63) >>> 6);
+	}
+
+	/**
+	 * Gets the length of the array for a number of players and identifiers.
+	 * 
+	 * @param players number of players
+	 * @param actions number of identifiers per player
+	 * @return the length of the array
+	 * @throws IllegalArgumentException if the array would be too large
+	 */
+	private static int length(long players, long actions) {
+		long length = players * actions;
+		if (length > MAX_LENGTH)
+			throw new IllegalArgumentException("Too many players and identifiers: " + players + " * " + actions);
+		return (int) length;
+	}
+
+	/**
+	 * Checks if a player is stored in the array.
+	 * 
+	 * @param player player to check
+	 * @return true if the player is stored in the array, false if it is stored in
+	 *         {@link #sparse}
+	 */
+	private static boolean isDense(int player) {
+		return player >= 0 && player < MAX_DENSE_PLAYERS;
+	}
+
+	@Override
+	public void set(int player, T identifier, short value) {
+		setById(player, registry.register(identifier), value);
+	}
+
+	@Override
+	public short get(int player, T identifier) {
+		if (!isDense(player))
+			return sparse == null ? 0 : sparse.get(player, identifier);
+		return getById(player, registry.getId(identifier));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException if the id is negative or too large
+	 */
+	@Override
+	public void setById(int player, int action, short value) {
+		if (action < 0)
+			throw new IllegalArgumentException("Id must not be negative: " + action);
+		if (!isDense(player)) {
+			sparse().setById(player, action, value);
+			return;
+		}
+		if (player >= players || action >= actions)
+			grow(player + 1L, action + 1L);
+		int i = player * actions + action;
+		if (Math.abs(value) > Math.abs(values[i])) {
+			values[i] = value;
+			touch(player, action);
+		}
+	}
+
+	/**
+	 * Replaces the value of an input, without keeping the largest absolute
+	 * value.
+	 * 
+	 * @param player player to set value for
+	 * @param action id of the identifier of input
+	 * @param value  value of input to set to
+	 * @throws IllegalArgumentException if the player is not stored in the array
+	 *                                  or the id is negative or too large
+	 */
+	void put(int player, int action, short value) {
+		if (!isDense(player) || action < 0)
+			throw new IllegalArgumentException("Player out of range or negative id: " + player + ", " + action);
+		if (player >= players || action >= actions)
+			grow(player + 1L, action + 1L);
+		values[player * actions + action] = value;
+		if (value != 0)
+			touch(player, action);
+	}
+
+	/**
+	 * Gets the map storing the inputs of players not stored in the array,
+	 * creating it if needed.
+	 * 
+	 * @return the map of players not stored in the array
+	 */
+	private InputMap<T> sparse() {
+		if (sparse == null)
+			sparse = new InputMap<T>(registry);
+		return sparse;
+	}
+
+	/**
+	 * Marks the group of an input as set.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input
+	 */
+	private void touch(int player, int action) {
+		int g = player * words + (action >>> 6);
+		touched[g >>> 6] |= 1L << g;
+	}
+
+	@Override
+	public short getById(int player, int action) {
+		if (!isDense(player))
+			return sparse == null ? 0 : sparse.getById(player, action);
+		if (player >= players || action < 0 || action >= actions)
+			return 0;
+		return values[player * actions + action];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * This keeps the capacity of the map and does not allocate. Only the groups
+	 * that were set are cleared.
+	 */
+	@Override
+	public void clear() {
+		if (sparse != null)
+			sparse.clear();
+		long[] t = touched;
+		for (int w = 0; w < t.length; w++) {
+			long bits = t[w];
+			if (bits == 0)
+				continue;
+			t[w] = 0;
+			for (; bits != 0; bits &= bits - 1) {
+				int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+				Arrays.fill(values, groupStart(g), groupEnd(g), (short) 0);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Merging into a {@link DenseInputMap} of the same size does not allocate.
+	 */
+	@Override
+	void mergeInto(InputMap<T> target) {
+		if (sparse != null)
+			sparse.mergeInto(target);
+		if (target instanceof DenseInputMap) {
+			DenseInputMap<T> d = (DenseInputMap<T>) target;
+			if (d.players == players && d.actions == actions) {
+				short[] src = values;
+				short[] dst = d.values;
+				long[] t = touched;
+				for (int w = 0; w < t.length; w++) {
+					for (long bits = t[w]; bits != 0; bits &= bits - 1) {
+						int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+						boolean set = false;
+						for (int i = groupStart(g), end = groupEnd(g); i < end; i++) {
+							short v = src[i];
+							if (Math.abs(v) > Math.abs(dst[i])) {
+								dst[i] = v;
+								set = true;
+							}
+						}
+						if (set)
+							d.touched[w] |= 1L << g;
+					}
+				}
+				return;
+			}
+		}
+		int n = Math.min(actions, registry.size());
+		for (int player = 0; player < players; player++)
+			for (int id = 0; id < n; id++) {
+				short v = values[player * actions + id];
+				if (v != 0)
+					target.setById(player, id, v);
+			}
+	}
+
+	/**
+	 * Gets the number of players this map has room for.
+	 * 
+	 * @return the number of players
+	 */
+	int players() {
+		return players;
+	}
+
+	/**
+	 * Gets the number of identifiers this map has room for per player.
+	 * 
+	 * @return the number of identifiers per player
+	 */
+	int actions() {
+		return actions;
+	}
+
+	/**
+	 * Gets the array storing the values, indexed by
+	 * {@code player * actions() + id}. This is not a copy and is replaced when
+	 * the map grows.
+	 * 
+	 * @return the array storing the values
+	 */
+	short[] array() {
+		return values;
+	}
+
+	/**
+	 * Gets the bits of the groups that may hold a value other than 0, indexed by
+	 * {@code player * words() + id / 64}. This is not a copy and is replaced when
+	 * the map grows. <br />
+	 * 
+	 * After writing to {@link #array()} directly, {@link #retouch()} has to be
+	 * called.
+	 * 
+	 * @return the bits of the groups
+	 */
+	long[] touched() {
+		return touched;
+	}
+
+	/**
+	 * Gets the number of groups of 64 identifiers per player.
+	 * 
+	 * @return the number of groups per player
+	 */
+	int words() {
+		return words;
+	}
+
+	/**
+	 * Gets the index in {@link #array()} of the first value of a group.
+	 * 
+	 * @param g index of group
+	 * @return the index of its first value
+	 */
+	int groupStart(int g) {
+		int player = g / words;
+		return player * actions + ((g - player * words) << 6);
+	}
+
+	/**
+	 * Gets the index in {@link #array()} after the last value of a group.
+	 * 
+	 * @param g index of group
+	 * @return the index after its last value
+	 */
+	int groupEnd(int g) {
+		int player = g / words;
+		return Math.min(player * actions + ((g - player * words) << 6) + 64, (player + 1) * actions);
+	}
+
+	/**
+	 * Recomputes which groups hold values other than 0, after {@link #array()}
+	 * was written to directly.
+	 */
+	void retouch() {
+		Arrays.fill(touched, 0);
+		for (int player = 0; player < players; player++) {
+			int row = player * actions;
+			for (int action = 0; action < actions; action++) {
+				if (values[row + action] != 0) {
+					touch(player, action);
+					// skip the rest of the group
+					action |= 63;
+				}
+			}
+		}
+	}
+
+	@Override
+	public ActionRegistry<T> getActionRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Replaces all values with the ones of another {@link DenseInputMap} and
+	 * takes over its size. Inputs of players not stored in the array are cleared,
+	 * not copied.
+	 * 
+	 * @param other {@link DenseInputMap} to copy
+	 */
+	void copyFrom(DenseInputMap<?> other) {
+		if (sparse != null)
+			sparse.clear();
+		if (other.values.length != values.length)
+			values = new short[other.values.length];
+		System.arraycopy(other.values, 0, values, 0, values.length);
+		if (other.touched.length != touched.length)
+			touched = new long[other.touched.length];
+		System.arraycopy(other.touched, 0, touched, 0, touched.length);
+		players = other.players;
+		actions = other.actions;
+		words = other.words;
+	}
+
+	/**
+	 * Makes sure the array has room for at least the given number of players and
+	 * identifiers.
+	 * 
+	 * @param minPlayers minimum number of players
+	 * @param minActions minimum number of identifiers
+	 * @throws IllegalArgumentException if more than {@link #MAX_DENSE_PLAYERS}
+	 *                                  players or too many identifiers are
+	 *                                  requested
+	 */
+	void ensureCapacity(int minPlayers, int minActions) {
+		if (minPlayers > players || minActions > actions)
+			grow(minPlayers, minActions);
+	}
+
+	/**
+	 * Grows the array so that it has room for at least the given number of
+	 * players and identifiers and keeps all stored values.
+	 * 
+	 * @param minPlayers minimum number of players
+	 * @param minActions minimum number of identifiers
+	 * @throws IllegalArgumentException if more than {@link #MAX_DENSE_PLAYERS}
+	 *                                  players or too many identifiers are
+	 *                                  requested
+	 */
+	private void grow(long minPlayers, long minActions) {
+		if (minPlayers > MAX_DENSE_PLAYERS)
+			throw new IllegalArgumentException("Too many players: " + minPlayers);
+		long p = Math.max(minPlayers, players);
+		long a = Math.max(minActions, actions);
+		// double the size, unless that is too large
+		long doubledP = minPlayers > players ? Math.max(p, Math.min(players * 2L, MAX_DENSE_PLAYERS)) : p;
+		long doubledA = minActions > actions ? Math.max(a, actions * 2L) : a;
+		if (doubledP * doubledA <= MAX_LENGTH) {
+			p = doubledP;
+			a = doubledA;
+		}
+		short[] v = new short[length(p, a)];
+		for (int player = 0; player < players; player++)
+			System.arraycopy(values, player * actions, v, player * (int) a, actions);
+		players = (int) p;
+		actions = (int) a;
+		values = v;
+		words = words(actions);
+		touched = new long[touchedLength(players, words)];
+		retouch();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("{");
+		if (sparse != null) {
+			String n = sparse.toString();
+			b.append(n, 1, n.length() - 1);
+		}
+		for (int player = 0; player < players; player++) {
+			boolean first = true;
+			for (int id = 0; id < Math.min(actions, registry.size()); id++) {
+				short v = values[player * actions + id];
+				if (v == 0)
+					continue;
+				if (first) {
+					if (b.length() > 1)
+						b.append(", ");
+					b.append(player).append("={");
+					first = false;
+				} else {
+					b.append(", ");
+				}
+				b.append(registry.getAction(id)).append('=').append(v);
+			}
+			if (!first)
+				b.append('}');
+		}
+		return b.append('}').toString();
+	}
+
+}
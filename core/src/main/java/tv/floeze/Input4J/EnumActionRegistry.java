@@ -0,0 +1,62 @@
+package tv.floeze.Input4J;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An {@link ActionRegistry} for enum identifiers, using
+ * {@link Enum#ordinal()} as id. <br />
+ * 
+ * All constants of the enum are registered from the start, so looking up ids
+ * never hashes and never allocates.
+ * 
+ * @author Floeze
+ *
+ * @param <E> Class of identifier
+ */
+public class EnumActionRegistry<E extends Enum<E>> implements ActionRegistry<E> {
+
+	/**
+	 * ordinal -> constant
+	 */
+	private final E[] constants;
+
+	/**
+	 * Creates a new {@link EnumActionRegistry} for an enum.
+	 * 
+	 * @param c Class of the enum
+	 */
+	public EnumActionRegistry(Class<E> c) {
+		constants = Objects.requireNonNull(c, "c").getEnumConstants();
+		if (constants == null)
+			throw new IllegalArgumentException(c.getName() + " is not an enum");
+	}
+
+	@Override
+	public int register(E action) {
+		return action.ordinal();
+	}
+
+	@Override
+	public int getId(E action) {
+		return action == null ? -1 : action.ordinal();
+	}
+
+	@Override
+	public E getAction(int id) {
+		if (id < 0 || id >= constants.length)
+			throw new IndexOutOfBoundsException("No action with id " + id);
+		return constants[id];
+	}
+
+	@Override
+	public int size() {
+		return constants.length;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(constants);
+	}
+
+}
@@ -0,0 +1,193 @@
+package tv.floeze.Input4J;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free ring buffer of input events for multiple producers and
+ * a single consumer. <br />
+ * 
+ * An event is a source specific {@code int} code (like a key code), a
+ * {@code short} value and a {@code long} timestamp. These are stored in
+ * primitive arrays, so publishing and draining events does not allocate.
+ * Producers claim a slot with a single compare-and-set and never block; if the
+ * buffer is full, the event is dropped.
+ * 
+ * @author Floeze
+ *
+ */
+final class EventRingBuffer {
+
+	/**
+	 * Receives events drained from an {@link EventRingBuffer}.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	interface EventHandler {
+
+		/**
+		 * Handles an event.
+		 * 
+		 * @param code      source specific code of the event
+		 * @param value     value of the event
+		 * @param timestamp timestamp of the event (see {@link System#nanoTime()})
+		 */
+		void handleEvent(int code, short value, long timestamp);
+	}
+
+	private final int mask;
+
+	/**
+	 * Sequence of each slot. A slot at position {@code p} is free for writing if
+	 * its sequence is {@code p} and ready for reading if it is {@code p + 1}.
+	 */
+	private final AtomicLongArray sequences;
+
+	private final int[] codes;
+
+	private final short[] values;
+
+	private final long[] timestamps;
+
+	/**
+	 * Next position to write to, shared by all producers
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Next position to read from, only used by the consumer
+	 */
+	private long head;
+
+	/**
+	 * Number of events dropped because the buffer was full
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Creates a new empty {@link EventRingBuffer}.
+	 * 
+	 * @param capacity minimum number of events the buffer can hold. This is
+	 *                 rounded up to a power of two.
+	 */
+	EventRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		int c = Integer.highestOneBit(capacity);
+		if (c < capacity)
+			c <<= 1;
+		mask = c - 1;
+		sequences = new AtomicLongArray(c);
+		for (int i = 0; i < c; i++)
+			sequences.set(i, i);
+		codes = new int[c];
+		values = new short[c];
+		timestamps = new long[c];
+	}
+
+	/**
+	 * Publishes an event. This may be called from any thread.
+	 * 
+	 * @param code      source specific code of the event
+	 * @param value     value of the event
+	 * @param timestamp timestamp of the event (see {@link System#nanoTime()})
+	 * @return true if the event was published, false if the buffer was full and
+	 *         the event was dropped
+	 */
+	boolean offer(int code, short value, long timestamp) {
+		long pos = tail.get();
+		int i;
+		for (;;) {
+			i = (int) pos & mask;
+			long diff = sequences.get(i) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1))
+					break;
+				pos = tail.get();
+			} else if (diff < 0) {
+				dropped.incrementAndGet();
+				return false;
+			} else {
+				pos = tail.get();
+			}
+		}
+		codes[i] = code;
+		values[i] = value;
+		timestamps[i] = timestamp;
+		sequences.lazySet(i, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Drains events in the order they were published. This must only be called
+	 * by the single consumer.
+	 * 
+	 * @param handler {@link EventHandler} to pass the events to
+	 * @param limit   maximum number of events to drain
+	 * @return the number of events drained
+	 */
+	int drain(EventHandler handler, int limit) {
+		long pos = head;
+		int n = 0;
+		while (n < limit) {
+			int i = (int) pos & mask;
+			if (sequences.get(i) != pos + 1)
+				break;
+			handler.handleEvent(codes[i], values[i], timestamps[i]);
+			sequences.lazySet(i, pos + mask + 1);
+			pos++;
+			n++;
+		}
+		head = pos;
+		return n;
+	}
+
+	/**
+	 * Drops the events published before a position without handling them. This
+	 * must only be called by the single consumer. Events that are still being
+	 * written are dropped by the next call.
+	 * 
+	 * @param before position to drop events before (see {@link #published()})
+	 */
+	void discard(long before) {
+		long pos = head;
+		while (pos < before) {
+			int i = (int) pos & mask;
+			if (sequences.get(i) != pos + 1)
+				break;
+			sequences.lazySet(i, pos + mask + 1);
+			pos++;
+		}
+		head = pos;
+	}
+
+	/**
+	 * Gets the number of events published so far, including the ones still
+	 * being written and the ones drained already.
+	 * 
+	 * @return the position the next event is published at
+	 */
+	long published() {
+		return tail.get();
+	}
+
+	/**
+	 * Gets the number of events this buffer can hold.
+	 * 
+	 * @return the capacity of this buffer
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Gets the number of events dropped because the buffer was full.
+	 * 
+	 * @return the number of dropped events
+	 */
+	long dropped() {
+		return dropped.get();
+	}
+
+}
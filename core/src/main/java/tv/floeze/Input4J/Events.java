@@ -0,0 +1,166 @@
+package tv.floeze.Input4J;
+
+/**
+ * Emits Java Flight Recorder events, if JFR is available. <br />
+ * 
+ * All JFR classes are only used by {@code JfrEvents}, which lives in the
+ * separate source folder {@code src/main/jfr} and is only loaded through
+ * reflection if {@code jdk.jfr} exists, so Input4J still compiles for and runs
+ * on Java 8 without JFR. The {@code begin} methods return an event only if it is enabled in a running
+ * recording and null otherwise, so nothing is allocated while not recording.
+ * Every event is passed to the matching {@code end} method, which ignores
+ * null.
+ * 
+ * @author Floeze
+ *
+ */
+final class Events {
+
+	/**
+	 * Emits the events of {@link Events}, with methods matching its static
+	 * methods. Implemented by {@code JfrEvents}.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	interface Recorder {
+
+		Object beginUpdate();
+
+		void endUpdate(Object event, int sources);
+
+		Object beginPoll();
+
+		void endPoll(Object event, InputSource source);
+
+		Object beginSetInput();
+
+		void endSetInput(Object event, InputSource source, int player, Object identifier, short value,
+				boolean handled);
+
+		Object beginConfigurationIO();
+
+		void endConfigurationIO(Object event, String operation, String format, int players, long bytes);
+
+	}
+
+	/**
+	 * {@link Recorder} emitting JFR events, or null if JFR is not available
+	 */
+	private static final Recorder RECORDER = load();
+
+	/**
+	 * Whether JFR is available
+	 */
+	static final boolean AVAILABLE = RECORDER != null;
+
+	private Events() {
+	}
+
+	/**
+	 * Loads the {@link Recorder} emitting JFR events, if JFR is available and
+	 * Input4J was built with it.
+	 * 
+	 * @return the {@link Recorder}, or null if JFR is not available
+	 */
+	private static Recorder load() {
+		try {
+			ClassLoader loader = Events.class.getClassLoader();
+			Class.forName("jdk.jfr.Event", false, loader);
+			return (Recorder) Class.forName("tv.floeze.Input4J.JfrEvents", true, loader).getDeclaredConstructor()
+					.newInstance();
+		} catch (Throwable t) {
+			return null;
+		}
+	}
+
+	/**
+	 * Begins the event of an {@link Input4J#update()}.
+	 * 
+	 * @return the event, or null if not recorded
+	 */
+	static Object beginUpdate() {
+		return AVAILABLE ? RECORDER.beginUpdate() : null;
+	}
+
+	/**
+	 * Ends the event of an {@link Input4J#update()}.
+	 * 
+	 * @param event   event returned by {@link #beginUpdate()}
+	 * @param sources number of {@link InputSource}s updated
+	 */
+	static void endUpdate(Object event, int sources) {
+		if (event != null)
+			RECORDER.endUpdate(event, sources);
+	}
+
+	/**
+	 * Begins the event of updating an {@link InputSource}.
+	 * 
+	 * @return the event, or null if not recorded
+	 */
+	static Object beginPoll() {
+		return AVAILABLE ? RECORDER.beginPoll() : null;
+	}
+
+	/**
+	 * Ends the event of updating an {@link InputSource}.
+	 * 
+	 * @param event  event returned by {@link #beginPoll()}
+	 * @param source {@link InputSource} that was updated
+	 */
+	static void endPoll(Object event, InputSource source) {
+		if (event != null)
+			RECORDER.endPoll(event, source);
+	}
+
+	/**
+	 * Begins the event of setting an input.
+	 * 
+	 * @return the event, or null if not recorded
+	 */
+	static Object beginSetInput() {
+		return AVAILABLE ? RECORDER.beginSetInput() : null;
+	}
+
+	/**
+	 * Ends the event of setting an input.
+	 * 
+	 * @param event      event returned by {@link #beginSetInput()}
+	 * @param source     {@link InputSource} asked to set the input
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @param value      value of input
+	 * @param handled    whether the {@link InputSource} set the input
+	 */
+	static void endSetInput(Object event, InputSource source, int player, Object identifier, short value,
+			boolean handled) {
+		if (event != null)
+			RECORDER.endSetInput(event, source, player, identifier, value, handled);
+	}
+
+	/**
+	 * Begins the event of saving or loading an {@link InputConfiguration}.
+	 * 
+	 * @return the event, or null if not recorded
+	 */
+	static Object beginConfigurationIO() {
+		return AVAILABLE ? RECORDER.beginConfigurationIO() : null;
+	}
+
+	/**
+	 * Ends the event of saving or loading an {@link InputConfiguration}.
+	 * 
+	 * @param event     event returned by {@link #beginConfigurationIO()}
+	 * @param operation "save" or "load"
+	 * @param format    "xml" or "binary"
+	 * @param players   number of players in the {@link InputConfiguration}
+	 * @param bytes     size of the data in bytes (characters for Strings), or -1
+	 *                  if unknown
+	 */
+	static void endConfigurationIO(Object event, String operation, String format, int players, long bytes) {
+		if (event != null)
+			RECORDER.endConfigurationIO(event, operation, format, players, bytes);
+	}
+
+}
@@ -0,0 +1,98 @@
+package tv.floeze.Input4J;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link ActionRegistry} for any kind of identifier. Ids are assigned in
+ * the order the identifiers are registered. <br />
+ * 
+ * Looking up ids and identifiers is safe from any thread and does not
+ * allocate. Registering new identifiers is synchronized.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public class HashActionRegistry<T> implements ActionRegistry<T> {
+
+	/**
+	 * identifier -> id
+	 */
+	private final ConcurrentHashMap<T, Integer> ids;
+
+	/**
+	 * id -> identifier. Replaced (never changed) when it has to grow.
+	 */
+	private volatile Object[] actions;
+
+	/**
+	 * Number of registered identifiers
+	 */
+	private volatile int size;
+
+	/**
+	 * Creates a new empty {@link HashActionRegistry}.
+	 */
+	public HashActionRegistry() {
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@link HashActionRegistry} with room for an expected
+	 * number of identifiers.
+	 * 
+	 * @param capacity expected number of identifiers
+	 */
+	public HashActionRegistry(int capacity) {
+		ids = new ConcurrentHashMap<T, Integer>(Math.max(capacity, 1));
+		actions = new Object[Math.max(capacity, 1)];
+	}
+
+	@Override
+	public int register(T action) {
+		Integer id = ids.get(Objects.requireNonNull(action, "action"));
+		if (id != null)
+			return id;
+		synchronized (this) {
+			id = ids.get(action);
+			if (id != null)
+				return id;
+			int n = size;
+			if (n == actions.length)
+				actions = Arrays.copyOf(actions, n * 2);
+			actions[n] = action;
+			size = n + 1;
+			ids.put(action, n);
+			return n;
+		}
+	}
+
+	@Override
+	public int getId(T action) {
+		if (action == null)
+			return -1;
+		Integer id = ids.get(action);
+		return id == null ? -1 : id;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T getAction(int id) {
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException("No action with id " + id);
+		return (T) actions[id];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(actions, size));
+	}
+
+}
@@ -0,0 +1,17 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+/**
+ * POJO for serializing an identifier of a {@link Combo}, stored like the
+ * identifiers of {@link SourceConfigPOJO}s
+ * 
+ * @author Floeze
+ *
+ */
+final class IdentifierPOJO<T> {
+	@JacksonXmlProperty(isAttribute = true, localName = "name")
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "class")
+	public T key;
+}
@@ -4,9 +4,25 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
@@ -15,7 +31,12 @@ import com.fasterxml.jackson.databind.JsonMappingException;
  * Input4J is the main class to handle input from various sources. <br />
  * 
  * Inputs are stored in an {@link InputMap} and can be retrieved using
- * {@link InputMap#get(int, Object)}.
+ * {@link InputMap#get(int, Object)}. <br />
+ * 
+ * An {@link Input4J} is meant to be used by one thread. Other threads can read
+ * the latest inputs using {@link #getSnapshot()}. Instead of being updated by
+ * the application, it can also poll its {@link InputSource}s at a fixed rate
+ * on its own thread (see {@link #startPolling(long, TimeUnit)}).
  * 
  * @author Floeze
  *
@@ -25,17 +46,194 @@ public class Input4J<T> {
 
 	private final Map<T, InputSource> inputSources;
 
-	private final InputConfiguration<T> config;
+	/**
+	 * The {@link InputSource}s in the order they were added, to update them
+	 * without allocating an iterator
+	 */
+	private InputSource[] sources = new InputSource[0];
+
+	private InputConfiguration<T> config;
+
+	/**
+	 * {@link InputConfiguration} loaded in the background that replaces
+	 * {@link #config} at the start of the next {@link #update()}
+	 */
+	private final AtomicReference<InputConfiguration<T>> pending = new AtomicReference<InputConfiguration<T>>();
+
+	/**
+	 * Watcher of the configuration file, or null if not watching
+	 */
+	private ConfigurationWatcher<T> watcher;
+
+	/**
+	 * Saver of the configuration file, or null if not saving automatically
+	 */
+	private volatile ConfigurationSaver saver;
+
+	/**
+	 * The last {@link #saver}, still set after saving was disabled, so the
+	 * watcher does not load the files it wrote
+	 */
+	private volatile ConfigurationSaver lastSaver;
+
+	/**
+	 * The two {@link InputMap}s used alternately by {@link #update()}, or null if
+	 * double buffering is disabled
+	 */
+	private DenseInputMap<T>[] buffers;
+
+	/**
+	 * Read-only views of {@link #buffers}
+	 */
+	private InputMap<T>[] views;
+
+	/**
+	 * Index of the buffer the next {@link #update()} writes to
+	 */
+	private int back;
+
+	/**
+	 * Latest frame for other threads, or null if nobody asked for it yet
+	 */
+	private volatile InputSnapshot<T> snapshot;
+
+	/**
+	 * Edges between the latest frames, or null if nobody asked for them yet
+	 */
+	private InputEdges<T> edges;
+
+	/**
+	 * Samples reported during the current update
+	 */
+	private final SampleBuffer samples = new SampleBuffer();
+
+	/**
+	 * {@link Aggregation} of every identifier id, null for
+	 * {@link Aggregation#MAX_ABS}
+	 */
+	private Aggregation[] aggregations = new Aggregation[0];
+
+	/**
+	 * Number of samples reported during the latest update
+	 */
+	private int sampleCount;
+
+	/**
+	 * Timestamp of the first sample reported during the latest update
+	 */
+	private long firstSample;
+
+	/**
+	 * Time between the first sample and the end of the latest update
+	 */
+	private long sampleLatency;
+
+	/**
+	 * {@link ComboEngine} for the {@link Combo}s of {@link #config}, or null if
+	 * there are none
+	 */
+	private ComboEngine<T> combos;
+
+	/**
+	 * Listeners to call after every frame, or null if nobody subscribed yet
+	 */
+	private ListenerDispatcher<T> listeners;
+
+	/**
+	 * Recorder to record every frame with, or null if not recording
+	 */
+	private InputRecorder recorder;
+
+	/**
+	 * Map to copy frames into that are not stored in a {@link DenseInputMap}
+	 */
+	private DenseInputMap<T> scratch;
+
+	/**
+	 * {@link Executor} to update {@link InputSource}s on at the same time, or null
+	 * to update them one after another
+	 */
+	private Executor executor;
+
+	/**
+	 * {@link ParallelPoller} for the current {@link InputSource}s and
+	 * {@link #executor}
+	 */
+	private ParallelPoller<T> poller;
+
+	/**
+	 * Maximum number of shards to split the players of
+	 * {@link ShardableInputSource}s into, or 0 if sharding is disabled
+	 */
+	private int shards;
+
+	/**
+	 * {@link Executor} to update shards on
+	 */
+	private Executor shardExecutor;
+
+	/**
+	 * {@link ShardedUpdater} for the current {@link InputSource}s, shards and
+	 * {@link #shardExecutor}
+	 */
+	private ShardedUpdater<T> sharder;
+
+	/**
+	 * {@link SourceMetrics} of the {@link InputSource}s by identifier, or null if
+	 * metrics are disabled
+	 */
+	private Map<T, SourceMetrics> metricsByIdentifier;
+
+	/**
+	 * {@link SourceMetrics} of each of {@link #sources}, or null if metrics are
+	 * disabled
+	 */
+	private SourceMetrics[] metrics;
+
+	/**
+	 * Name the {@link SourceMetrics} are registered over JMX with, or null if they
+	 * are not registered
+	 */
+	private String metricsName;
+
+	/**
+	 * {@link BackgroundPoller} polling this {@link Input4J}, or null if it is
+	 * updated by {@link #update()}
+	 */
+	private volatile BackgroundPoller<T> background;
 
 	/**
 	 * Creates a new instance of {@link Input4J} with an empty
 	 * {@link InputConfiguration}.
 	 */
 	public Input4J() {
-		inputSources = new HashMap<T, InputSource>();
+		inputSources = new LinkedHashMap<T, InputSource>();
 		config = new InputConfiguration<T>();
 	}
 
+	/**
+	 * Creates a new instance of {@link Input4J} with an empty
+	 * {@link InputConfiguration} that assigns ids to its identifiers using an
+	 * {@link ActionRegistry}.
+	 * 
+	 * @param registry {@link ActionRegistry} to assign ids with
+	 */
+	public Input4J(ActionRegistry<T> registry) {
+		inputSources = new LinkedHashMap<T, InputSource>();
+		config = new InputConfiguration<T>(registry);
+	}
+
+	/**
+	 * Creates a new instance of {@link Input4J} using an existing
+	 * {@link InputConfiguration}.
+	 * 
+	 * @param config {@link InputConfiguration} to use
+	 */
+	public Input4J(InputConfiguration<T> config) {
+		inputSources = new LinkedHashMap<T, InputSource>();
+		this.config = Objects.requireNonNull(config, "config");
+	}
+
 	/**
 	 * Creates a new instance of {@link Input4J} and loads an
 	 * {@link InputConfiguration} from a xml {@link String}.
@@ -49,7 +247,7 @@ public class Input4J<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Input4J(String xml) throws JsonMappingException, JsonProcessingException, ClassNotFoundException {
-		inputSources = new HashMap<T, InputSource>();
+		inputSources = new LinkedHashMap<T, InputSource>();
 		config = (InputConfiguration<T>) InputConfiguration.load(xml);
 	}
 
@@ -66,7 +264,7 @@ public class Input4J<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Input4J(InputStream xml) throws ClassNotFoundException, IOException {
-		inputSources = new HashMap<T, InputSource>();
+		inputSources = new LinkedHashMap<T, InputSource>();
 		config = (InputConfiguration<T>) InputConfiguration.load(xml);
 	}
 
@@ -83,26 +281,1000 @@ public class Input4J<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Input4J(File xml) throws ClassNotFoundException, IOException {
-		inputSources = new HashMap<T, InputSource>();
+		inputSources = new LinkedHashMap<T, InputSource>();
 		config = (InputConfiguration<T>) InputConfiguration.load(xml);
 	}
 
 	/**
 	 * Updates all inputs and collects them in an {@link InputMap}.
 	 * 
+	 * If double buffering is enabled (see {@link #enableDoubleBuffering(int)}),
+	 * this returns a read-only view of a reused {@link InputMap} instead of a new
+	 * one. <br />
+	 * 
+	 * If the configuration file has been reloaded (see
+	 * {@link #watchConfiguration(File)}), the new {@link InputConfiguration} is
+	 * used from this update on. <br />
+	 * 
+	 * Samples reported by the {@link InputSource}s (see
+	 * {@link InputMap#sampleById(int, int, short, long)}) are combined using the
+	 * {@link Aggregation} of their identifier (see
+	 * {@link #setAggregation(Object, Aggregation)}). The derived actions of the
+	 * {@link Combo}s of the {@link InputConfiguration} are written into the
+	 * returned {@link InputMap} as well.
+	 * 
 	 * @return an {@link InputMap} filed with the current inputs.
+	 * @throws IllegalStateException if this {@link Input4J} is polled in the
+	 *                               background (see
+	 *                               {@link #startPolling(long, TimeUnit)})
 	 */
 	public InputMap<T> update() {
-		InputMap<T> map = new InputMap<T>();
-		inputSources.forEach((identifier, source) -> source.update(map, config));
-		return map;
+		if (background != null)
+			throw new IllegalStateException("Input4J is polled in the background");
+		return poll();
+	}
+
+	/**
+	 * Updates all inputs, see {@link #update()}.
+	 * 
+	 * @return an {@link InputMap} filed with the current inputs.
+	 */
+	private InputMap<T> poll() {
+		Object event = Events.beginUpdate();
+		if (pending.get() != null) {
+			config = pending.getAndSet(null);
+			ConfigurationSaver s = saver;
+			if (s != null)
+				s.attach(config);
+		}
+		DenseInputMap<T>[] b = buffers;
+		if (b == null) {
+			InputMap<T> map = new InputMap<T>(config.getActionRegistry());
+			startSamples(map);
+			updateSources(map);
+			aggregateSamples(map);
+			// copied once for the combos and everything finishing the frame
+			DenseInputMap<T> d = needsDense() ? dense(map) : null;
+			updateCombos(d, map);
+			finish(d);
+			Events.endUpdate(event, sources.length);
+			return map;
+		}
+		int i = back;
+		b[i].clear();
+		startSamples(b[i]);
+		updateSources(b[i]);
+		aggregateSamples(b[i]);
+		updateCombos(b[i], b[i]);
+		finish(b[i]);
+		back = i ^ 1;
+		Events.endUpdate(event, sources.length);
+		return views[i];
+	}
+
+	/**
+	 * Lets the {@link InputSource}s report samples into a frame.
+	 * 
+	 * @param map {@link InputMap} storing the inputs of the frame
+	 */
+	private void startSamples(InputMap<T> map) {
+		samples.clear();
+		map.samples = samples;
+	}
+
+	/**
+	 * Combines the samples reported during an update and sets them in the frame.
+	 * 
+	 * @param map {@link InputMap} storing the inputs of the frame
+	 */
+	private void aggregateSamples(InputMap<T> map) {
+		map.samples = null;
+		SampleBuffer s = samples;
+		sampleCount = s.size();
+		if (sampleCount == 0)
+			return;
+		sampleLatency = System.nanoTime() - s.first();
+		firstSample = s.first();
+		s.aggregateInto(map, aggregations);
+		s.clear();
+	}
+
+	/**
+	 * Advances the {@link Combo}s of the {@link InputConfiguration} and writes
+	 * their derived actions into a frame. The {@link ComboEngine} is compiled
+	 * again whenever the {@link Combo}s changed, which resets their progress.
+	 * 
+	 * @param dense {@link DenseInputMap} storing the inputs of the frame (see
+	 *              {@link #dense(InputMap)}). The derived actions are written
+	 *              into it as well.
+	 * @param map   {@link InputMap} storing the inputs of the frame
+	 */
+	private void updateCombos(DenseInputMap<T> dense, InputMap<T> map) {
+		List<Combo<T>> c = config.getCombos();
+		ComboEngine<T> e = combos;
+		if (c.isEmpty()) {
+			combos = null;
+			return;
+		}
+		if (e == null || !e.isFor(c))
+			combos = e = new ComboEngine<T>(c, config.getActionRegistry());
+		e.update(dense, map);
+	}
+
+	/**
+	 * Records a frame, computes the {@link InputEdges}, publishes the frame to
+	 * the {@link InputSnapshot} and calls the {@link InputListener}s, if there
+	 * are any.
+	 * 
+	 * @param d {@link DenseInputMap} storing the inputs of the frame (see
+	 *          {@link #dense(InputMap)}), or null if none of them are used
+	 */
+	private void finish(DenseInputMap<T> d) {
+		InputEdges<T> e = edges;
+		InputSnapshot<T> s = snapshot;
+		ListenerDispatcher<T> l = listeners;
+		InputRecorder r = recorder;
+		if (e == null && s == null && l == null && r == null)
+			return;
+		if (r != null) {
+			try {
+				r.record(d);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		if (e != null)
+			e.update(d);
+		if (s != null)
+			s.publish(d);
+		if (l != null)
+			l.dispatch(d);
+	}
+
+	/**
+	 * Checks if the {@link Combo}s or {@link #finish(DenseInputMap)} need the
+	 * frame as {@link DenseInputMap}.
+	 * 
+	 * @return true if {@link #dense(InputMap)} has to be called, false otherwise
+	 */
+	private boolean needsDense() {
+		return edges != null || snapshot != null || listeners != null || recorder != null
+				|| !config.getCombos().isEmpty();
+	}
+
+	/**
+	 * Gets a frame as {@link DenseInputMap}, copying it if necessary.
+	 * 
+	 * @param map {@link InputMap} storing the inputs of the frame
+	 * @return a {@link DenseInputMap} storing the inputs of the frame
+	 */
+	private DenseInputMap<T> dense(InputMap<T> map) {
+		if (map instanceof DenseInputMap)
+			return (DenseInputMap<T>) map;
+		if (scratch == null)
+			scratch = new DenseInputMap<T>(config.getActionRegistry(), 1);
+		scratch.clear();
+		map.mergeInto(scratch);
+		return scratch;
+	}
+
+	/**
+	 * Starts recording every frame of {@link #update()} to a log. A recording in
+	 * progress is stopped first. <br />
+	 * 
+	 * The log can be replayed through {@link #update()} with a
+	 * {@link ReplayInputSource}. See {@link InputRecorder}.
+	 * 
+	 * @param file {@link File} to write log to. If it exists, it is overwritten.
+	 * @return the {@link InputRecorder} recording the frames
+	 * @throws IOException if the file could not be opened
+	 */
+	public InputRecorder startRecording(File file) throws IOException {
+		stopRecording();
+		recorder = new InputRecorder(file);
+		return recorder;
+	}
+
+	/**
+	 * Stops recording frames, if recording.
+	 * 
+	 * See {@link #startRecording(File)}.
+	 * 
+	 * @throws IOException if the log could not be finished
+	 */
+	public void stopRecording() throws IOException {
+		InputRecorder r = recorder;
+		recorder = null;
+		if (r != null)
+			r.close();
+	}
+
+	/**
+	 * Watches a xml configuration file and reloads it whenever it changes. <br />
+	 * 
+	 * The file is parsed on a background thread. The new
+	 * {@link InputConfiguration} replaces the current one at the start of the next
+	 * {@link #update()}, so the thread calling {@link #update()} never waits for
+	 * the file and never sees a half-loaded configuration. Changes made to the
+	 * current {@link InputConfiguration} that have not been saved to the file are
+	 * lost when it is replaced. <br />
+	 * 
+	 * The new {@link InputConfiguration} uses the same {@link ActionRegistry}, so
+	 * ids stay the same. Files that cannot be loaded are ignored and the current
+	 * configuration is kept. Files written by {@link #enableAutoSave(File)} are
+	 * not loaded again.
+	 * 
+	 * @param file xml file to watch
+	 * @throws IOException if the file could not be watched
+	 */
+	public void watchConfiguration(File file) throws IOException {
+		watchConfiguration(file, null);
+	}
+
+	/**
+	 * Watches a xml configuration file and reloads it whenever it changes. <br />
+	 * 
+	 * See {@link #watchConfiguration(File)}
+	 * 
+	 * @param file    xml file to watch
+	 * @param onError called on the background thread with the exception if the
+	 *                file could not be loaded, or null to ignore these
+	 * @throws IOException if the file could not be watched
+	 */
+	public void watchConfiguration(File file, Consumer<Exception> onError) throws IOException {
+		stopWatching();
+		watcher = new ConfigurationWatcher<T>(file, config.getActionRegistry(), pending::set, onError, data -> {
+			ConfigurationSaver s = lastSaver;
+			return s != null && s.wrote(data);
+		});
+	}
+
+	/**
+	 * Stops watching the configuration file (see
+	 * {@link #watchConfiguration(File)}) and discards a loaded configuration that
+	 * has not been used yet.
+	 * 
+	 * @throws IOException if closing the watcher failed
+	 */
+	public void stopWatching() throws IOException {
+		ConfigurationWatcher<T> w = watcher;
+		watcher = null;
+		try {
+			if (w != null)
+				w.close();
+		} finally {
+			pending.set(null);
+		}
+	}
+
+	/**
+	 * Checks if the configuration file is watched (see
+	 * {@link #watchConfiguration(File)}).
+	 * 
+	 * @return true if watching, false otherwise
+	 */
+	public boolean isWatching() {
+		return watcher != null;
+	}
+
+	/**
+	 * Saves the configuration to a xml file on a background thread whenever it
+	 * changes, once it has not changed for 500 milliseconds.
+	 * 
+	 * @param file xml file to save to
+	 */
+	public void enableAutoSave(File file) {
+		enableAutoSave(file, ConfigurationSaver.DELAY_MILLIS, TimeUnit.MILLISECONDS, null);
+	}
+
+	/**
+	 * Saves the configuration to a xml file on a background thread whenever it
+	 * changes. <br />
+	 * 
+	 * Changes are saved once the configuration has not changed for the given
+	 * delay, so a burst of changes (like rebinding several inputs with
+	 * {@link #setInput(int, Object, short)}) is written once. Only the players and
+	 * {@link InputSource}s that changed since the last save are serialized again,
+	 * and the file is replaced atomically, so it is never left half-written.
+	 * Configurations loaded by {@link #watchConfiguration(File)} are saved with
+	 * their next change.
+	 * 
+	 * @param file    xml file to save to
+	 * @param delay   time without changes after which the configuration is saved
+	 * @param unit    {@link TimeUnit} of the delay
+	 * @param onError called on the background thread with the exception if
+	 *                saving failed, or null to ignore errors
+	 */
+	public void enableAutoSave(File file, long delay, TimeUnit unit, Consumer<Exception> onError) {
+		disableAutoSave();
+		saver = lastSaver = new ConfigurationSaver(config, file, unit.toNanos(delay), onError);
+	}
+
+	/**
+	 * Stops saving the configuration automatically (see
+	 * {@link #enableAutoSave(File)}). Changes that have not been saved yet are
+	 * saved before this returns.
+	 */
+	public void disableAutoSave() {
+		ConfigurationSaver s = saver;
+		saver = null;
+		if (s != null)
+			s.close();
+	}
+
+	/**
+	 * Checks if the configuration is saved automatically (see
+	 * {@link #enableAutoSave(File)}).
+	 * 
+	 * @return true if saving automatically, false otherwise
+	 */
+	public boolean isAutoSaving() {
+		return saver != null;
+	}
+
+	/**
+	 * Enables measuring the calls of every {@link InputSource}, see
+	 * {@link SourceMetrics}. <br />
+	 * 
+	 * While metrics are disabled, {@link #update()} only checks that they are.
+	 */
+	public void enableMetrics() {
+		if (metricsByIdentifier == null)
+			metricsByIdentifier = new LinkedHashMap<T, SourceMetrics>();
+		updateMetrics();
+	}
+
+	/**
+	 * Disables measuring the calls of the {@link InputSource}s, unregisters their
+	 * {@link SourceMetrics} from JMX and discards them.
+	 */
+	public void disableMetrics() {
+		unregisterMetrics();
+		metricsByIdentifier = null;
+		metrics = null;
+	}
+
+	/**
+	 * Checks if the calls of the {@link InputSource}s are measured.
+	 * 
+	 * @return true if metrics are enabled, false otherwise
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsByIdentifier != null;
+	}
+
+	/**
+	 * Gets the {@link SourceMetrics} of an {@link InputSource}.
+	 * 
+	 * @param identifier identifier of the {@link InputSource}
+	 * @return the {@link SourceMetrics} of the {@link InputSource}, or null if
+	 *         metrics are disabled or there is no such {@link InputSource}
+	 */
+	public SourceMetrics getMetrics(T identifier) {
+		return metricsByIdentifier == null ? null : metricsByIdentifier.get(identifier);
+	}
+
+	/**
+	 * Gets the {@link SourceMetrics} of all {@link InputSource}s.
+	 * 
+	 * @return identifier of {@link InputSource} -&gt; its {@link SourceMetrics},
+	 *         which is empty if metrics are disabled
+	 */
+	public Map<T, SourceMetrics> getMetrics() {
+		return metricsByIdentifier == null ? Collections.<T, SourceMetrics>emptyMap()
+				: Collections.unmodifiableMap(metricsByIdentifier);
+	}
+
+	/**
+	 * Enables metrics (see {@link #enableMetrics()}) and registers the
+	 * {@link SourceMetrics} of every {@link InputSource} with the platform
+	 * MBeanServer. {@link InputSource}s added later are registered as well. <br />
+	 * 
+	 * The MBeans are named
+	 * {@code tv.floeze.Input4J:type=InputSource,instance="name",name="identifier"},
+	 * so multiple {@link Input4J}s can be registered with different names.
+	 * 
+	 * @param name name of this {@link Input4J}
+	 * @throws JMException if registering failed, e.g. because the name is taken
+	 */
+	public void registerMetrics(String name) throws JMException {
+		unregisterMetrics();
+		enableMetrics();
+		metricsName = name;
+		try {
+			for (Map.Entry<T, SourceMetrics> e : metricsByIdentifier.entrySet())
+				registerMetrics(e.getKey(), e.getValue());
+		} catch (JMException e) {
+			unregisterMetrics();
+			throw e;
+		}
+	}
+
+	/**
+	 * Unregisters the {@link SourceMetrics} from the platform MBeanServer, if
+	 * registered. Metrics stay enabled.
+	 */
+	public void unregisterMetrics() {
+		String name = metricsName;
+		if (name == null)
+			return;
+		metricsName = null;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (T identifier : metricsByIdentifier.keySet()) {
+			try {
+				ObjectName o = metricsName(name, identifier);
+				if (server.isRegistered(o))
+					server.unregisterMBean(o);
+			} catch (JMException e) {
+				// already gone
+			}
+		}
+	}
+
+	/**
+	 * Creates the missing {@link SourceMetrics} and brings {@link #metrics} in the
+	 * order of {@link #sources}.
+	 */
+	private void updateMetrics() {
+		InputSource[] s = sources;
+		SourceMetrics[] m = new SourceMetrics[s.length];
+		int i = 0;
+		for (T identifier : inputSources.keySet()) {
+			SourceMetrics sm = metricsByIdentifier.get(identifier);
+			if (sm == null) {
+				metricsByIdentifier.put(identifier, sm = new SourceMetrics());
+				if (metricsName != null) {
+					try {
+						registerMetrics(identifier, sm);
+					} catch (JMException e) {
+						throw new IllegalStateException("Could not register metrics of " + identifier, e);
+					}
+				}
+			}
+			m[i++] = sm;
+		}
+		metrics = m;
+	}
+
+	/**
+	 * Registers {@link SourceMetrics} with the platform MBeanServer.
+	 * 
+	 * @param identifier identifier of the {@link InputSource}
+	 * @param m          {@link SourceMetrics} of the {@link InputSource}
+	 * @throws JMException if registering failed
+	 */
+	private void registerMetrics(T identifier, SourceMetrics m) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(m, metricsName(metricsName, identifier));
+	}
+
+	/**
+	 * Creates the {@link ObjectName} of the {@link SourceMetrics} of an
+	 * {@link InputSource}.
+	 * 
+	 * @param name       name of this {@link Input4J}
+	 * @param identifier identifier of the {@link InputSource}
+	 * @return the {@link ObjectName}
+	 * @throws MalformedObjectNameException never, the values are quoted
+	 */
+	private static ObjectName metricsName(String name, Object identifier) throws MalformedObjectNameException {
+		return new ObjectName("tv.floeze.Input4J:type=InputSource,instance=" + ObjectName.quote(name) + ",name="
+				+ ObjectName.quote(String.valueOf(identifier)));
+	}
+
+	/**
+	 * Gets the {@link InputEdges} between the latest two frames. <br />
+	 * 
+	 * Edges are only computed by {@link #update()} after this has been called
+	 * once, so the first {@link #update()} afterwards reports every pressed input
+	 * as just pressed.
+	 * 
+	 * @return the {@link InputEdges} of this {@link Input4J}
+	 */
+	public InputEdges<T> getEdges() {
+		if (edges == null)
+			edges = new InputEdges<T>(config.getActionRegistry());
+		return edges;
+	}
+
+	/**
+	 * Subscribes an {@link InputListener} to every change of an input.
+	 * 
+	 * See {@link #subscribeById(int, int, short, InputListener)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @param listener   {@link InputListener} to call
+	 * @return an {@link InputSubscription} to cancel the subscription with
+	 */
+	public InputSubscription<T> subscribe(int player, T identifier, InputListener<T> listener) {
+		return subscribe(player, identifier, (short) 0, listener);
+	}
+
+	/**
+	 * Subscribes an {@link InputListener} to an input.
+	 * 
+	 * See {@link #subscribeById(int, int, short, InputListener)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @param threshold  threshold of the absolute value, or 0 to be called on
+	 *                   every change
+	 * @param listener   {@link InputListener} to call
+	 * @return an {@link InputSubscription} to cancel the subscription with
+	 */
+	public InputSubscription<T> subscribe(int player, T identifier, short threshold, InputListener<T> listener) {
+		return subscribeById(player, config.getActionRegistry().register(identifier), threshold, listener);
+	}
+
+	/**
+	 * Subscribes an {@link InputListener} to an input. <br />
+	 * 
+	 * After every {@link #update()}, the listener is called if the input changed
+	 * since the previous {@link #update()}. With a threshold, the listener is
+	 * only called when the absolute value of the input reaches the threshold or
+	 * falls below it, which can be used to treat an analog input as a button.
+	 * <br />
+	 * 
+	 * Listeners are called on the thread calling {@link #update()}, ordered by
+	 * player, then identifier, then order of subscription. {@link #update()} only
+	 * compares the subscribed inputs that were set in the frame or in the one
+	 * before and only calls the listeners of inputs that changed, so idle inputs
+	 * cost nothing, no matter how many listeners they have.
+	 * 
+	 * @param player    player of input
+	 * @param action    id of the identifier of input (see {@link ActionRegistry})
+	 * @param threshold threshold of the absolute value, or 0 to be called on every
+	 *                  change
+	 * @param listener  {@link InputListener} to call
+	 * @return an {@link InputSubscription} to cancel the subscription with
+	 */
+	public InputSubscription<T> subscribeById(int player, int action, short threshold, InputListener<T> listener) {
+		Objects.requireNonNull(listener, "listener");
+		if (listeners == null)
+			listeners = new ListenerDispatcher<T>(config.getActionRegistry());
+		return listeners.add(player, action, threshold, listener);
+	}
+
+	/**
+	 * Checks if an input was pressed by the latest {@link #update()} but not by
+	 * the one before.
+	 * 
+	 * See {@link InputEdges#isJustPressed(int, Object)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @return true if just pressed, false otherwise
+	 */
+	public boolean isJustPressed(int player, T identifier) {
+		return getEdges().isJustPressed(player, identifier);
+	}
+
+	/**
+	 * Checks if an input was pressed by the {@link #update()} before the latest
+	 * but not by the latest.
+	 * 
+	 * See {@link InputEdges#isJustReleased(int, Object)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @return true if just released, false otherwise
+	 */
+	public boolean isJustReleased(int player, T identifier) {
+		return getEdges().isJustReleased(player, identifier);
+	}
+
+	/**
+	 * Gets an {@link InputSnapshot} of the latest frame. <br />
+	 * 
+	 * While {@link #update()} and the {@link InputMap}s it returns must only be
+	 * used by one thread, the {@link InputSnapshot} can be read from any number of
+	 * threads (like render, physics or AI threads) at the same time without
+	 * locking. Every call of {@link #update()} publishes its frame to it.
+	 * 
+	 * The {@link InputSnapshot} is created on the first call and stays the same
+	 * afterwards; it is empty until the next call of {@link #update()}.
+	 * 
+	 * @return the {@link InputSnapshot} of this {@link Input4J}
+	 */
+	public InputSnapshot<T> getSnapshot() {
+		InputSnapshot<T> s = snapshot;
+		if (s == null) {
+			synchronized (this) {
+				s = snapshot;
+				if (s == null)
+					snapshot = s = new InputSnapshot<T>(config.getActionRegistry());
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Updates all {@link InputSource}s and stores their inputs in an
+	 * {@link InputMap}.
+	 * 
+	 * @param map {@link InputMap} to store inputs in
+	 */
+	private void updateSources(InputMap<T> map) {
+		InputSource[] s = sources;
+		SourceMetrics[] m = metrics;
+		if (shards == 0 || !(map instanceof DenseInputMap)) {
+			updateSources(map, s, m);
+			return;
+		}
+		ShardedUpdater<T> sh = sharder;
+		if (sh == null || !sh.isFor(shardExecutor, shards, s))
+			sharder = sh = new ShardedUpdater<T>(shardExecutor, shards, s);
+		updateSources(map, sh.others(), sh.otherMetrics(m));
+		sh.update((DenseInputMap<T>) map, config, m);
+	}
+
+	/**
+	 * Updates {@link InputSource}s one after another, or on the {@link #executor}
+	 * if parallel polling is enabled, and stores their inputs in an
+	 * {@link InputMap}.
+	 * 
+	 * @param map {@link InputMap} to store inputs in
+	 * @param s   {@link InputSource}s to update
+	 * @param m   {@link SourceMetrics} of the {@link InputSource}s, or null
+	 */
+	private void updateSources(InputMap<T> map, InputSource[] s, SourceMetrics[] m) {
+		Executor e = executor;
+		if (e == null || s.length < 2) {
+			for (int i = 0; i < s.length; i++) {
+				Object event = Events.beginPoll();
+				if (m == null) {
+					s[i].update(map, config);
+				} else {
+					long start = System.nanoTime();
+					s[i].update(map, config);
+					m[i].record(SourceMetrics.Operation.UPDATE, System.nanoTime() - start);
+				}
+				Events.endPoll(event, s[i]);
+			}
+			return;
+		}
+		DenseInputMap<T>[] b = buffers;
+		ParallelPoller<T> p = poller;
+		if (p == null || !p.isFor(e, s, b != null)) {
+			p = b == null ? new ParallelPoller<T>(e, s, null, 0)
+					: new ParallelPoller<T>(e, s, config.getActionRegistry(), b[0].players());
+			poller = p;
+		}
+		p.update(map, config, m);
+	}
+
+	/**
+	 * Enables parallel polling on the {@link ForkJoinPool#commonPool()}.
+	 * 
+	 * See {@link #enableParallelPolling(Executor)}.
+	 */
+	public void enableParallelPolling() {
+		enableParallelPolling(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Enables parallel polling. <br />
+	 * 
+	 * {@link #update()} then updates all {@link InputSource}s at the same time on
+	 * an {@link Executor}, so one slow {@link InputSource} doesn't delay all
+	 * others. Each {@link InputSource} writes into its own {@link InputMap} and
+	 * these are merged in the order the {@link InputSource}s were added, using the
+	 * same rule as {@link InputMap#set(int, Object, short)}. The result is the same
+	 * as without parallel polling, no matter in which order the
+	 * {@link InputSource}s finish. <br />
+	 * 
+	 * The {@link InputSource}s have to read their configuration using
+	 * {@link InputConfiguration#getBindings(Class)} (or
+	 * {@link InputConfiguration#getBindings(SourceConfiguration)}), because
+	 * {@link InputConfiguration#getConfiguration(int, Class)} is not safe to call
+	 * from multiple threads. With double buffering (see
+	 * {@link #enableDoubleBuffering(int)}), the {@link InputMap}s of the
+	 * {@link InputSource}s are reused as well, so only the {@link Executor} may
+	 * allocate when scheduling the updates.
+	 * 
+	 * @param executor {@link Executor} to update {@link InputSource}s on
+	 */
+	public void enableParallelPolling(Executor executor) {
+		this.executor = Objects.requireNonNull(executor, "executor");
+	}
+
+	/**
+	 * Disables parallel polling. {@link #update()} will update the
+	 * {@link InputSource}s one after another again.
+	 * 
+	 * See {@link #enableParallelPolling(Executor)}.
+	 */
+	public void disableParallelPolling() {
+		executor = null;
+		poller = null;
+	}
+
+	/**
+	 * Enables sharding on the {@link ForkJoinPool#commonPool()}.
+	 * 
+	 * See {@link #enableSharding(int, Executor)}.
+	 * 
+	 * @param shards maximum number of shards to split the players into
+	 */
+	public void enableSharding(int shards) {
+		enableSharding(shards, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Enables sharding: the players of every {@link ShardableInputSource} are
+	 * split into up to {@code shards} ranges, which are updated at the same time
+	 * on an {@link Executor} (see
+	 * {@link ShardableInputSource#updateShard(InputMap, InputConfiguration, int, int)}).
+	 * The updating thread updates one shard itself. <br />
+	 * 
+	 * The shards write directly into the {@link InputMap} of the frame, so this
+	 * requires double buffering (see {@link #enableDoubleBuffering(int)}).
+	 * Without it, all {@link InputSource}s are updated as before. Other
+	 * {@link InputSource}s are updated first, in parallel if parallel polling is
+	 * enabled. <br />
+	 * 
+	 * The {@link ShardableInputSource}s are updated one after another, so this is
+	 * best for few sources with many players.
+	 * 
+	 * @param shards   maximum number of shards to split the players into
+	 * @param executor {@link Executor} to update shards on
+	 */
+	public void enableSharding(int shards, Executor executor) {
+		if (shards < 1)
+			throw new IllegalArgumentException("Number of shards must be positive: " + shards);
+		this.shardExecutor = Objects.requireNonNull(executor, "executor");
+		this.shards = shards;
+		sharder = null;
+	}
+
+	/**
+	 * Disables sharding.
+	 * 
+	 * See {@link #enableSharding(int, Executor)}.
+	 */
+	public void disableSharding() {
+		shards = 0;
+		shardExecutor = null;
+		sharder = null;
+	}
+
+	/**
+	 * Checks if sharding is enabled.
+	 * 
+	 * See {@link #enableSharding(int, Executor)}.
+	 * 
+	 * @return true if enabled, false otherwise
+	 */
+	public boolean isSharded() {
+		return shards != 0;
+	}
+
+	/**
+	 * Enables double buffering. <br />
+	 * 
+	 * Instead of creating a new {@link InputMap} on every call, {@link #update()}
+	 * then alternates between two {@link DenseInputMap}s that are cleared and
+	 * reused, and returns a read-only view of the one it just filled. An
+	 * {@link InputMap} returned by {@link #update()} therefore stays valid until
+	 * the second call of {@link #update()} after it. <br />
+	 * 
+	 * <b>Guarantee</b>: once the maps do not have to grow anymore (every player
+	 * and identifier has been set at least once, or was known to the
+	 * {@link ActionRegistry} when enabling), {@link #update()} does not allocate,
+	 * as long as the {@link InputSource}s don't allocate either.
+	 * 
+	 * @param players expected number of players
+	 */
+	@SuppressWarnings("unchecked")
+	public void enableDoubleBuffering(int players) {
+		ActionRegistry<T> registry = config.getActionRegistry();
+		DenseInputMap<T>[] b = (DenseInputMap<T>[]) new DenseInputMap<?>[] {
+				new DenseInputMap<T>(registry, players), new DenseInputMap<T>(registry, players) };
+		views = (InputMap<T>[]) new InputMap<?>[] { new ReadOnlyInputMap<T>(b[0]),
+				new ReadOnlyInputMap<T>(b[1]) };
+		buffers = b;
+		back = 0;
+		poller = null;
+	}
+
+	/**
+	 * Disables double buffering. {@link #update()} will return a new
+	 * {@link InputMap} on every call again.
+	 * 
+	 * See {@link #enableDoubleBuffering(int)}.
+	 */
+	public void disableDoubleBuffering() {
+		buffers = null;
+		views = null;
+		poller = null;
+	}
+
+	/**
+	 * Checks if double buffering is enabled.
+	 * 
+	 * See {@link #enableDoubleBuffering(int)}.
+	 * 
+	 * @return true if enabled, false otherwise
+	 */
+	public boolean isDoubleBuffered() {
+		return buffers != null;
+	}
+
+	/**
+	 * Starts polling the {@link InputSource}s at a fixed rate on a background
+	 * platform thread.
+	 * 
+	 * See {@link #startPolling(long, TimeUnit, boolean, Consumer)}.
+	 * 
+	 * @param period time between two polls, for example 1 millisecond for 1 kHz
+	 * @param unit   {@link TimeUnit} of period
+	 */
+	public void startPolling(long period, TimeUnit unit) {
+		startPolling(period, unit, false, null);
+	}
+
+	/**
+	 * Starts polling the {@link InputSource}s at a fixed rate on a background
+	 * thread. Polling that is already in progress is stopped first. <br />
+	 * 
+	 * Every period, the background thread updates this {@link Input4J} like
+	 * {@link #update()} does, so inputs are read independent of the frame rate of
+	 * the application and a stalled frame does not delay them. Every frame is
+	 * published to the {@link #getSnapshot()} and the {@link InputListener}s are
+	 * called on the background thread. {@link #takePolled(InputMap)} returns all
+	 * frames polled since it was last called, merged into one. <br />
+	 * 
+	 * While polling, {@link #update()} throws an {@link IllegalStateException}.
+	 * The background thread is the one thread using this {@link Input4J}, so other
+	 * methods changing it must only be called from it (for example from an
+	 * {@link InputListener}) or after {@link #stopPolling()}. Only
+	 * {@link #getSnapshot()}, {@link #takePolled(InputMap)},
+	 * {@link #getMissedPolls()}, {@link #isPolling()} and {@link #stopPolling()}
+	 * may be called from any thread.
+	 * 
+	 * @param period  time between two polls, for example 1 millisecond for 1 kHz
+	 * @param unit    {@link TimeUnit} of period
+	 * @param virtual true to poll on a virtual thread if the JVM supports them
+	 *                (Java 21 and later), false to poll on a platform thread
+	 * @param onError called on the background thread with the exception if a poll
+	 *                failed, or null to ignore errors. Polling continues with the
+	 *                next period.
+	 * @throws IllegalArgumentException if the period is not positive
+	 */
+	public void startPolling(long period, TimeUnit unit, boolean virtual, Consumer<Exception> onError) {
+		long nanos = unit.toNanos(period);
+		if (nanos <= 0)
+			throw new IllegalArgumentException("Period must be positive: " + period + " " + unit);
+		stopPolling();
+		getSnapshot();
+		background = new BackgroundPoller<T>(this::poll, config.getActionRegistry(), nanos, virtual, onError);
+	}
+
+	/**
+	 * Stops polling in the background (see {@link #startPolling(long, TimeUnit)})
+	 * and waits for a poll in progress to finish. Afterwards, this
+	 * {@link Input4J} is updated by {@link #update()} again.
+	 */
+	public void stopPolling() {
+		BackgroundPoller<T> b = background;
+		background = null;
+		if (b != null)
+			b.stop();
+	}
+
+	/**
+	 * Checks if this {@link Input4J} is polled in the background (see
+	 * {@link #startPolling(long, TimeUnit)}).
+	 * 
+	 * @return true if polled in the background, false otherwise
+	 */
+	public boolean isPolling() {
+		return background != null;
+	}
+
+	/**
+	 * Replaces the inputs of an {@link InputMap} with the frames polled in the
+	 * background since the last call, merged into one. Every input has the
+	 * largest absolute value it had in any of these frames, so inputs shorter than
+	 * a frame of the application are not lost. <br />
+	 * 
+	 * This does not allocate if the {@link InputMap} is a {@link DenseInputMap}
+	 * that already has the size of the frames.
+	 * 
+	 * @param target {@link InputMap} to copy the inputs into
+	 * @return the number of frames merged, 0 if none were polled since the last
+	 *         call
+	 * @throws IllegalStateException if this {@link Input4J} is not polled in the
+	 *                               background
+	 */
+	public long takePolled(InputMap<T> target) {
+		BackgroundPoller<T> b = background;
+		if (b == null)
+			throw new IllegalStateException("Input4J is not polled in the background");
+		return b.take(target);
+	}
+
+	/**
+	 * Gets the number of polls that were skipped because polling in the
+	 * background fell behind, for example because polling took longer than the
+	 * period.
+	 * 
+	 * @return the number of skipped polls since polling was started, or 0 if not
+	 *         polling
+	 */
+	public long getMissedPolls() {
+		BackgroundPoller<T> b = background;
+		return b == null ? 0 : b.getMissed();
+	}
+
+	/**
+	 * Sets how the samples of an identifier reported during one update are
+	 * combined (see {@link InputMap#sampleById(int, int, short, long)}). Values
+	 * set directly (see {@link InputMap#set(int, Object, short)}) are not
+	 * affected.
+	 * 
+	 * @param identifier  identifier to set {@link Aggregation} of
+	 * @param aggregation {@link Aggregation} to use, or null for
+	 *                    {@link Aggregation#MAX_ABS}
+	 */
+	public void setAggregation(T identifier, Aggregation aggregation) {
+		int action = config.getActionRegistry().register(identifier);
+		if (action >= aggregations.length)
+			aggregations = Arrays.copyOf(aggregations, Math.max(action + 1, aggregations.length * 2));
+		aggregations[action] = aggregation == Aggregation.MAX_ABS ? null : aggregation;
+	}
+
+	/**
+	 * Gets how the samples of an identifier are combined.
+	 * 
+	 * See {@link #setAggregation(Object, Aggregation)}.
+	 * 
+	 * @param identifier identifier to get {@link Aggregation} of
+	 * @return the {@link Aggregation} of the identifier
+	 */
+	public Aggregation getAggregation(T identifier) {
+		int action = config.getActionRegistry().getId(identifier);
+		if (action < 0 || action >= aggregations.length || aggregations[action] == null)
+			return Aggregation.MAX_ABS;
+		return aggregations[action];
+	}
+
+	/**
+	 * Gets the number of samples reported during the latest {@link #update()}.
+	 * 
+	 * @return the number of samples
+	 */
+	public int getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Gets the timestamp of the earliest sample reported during the latest
+	 * {@link #update()}. Together with the time the frame is shown, this
+	 * measures the latency from input to frame.
+	 * 
+	 * @return the earliest timestamp (see {@link System#nanoTime()}), undefined
+	 *         if {@link #getSampleCount()} is 0
+	 */
+	public long getFirstSampleNanoTime() {
+		return firstSample;
+	}
+
+	/**
+	 * Gets the time between the earliest sample reported during the latest
+	 * {@link #update()} and the end of collecting the samples of that update.
+	 * 
+	 * @return the latency in nanoseconds, or 0 if {@link #getSampleCount()} is 0
+	 */
+	public long getSampleLatencyNanos() {
+		return sampleCount == 0 ? 0 : sampleLatency;
 	}
 
 	/**
 	 * See {@link InputSource#saveInputs()}.
 	 */
 	public void saveInputs() {
-		inputSources.forEach((sourceName, source) -> source.saveInputs());
+		inputSources.forEach(this::saveInputs);
 	}
 
 	/**
@@ -119,7 +1291,28 @@ public class Input4J<T> {
 				if (e.getKey().equals(i))
 					return true;
 			return false;
-		}).forEach((e) -> e.getValue().saveInputs());
+		}).forEach((e) -> saveInputs(e.getKey(), e.getValue()));
+	}
+
+	/**
+	 * Saves the inputs of an {@link InputSource} and measures it, if metrics are
+	 * enabled.
+	 * 
+	 * @param sourceIdentifier identifier of the {@link InputSource}
+	 * @param source           {@link InputSource} to save inputs of
+	 */
+	private void saveInputs(T sourceIdentifier, InputSource source) {
+		SourceMetrics m = metricsByIdentifier == null ? null : metricsByIdentifier.get(sourceIdentifier);
+		if (m == null) {
+			source.saveInputs();
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			source.saveInputs();
+		} finally {
+			m.record(SourceMetrics.Operation.SAVE_INPUTS, System.nanoTime() - start);
+		}
 	}
 
 	/**
@@ -127,34 +1320,72 @@ public class Input4J<T> {
 	 * See {@link InputSource#setInput(int, Object, short, InputConfiguration)}.
 	 */
 	public boolean setInput(int player, T identifier, short value) {
-		for (InputSource s : inputSources.values()) {
-			boolean r = s.setInput(player, identifier, value, config);
-			if (r)
+		for (Map.Entry<T, InputSource> e : inputSources.entrySet())
+			if (setInput(e.getKey(), e.getValue(), player, identifier, value))
 				return true;
-		}
 		return false;
 	}
 
+	/**
+	 * See {@link InputSource#setInput(int, Object, short, InputConfiguration)}.
+	 * 
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 */
+	public boolean setInputById(int player, int action, short value) {
+		return setInput(player, config.getActionRegistry().getAction(action), value);
+	}
+
 	/**
 	 * See {@link InputSource#setInput(int, Object, short, InputConfiguration)}.
 	 * 
 	 * @param identifiers identifiers of {@link InputSource}s to set inputs
 	 */
 	public boolean setInput(int player, T identifier, short value, @SuppressWarnings("unchecked") T... identifiers) {
-		InputSource[] is = inputSources.entrySet().stream().filter(e -> {
+		for (Map.Entry<T, InputSource> e : inputSources.entrySet())
 			for (T i : identifiers)
-				if (e.getKey().equals(i))
-					return true;
-			return false;
-		}).map(e -> e.getValue()).toArray(s -> new InputSource[s]);
-		for (InputSource s : is) {
-			boolean r = s.setInput(player, identifier, value, config);
-			if (r)
-				return true;
-		}
+				if (e.getKey().equals(i)) {
+					if (setInput(e.getKey(), e.getValue(), player, identifier, value))
+						return true;
+					break;
+				}
 		return false;
 	}
 
+	/**
+	 * Sets an input of an {@link InputSource}, compiles the
+	 * {@link InputConfiguration} if it changed and measures it, if metrics are
+	 * enabled.
+	 * 
+	 * @param sourceIdentifier identifier of the {@link InputSource}
+	 * @param source           {@link InputSource} to set input of
+	 * @param player           player to set input for
+	 * @param identifier       identifier of input
+	 * @param value            value of input
+	 * @return true if the {@link InputSource} set the input, false otherwise
+	 */
+	private boolean setInput(T sourceIdentifier, InputSource source, int player, T identifier, short value) {
+		SourceMetrics m = metricsByIdentifier == null ? null : metricsByIdentifier.get(sourceIdentifier);
+		Object event = Events.beginSetInput();
+		long start = m == null ? 0 : System.nanoTime();
+		InputConfiguration<T> c = config;
+		boolean r = false;
+		// sources may change the configuration directly, which must not race with saving it
+		synchronized (c) {
+			int version = c.version();
+			try {
+				r = source.setInput(player, identifier, value, c);
+			} finally {
+				if (m != null)
+					m.record(SourceMetrics.Operation.SET_INPUT, System.nanoTime() - start);
+				Events.endSetInput(event, source, player, identifier, value, r);
+			}
+			// sources not using InputConfiguration.addInput() changed the configuration directly
+			if (r && c.version() == version)
+				c.compile(player, source.getClass());
+		}
+		return r;
+	}
+
 	/**
 	 * Adds an {@link InputSource} using an {@link InputSourceBuilder}.
 	 * 
@@ -169,6 +1400,9 @@ public class Input4J<T> {
 				value.disable();
 			return builder.build();
 		});
+		sources = inputSources.values().toArray(new InputSource[inputSources.size()]);
+		if (metricsByIdentifier != null)
+			updateMetrics();
 	}
 
 	/**
@@ -248,6 +1482,26 @@ public class Input4J<T> {
 		config.clearInput(player, identifier);
 	}
 
+	/**
+	 * See {@link InputConfiguration#clearInput(int, Object)}
+	 * 
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 */
+	public void clearInputById(int player, int action) {
+		config.clearInput(player, config.getActionRegistry().getAction(action));
+	}
+
+	/**
+	 * Gets the {@link ActionRegistry} assigning ids to the identifiers of inputs.
+	 * 
+	 * See {@link InputConfiguration#getActionRegistry()}
+	 * 
+	 * @return the {@link ActionRegistry} of the {@link InputConfiguration}
+	 */
+	public ActionRegistry<T> getActionRegistry() {
+		return config.getActionRegistry();
+	}
+
 	/**
 	 * See {@link InputConfiguration#clean()}
 	 */
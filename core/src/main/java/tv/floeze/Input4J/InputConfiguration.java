@@ -4,23 +4,34 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.annotation.JsonRootName;
-import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
-import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
 
 /**
@@ -33,29 +44,152 @@ import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
  */
 public class InputConfiguration<T> {
 
+	/**
+	 * Shared {@link XmlMapper}. It is thread-safe once configured, and creating
+	 * one is expensive.
+	 */
+	private static final XmlMapper MAPPER = new XmlMapper();
+
+	/**
+	 * Preconfigured reader for {@link ConfigPOJO}s
+	 */
+	private static final ObjectReader READER = MAPPER.readerFor(ConfigPOJO.class);
+
+	/**
+	 * Preconfigured writers for the sections of the xml (see {@link #xml()})
+	 */
+	private static final ObjectWriter PLAYER_WRITER = writer(PlayerPOJO.class, "player");
+
+	private static final ObjectWriter SOURCE_WRITER = writer(InputSourcePOJO.class, "configs");
+
+	private static final ObjectWriter COMBO_WRITER = writer(ComboPOJO.class, "combo");
+
+	/**
+	 * Start of the xml
+	 */
+	private static final String XML_START = "<?xml version='1.1' encoding='UTF-8'?>\n<InputConfiguration>\n";
+
+	/**
+	 * End of the xml
+	 */
+	private static final String XML_END = "</InputConfiguration>\n";
+
+	/**
+	 * xml of the {@link Combo}s if there are none
+	 */
+	private static final String NO_COMBOS = "  <combo/>\n";
+
+	/**
+	 * class name -> resolved class, so every stored class name is only looked up
+	 * once
+	 */
+	private static final ConcurrentHashMap<String, Class<?>> CLASSES = new ConcurrentHashMap<String, Class<?>>();
+
 	/**
 	 * player, {@link InputSource}, identifier -> {@link SourceConfiguration}s
 	 */
 	private final Map<Integer, Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>>> config;
 
+	/**
+	 * identifier <-> id
+	 */
+	private final ActionRegistry<T> registry;
+
+	/**
+	 * {@link InputSource} -> compiled {@link BindingTable}. Replaced (never
+	 * changed) by {@link #compile()}.
+	 */
+	private volatile Map<Class<? extends InputSource>, BindingTable<T>> tables;
+
+	/**
+	 * {@link SourceConfiguration} -> {@link BindingTable} of all players and
+	 * identifiers bound to it. Kept up to date incrementally; only replaced by
+	 * {@link #compile()}.
+	 */
+	private volatile ConcurrentHashMap<SourceConfiguration, BindingTable<T>> reverse;
+
+	/**
+	 * Incremented whenever the {@link BindingTable}s are compiled
+	 */
+	private volatile int version;
+
+	/**
+	 * One more than the highest player in the {@link BindingTable}s
+	 */
+	private volatile int players;
+
+	/**
+	 * The {@link Combo}s. Replaced (never changed) whenever a {@link Combo} is
+	 * added or removed.
+	 */
+	private volatile List<Combo<T>> combos = Collections.emptyList();
+
+	/**
+	 * player, {@link InputSource} -> xml of its {@code configs} element,
+	 * indented. Sections changed since they were last written are missing.
+	 */
+	private final Map<Integer, Map<Class<? extends InputSource>, String>> fragments = new HashMap<Integer, Map<Class<? extends InputSource>, String>>();
+
+	/**
+	 * player -> {@link InputSource}s whose map was returned by
+	 * {@link #getConfiguration(int, Class)}. The caller may change these maps at
+	 * any time, so their xml is not cached until they are compiled again.
+	 */
+	private final Map<Integer, Set<Class<? extends InputSource>>> open = new HashMap<Integer, Set<Class<? extends InputSource>>>();
+
+	/**
+	 * xml of the {@link Combo}s, or null if they changed since they were last
+	 * written
+	 */
+	private String comboFragment;
+
+	/**
+	 * Length of the xml last written, to size the next one
+	 */
+	private int xmlLength;
+
+	/**
+	 * Incremented whenever the configuration changes
+	 */
+	private volatile long modifications;
+
+	/**
+	 * Called after every change of the configuration, or null
+	 */
+	private volatile Runnable changeListener;
+
 	/**
 	 * Creates a new empty {@link InputConfiguration}
 	 */
 	public InputConfiguration() {
+		this(new HashActionRegistry<T>());
+	}
+
+	/**
+	 * Creates a new empty {@link InputConfiguration} that assigns ids to its
+	 * identifiers using an {@link ActionRegistry}.
+	 * 
+	 * @param registry {@link ActionRegistry} to assign ids with
+	 */
+	public InputConfiguration(ActionRegistry<T> registry) {
 		config = new HashMap<Integer, Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>>>();
+		this.registry = registry;
+		this.tables = Collections.emptyMap();
+		this.reverse = new ConcurrentHashMap<SourceConfiguration, BindingTable<T>>();
 	}
 
 	/**
 	 * Creates a new {@link InputConfiguration} and fills it with data from the
 	 * provided {@link ConfigPOJO}.
 	 * 
-	 * @param source {@link ConfigPOJO} to load data from
+	 * @param source   {@link ConfigPOJO} to load data from
+	 * @param registry {@link ActionRegistry} to assign ids with
 	 * @throws ClassNotFoundException When the stored class of an
 	 *                                {@link InputSource} could not be found
 	 */
 	@SuppressWarnings("unchecked")
-	private InputConfiguration(ConfigPOJO source) throws ClassNotFoundException {
-		this();
+	private InputConfiguration(ConfigPOJO source, ActionRegistry<T> registry) throws ClassNotFoundException {
+		this(registry);
 		if (source.players == null)
 			return;
 		for (PlayerPOJO p : source.players) {
@@ -69,12 +203,29 @@ public class InputConfiguration<T> {
 				for (SourceConfigPOJO<?> s : i.sourceConfigs) {
 					if (s.key == null || s.configs == null)
 						continue;
+					registry.register((T) s.key);
 					imap.put((T) s.key, new ArrayList<SourceConfiguration>(Arrays.asList(s.configs)));
 				}
-				pmap.put((Class<? extends InputSource>) Class.forName(i.className), imap);
+				pmap.put((Class<? extends InputSource>) resolve(i.className), imap);
 			}
 			config.put(p.num, pmap);
 		}
+		if (source.combos != null) {
+			List<Combo<T>> l = new ArrayList<Combo<T>>();
+			for (ComboPOJO c : source.combos) {
+				if (c.type == null || c.action == null || c.action.key == null || c.inputs == null)
+					continue;
+				List<T> inputs = new ArrayList<T>();
+				for (IdentifierPOJO<?> i : c.inputs)
+					if (i.key != null)
+						inputs.add((T) i.key);
+				Combo<T> combo = new Combo<T>(c.type, (T) c.action.key, inputs, c.window, c.value);
+				register(combo);
+				l.add(combo);
+			}
+			combos = Collections.unmodifiableList(l);
+		}
+		compile();
 	}
 
 	/**
@@ -82,32 +233,350 @@ public class InputConfiguration<T> {
 	 * InputSource.
 	 * 
 	 * This can be used to read <b>and write</b> data from/to this
-	 * {@link InputConfiguration}.
+	 * {@link InputConfiguration}. When reading inputs on every update, use
+	 * {@link #getBindings(Class)} instead. Changes made to the returned map are
+	 * only visible in {@link #getBindings(Class)} after the next
+	 * {@link #compile()}, which {@link Input4J#setInput(int, Object, short)} does
+	 * automatically. Saving always includes the current content of the returned
+	 * map. <br />
+	 * 
+	 * The returned map is not thread safe. Change it only while holding the lock
+	 * of this {@link InputConfiguration} and call {@link #compile()} afterwards
+	 * (like {@link Input4J#setInput(int, Object, short)} does), so the change is
+	 * not serialized concurrently and saved by
+	 * {@link Input4J#enableAutoSave(File)}. Otherwise use
+	 * {@link #addInput(int, Class, Object, SourceConfiguration)} and
+	 * {@link #clearInput(int, Object)} instead.
 	 * 
 	 * @param player player to get configuration for. If player doesn't exist yet, a
 	 *               new player with that number is created.
 	 * @param type   Class calling the method (to retrieve <b>its</b> stored values)
 	 * @return a map storing the configuration for a player
 	 */
-	public Map<T, List<SourceConfiguration>> getConfiguration(int player, Class<? extends InputSource> type) {
+	public synchronized Map<T, List<SourceConfiguration>> getConfiguration(int player,
+			Class<? extends InputSource> type) {
+		open(player, type);
+		return section(player, type);
+	}
+
+	/**
+	 * Marks the configuration of a player and an {@link InputSource} as given
+	 * out for changing, so it is serialized again until it is compiled.
+	 * 
+	 * @param player player of the configuration
+	 * @param type   Class of {@link InputSource}
+	 */
+	private void open(int player, Class<? extends InputSource> type) {
+		open.computeIfAbsent(player, k -> new HashSet<Class<? extends InputSource>>()).add(type);
+		Map<Class<? extends InputSource>, String> cached = fragments.get(player);
+		if (cached != null)
+			cached.remove(type);
+	}
+
+	/**
+	 * Gets the map storing the configuration for a player and an
+	 * {@link InputSource}, without marking it as changed by the caller (see
+	 * {@link #getConfiguration(int, Class)}).
+	 * 
+	 * @param player player to get configuration for
+	 * @param type   Class of {@link InputSource}
+	 * @return a map storing the configuration for a player
+	 */
+	private Map<T, List<SourceConfiguration>> section(int player, Class<? extends InputSource> type) {
 		return config
 				.computeIfAbsent(player,
 						c -> new HashMap<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>>())
 				.computeIfAbsent(type, c -> new HashMap<T, List<SourceConfiguration>>());
 	}
 
+	/**
+	 * Gets the compiled {@link BindingTable} of an {@link InputSource}. <br />
+	 * 
+	 * This is the fastest way to read the configuration: it does not hash
+	 * anything but the class, does not allocate and is safe from any thread.
+	 * 
+	 * @param type Class calling the method (to retrieve <b>its</b> stored values)
+	 * @return the {@link BindingTable} of the class, which is empty if nothing is
+	 *         configured for it
+	 */
+	public BindingTable<T> getBindings(Class<? extends InputSource> type) {
+		BindingTable<T> t = tables.get(type);
+		return t == null ? BindingTable.<T>empty() : t;
+	}
+
+	/**
+	 * Gets all players and identifiers bound to a {@link SourceConfiguration},
+	 * no matter which {@link InputSource} they are configured for. <br />
+	 * 
+	 * This lets an {@link InputSource} that receives raw events (like a key code)
+	 * find the matching inputs in constant time, instead of scanning the
+	 * configuration of every player. The lookup uses
+	 * {@link SourceConfiguration#equals(Object)} and
+	 * {@link SourceConfiguration#hashCode()}, so a source can reuse one mutable
+	 * {@link SourceConfiguration} as lookup key to avoid allocating. <br />
+	 * 
+	 * Like {@link #getBindings(Class)}, this does not allocate and is safe from
+	 * any thread.
+	 * 
+	 * @param input {@link SourceConfiguration} to get bindings for
+	 * @return a {@link BindingTable} of every player and identifier bound to the
+	 *         {@link SourceConfiguration}, which is empty if there are none
+	 */
+	public BindingTable<T> getBindings(SourceConfiguration input) {
+		BindingTable<T> t = reverse.get(input);
+		return t == null ? BindingTable.<T>empty() : t;
+	}
+
+	/**
+	 * Compiles the configuration into the {@link BindingTable}s returned by
+	 * {@link #getBindings(Class)} and {@link #getBindings(SourceConfiguration)}
+	 * and registers all identifiers with the {@link ActionRegistry}. <br />
+	 * 
+	 * This is done automatically by every method of {@link InputConfiguration}
+	 * changing the configuration and by
+	 * {@link Input4J#setInput(int, Object, short)}. It only has to be called
+	 * manually after changing a map returned by
+	 * {@link #getConfiguration(int, Class)} in other places.
+	 */
+	public synchronized void compile() {
+		fragments.clear();
+		open.clear();
+		changed();
+		compileTables();
+		compileReverse();
+	}
+
+	/**
+	 * Compiles the configuration into the {@link BindingTable}s returned by
+	 * {@link #getBindings(SourceConfiguration)}.
+	 */
+	private void compileReverse() {
+		Map<SourceConfiguration, List<Binding<T>>> bindings = new HashMap<SourceConfiguration, List<Binding<T>>>();
+		tables.forEach((type, t) -> {
+			for (int i = 0; i < t.size(); i++)
+				bindings.computeIfAbsent(t.getConfiguration(i), k -> new ArrayList<Binding<T>>())
+						.add(new Binding<T>(t.getPlayer(i), t.getAction(i), t.getIdentifier(i), t.getConfiguration(i)));
+		});
+		ConcurrentHashMap<SourceConfiguration, BindingTable<T>> r = new ConcurrentHashMap<SourceConfiguration, BindingTable<T>>(
+				Math.max(16, bindings.size() * 2));
+		bindings.forEach((input, list) -> r.put(input, table(list, true)));
+		reverse = r;
+	}
+
+	/**
+	 * Compiles the configuration into the {@link BindingTable}s returned by
+	 * {@link #getBindings(Class)}.
+	 */
+	private void compileTables() {
+		Map<Class<? extends InputSource>, List<Binding<T>>> bindings = new HashMap<Class<? extends InputSource>, List<Binding<T>>>();
+		config.forEach((player, classMaps) -> classMaps.forEach((type, map) -> map.forEach((name, list) -> {
+			int action = registry.register(name);
+			for (SourceConfiguration c : list)
+				bindings.computeIfAbsent(type, k -> new ArrayList<Binding<T>>())
+						.add(new Binding<T>(player, action, name, c));
+		})));
+		Map<Class<? extends InputSource>, BindingTable<T>> t = new HashMap<Class<? extends InputSource>, BindingTable<T>>();
+		bindings.forEach((type, list) -> t.put(type, table(list, false)));
+		int p = 0;
+		for (BindingTable<T> table : t.values())
+			if (table.size() > 0)
+				p = Math.max(p, table.getPlayer(table.size() - 1) + 1);
+		tables = t;
+		players = p;
+		version++;
+	}
+
+	/**
+	 * Sorts {@link Binding}s and builds a {@link BindingTable} from them.
+	 * 
+	 * @param list     {@link Binding}s to build the table from. This list is
+	 *                 sorted.
+	 * @param distinct whether to skip {@link Binding}s of a player and identifier
+	 *                 that are in the table already (only used for the reverse
+	 *                 index, where all {@link Binding}s have the same
+	 *                 {@link SourceConfiguration})
+	 * @return a {@link BindingTable} of the {@link Binding}s
+	 */
+	private static <T> BindingTable<T> table(List<Binding<T>> list, boolean distinct) {
+		list.sort(null);
+		int n = list.size();
+		int[] players = new int[n];
+		int[] actions = new int[n];
+		Object[] identifiers = new Object[n];
+		SourceConfiguration[] configs = new SourceConfiguration[n];
+		int size = 0;
+		for (Binding<T> b : list) {
+			if (distinct && size > 0 && players[size - 1] == b.player && actions[size - 1] == b.action)
+				continue;
+			players[size] = b.player;
+			actions[size] = b.action;
+			identifiers[size] = b.identifier;
+			configs[size++] = b.config;
+		}
+		if (size < n) {
+			players = Arrays.copyOf(players, size);
+			actions = Arrays.copyOf(actions, size);
+			identifiers = Arrays.copyOf(identifiers, size);
+			configs = Arrays.copyOf(configs, size);
+		}
+		return new BindingTable<T>(players, actions, identifiers, configs);
+	}
+
+	/**
+	 * Adds a binding to a reverse index.
+	 * 
+	 * @param r          reverse index to add to
+	 * @param player     player of the binding
+	 * @param action     id of the identifier of the binding
+	 * @param identifier identifier of the binding
+	 * @param input      {@link SourceConfiguration} of the binding
+	 */
+	private static <T> void index(ConcurrentHashMap<SourceConfiguration, BindingTable<T>> r, int player, int action,
+			T identifier, SourceConfiguration input) {
+		r.compute(input, (k, t) -> (t == null ? BindingTable.<T>empty() : t).with(player, action, identifier, input));
+	}
+
+	/**
+	 * Gets the number of players in the {@link BindingTable}s, counting from 0.
+	 * 
+	 * @return one more than the highest player that has inputs, or 0 if there are
+	 *         none
+	 */
+	int players() {
+		return players;
+	}
+
+	/**
+	 * Gets the number of times the {@link BindingTable}s have been compiled.
+	 * 
+	 * @return the number of compilations
+	 */
+	int version() {
+		return version;
+	}
+
+	/**
+	 * Gets a class by its name, like {@link Class#forName(String)}, but caches the
+	 * result.
+	 * 
+	 * @param name fully qualified name of the class
+	 * @return the class with the name
+	 * @throws ClassNotFoundException When the class could not be found
+	 */
+	static Class<?> resolve(String name) throws ClassNotFoundException {
+		Class<?> c = CLASSES.get(name);
+		if (c == null) {
+			c = Class.forName(name);
+			CLASSES.putIfAbsent(name, c);
+		}
+		return c;
+	}
+
 	/**
 	 * Executes the handler for each player configured.
 	 * 
+	 * Players without configuration for the class are skipped. The handler runs
+	 * with the lock of this {@link InputConfiguration} held. The maps passed to
+	 * it are the same as returned by {@link #getConfiguration(int, Class)}, so
+	 * call {@link #compile()} after changing them.
+	 * 
 	 * @param type    Class calling the method (to retrieve <b>its</b> stored
 	 *                values)
 	 * @param handler handler to execute (first argument is player number, second is
 	 *                configuration)
 	 */
-	public void forEach(Class<? extends InputSource> type,
+	public synchronized void forEach(Class<? extends InputSource> type,
 			BiConsumer<Integer, Map<T, List<SourceConfiguration>>> handler) {
-		config.forEach(
-				(k, v) -> handler.accept(k, v.computeIfAbsent(type, c -> new HashMap<T, List<SourceConfiguration>>())));
+		config.forEach((k, v) -> {
+			Map<T, List<SourceConfiguration>> m = v.get(type);
+			if (m != null) {
+				open(k, type);
+				handler.accept(k, m);
+			}
+		});
+	}
+
+	/**
+	 * Adds a {@link Combo}. It is detected from the next {@link Input4J#update()}
+	 * on.
+	 * 
+	 * @param combo {@link Combo} to add
+	 */
+	public synchronized void addCombo(Combo<T> combo) {
+		register(combo);
+		List<Combo<T>> l = new ArrayList<Combo<T>>(combos);
+		l.add(combo);
+		combos = Collections.unmodifiableList(l);
+		comboFragment = null;
+		changed();
+	}
+
+	/**
+	 * Removes all {@link Combo}s deriving an action.
+	 * 
+	 * @param action identifier of the derived action
+	 * @return true if a {@link Combo} was removed, false otherwise
+	 */
+	public synchronized boolean removeCombos(T action) {
+		List<Combo<T>> l = new ArrayList<Combo<T>>(combos);
+		if (!l.removeIf(c -> c.getAction().equals(action)))
+			return false;
+		combos = Collections.unmodifiableList(l);
+		comboFragment = null;
+		changed();
+		return true;
+	}
+
+	/**
+	 * Gets all {@link Combo}s. The returned list is not changed by adding or
+	 * removing {@link Combo}s, it is replaced instead.
+	 * 
+	 * @return an unmodifiable list of the {@link Combo}s in the order they were
+	 *         added
+	 */
+	public List<Combo<T>> getCombos() {
+		return combos;
+	}
+
+	/**
+	 * Registers all identifiers of a {@link Combo} at the {@link ActionRegistry}.
+	 * 
+	 * @param combo {@link Combo} to register identifiers of
+	 */
+	private void register(Combo<T> combo) {
+		registry.register(combo.getAction());
+		for (T input : combo.getInputs())
+			registry.register(input);
+	}
+
+	/**
+	 * Adds an input for a player and a name.
+	 * 
+	 * This is meant to be used by {@link InputSource}s in
+	 * {@link InputSource#setInput(int, Object, short, InputConfiguration)}.
+	 * 
+	 * @param player player to add input for
+	 * @param type   Class calling the method (to store <b>its</b> values)
+	 * @param name   name to add input for
+	 * @param input  {@link SourceConfiguration} describing the input
+	 */
+	public synchronized void addInput(int player, Class<? extends InputSource> type, T name,
+			SourceConfiguration input) {
+		section(player, type).computeIfAbsent(name, k -> new ArrayList<SourceConfiguration>()).add(input);
+		changed(player, type);
+		compileTables();
+		index(reverse, player, registry.register(name), name, input);
+	}
+
+	/**
+	 * Gets the {@link ActionRegistry} assigning ids to the identifiers of this
+	 * {@link InputConfiguration}. Every identifier loaded from a file is
+	 * registered.
+	 * 
+	 * @return the {@link ActionRegistry} of this {@link InputConfiguration}
+	 */
+	public ActionRegistry<T> getActionRegistry() {
+		return registry;
 	}
 
 	/**
@@ -116,19 +585,34 @@ public class InputConfiguration<T> {
 	 * @param player player to clear inputs for
 	 * @param name   name to clear inputs for
 	 */
-	public void clearInput(int player, T name) {
+	public synchronized void clearInput(int player, T name) {
 		Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>> pm = config.get(player);
 		if (pm == null)
 			return;
-		pm.forEach((k, v) -> v.remove(name));
+		int action = registry.getId(name);
+		pm.forEach((k, v) -> {
+			List<SourceConfiguration> removed = v.remove(name);
+			if (removed != null) {
+				for (SourceConfiguration c : removed)
+					reverse.computeIfPresent(c, (k2, t) -> t.without(player, action));
+				changed(player, k);
+			}
+		});
+		compileTables();
 	}
 
 	/**
 	 * Cleans the {@link InputConfiguration} and removes duplicates.
 	 * 
-	 * This checks the equality of using {@link SourceConfiguration#equals(Object)}.
+	 * This checks the equality of using {@link SourceConfiguration#equals(Object)}
+	 * and {@link Combo#equals(Object)}.
 	 */
-	public void clean() {
+	public synchronized void clean() {
+		if (!combos.isEmpty())
+			combos = Collections.unmodifiableList(combos.stream().distinct().collect(Collectors.toList()));
+		fragments.clear();
+		comboFragment = null;
+		changed();
 		config.forEach((player, classMaps) -> {
 			classMaps.forEach((c, map) -> {
 				map.replaceAll((key, list) -> {
@@ -136,6 +620,19 @@ public class InputConfiguration<T> {
 				});
 			});
 		});
+		compileTables();
+	}
+
+	/**
+	 * Creates a writer for a section of the xml.
+	 * 
+	 * @param type     Class of POJO to write
+	 * @param rootName name of the element to write
+	 * @return the writer
+	 */
+	private static ObjectWriter writer(Class<?> type, String rootName) {
+		return MAPPER.writerFor(type).withRootName(rootName).with(ToXmlGenerator.Feature.WRITE_XML_1_1)
+				.withDefaultPrettyPrinter();
 	}
 
 	/**
@@ -145,34 +642,227 @@ public class InputConfiguration<T> {
 	 */
 	private ConfigPOJO toPOJO() {
 		ConfigPOJO c = new ConfigPOJO();
-		c.players = config.entrySet().stream().map(e -> {
-			PlayerPOJO p = new PlayerPOJO();
-			p.num = e.getKey();
-			p.inputSourceConfigs = e.getValue().entrySet().stream().map(e2 -> {
-				InputSourcePOJO is = new InputSourcePOJO();
-				is.className = e2.getKey().getName();
-				is.sourceConfigs = e2.getValue().entrySet().stream().map(e3 -> {
-					SourceConfigPOJO<T> sc = new SourceConfigPOJO<T>();
-					sc.key = e3.getKey();
-					sc.configs = e3.getValue().toArray(l -> new SourceConfiguration[l]);
-					return sc;
-				}).toArray(l -> new SourceConfigPOJO[l]);
-				return is;
-			}).toArray(l -> new InputSourcePOJO[l]);
-			return p;
-		}).toArray(l -> new PlayerPOJO[l]);
+		c.players = config.entrySet().stream().map(e -> toPOJO(e.getKey(), e.getValue())).toArray(l -> new PlayerPOJO[l]);
+		if (!combos.isEmpty())
+			c.combos = combos.stream().map(InputConfiguration::toPOJO).toArray(l -> new ComboPOJO[l]);
 		return c;
 	}
 
 	/**
-	 * Saves this {@link InputConfiguration} to a xml {@link String}.
+	 * Constructs a {@link PlayerPOJO} from the configuration of a player.
+	 * 
+	 * @param player  player
+	 * @param sources configuration of the player
+	 * @return a {@link PlayerPOJO} resembling the configuration
+	 */
+	private static <T> PlayerPOJO toPOJO(int player,
+			Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>> sources) {
+		PlayerPOJO p = new PlayerPOJO();
+		p.num = player;
+		p.inputSourceConfigs = sources.entrySet().stream().map(e -> toPOJO(e.getKey(), e.getValue()))
+				.toArray(l -> new InputSourcePOJO[l]);
+		return p;
+	}
+
+	/**
+	 * Constructs an {@link InputSourcePOJO} from the configuration of a player
+	 * and an {@link InputSource}.
+	 * 
+	 * @param type   Class of {@link InputSource}
+	 * @param inputs configuration of the player for the {@link InputSource}
+	 * @return an {@link InputSourcePOJO} resembling the configuration
+	 */
+	private static <T> InputSourcePOJO toPOJO(Class<? extends InputSource> type,
+			Map<T, List<SourceConfiguration>> inputs) {
+		InputSourcePOJO is = new InputSourcePOJO();
+		is.className = type.getName();
+		is.sourceConfigs = inputs.entrySet().stream().map(e -> {
+			SourceConfigPOJO<T> sc = new SourceConfigPOJO<T>();
+			sc.key = e.getKey();
+			sc.configs = e.getValue().toArray(new SourceConfiguration[0]);
+			return sc;
+		}).toArray(l -> new SourceConfigPOJO<?>[l]);
+		return is;
+	}
+
+	/**
+	 * Constructs a {@link ComboPOJO} from a {@link Combo}.
+	 * 
+	 * @param combo {@link Combo} to store
+	 * @return a {@link ComboPOJO} resembling the {@link Combo}
+	 */
+	private static <T> ComboPOJO toPOJO(Combo<T> combo) {
+		ComboPOJO cp = new ComboPOJO();
+		cp.type = combo.getType();
+		cp.window = combo.getWindow();
+		cp.value = combo.getValue();
+		cp.action = key(combo.getAction());
+		cp.inputs = combo.getInputs().stream().map(InputConfiguration::key).toArray(l -> new IdentifierPOJO<?>[l]);
+		return cp;
+	}
+
+	/**
+	 * Serializes this {@link InputConfiguration} to xml. <br />
+	 * 
+	 * The xml of every player and {@link InputSource} is cached, and only the
+	 * sections that changed since the last call are serialized again. Sections
+	 * returned by {@link #getConfiguration(int, Class)} are serialized again
+	 * until they are compiled.
+	 * 
+	 * @return xml {@link String}
+	 * @throws JsonProcessingException if serializing failed
+	 */
+	private synchronized String xml() throws JsonProcessingException {
+		StringBuilder b = new StringBuilder(xmlLength + 256).append(XML_START);
+		for (Map.Entry<Integer, Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>>> p : config
+				.entrySet()) {
+			Map<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>> sources = p.getValue();
+			if (sources.isEmpty()) {
+				indent(b, write(PLAYER_WRITER, toPOJO(p.getKey(), sources)), "  ");
+				continue;
+			}
+			Map<Class<? extends InputSource>, String> cached = fragments.computeIfAbsent(p.getKey(),
+					k -> new HashMap<Class<? extends InputSource>, String>());
+			Set<Class<? extends InputSource>> o = open.get(p.getKey());
+			b.append("  <player num=\"").append(p.getKey()).append("\">\n");
+			for (Map.Entry<Class<? extends InputSource>, Map<T, List<SourceConfiguration>>> e : sources.entrySet()) {
+				String xml = cached.get(e.getKey());
+				if (xml == null) {
+					StringBuilder s = new StringBuilder();
+					indent(s, write(SOURCE_WRITER, toPOJO(e.getKey(), e.getValue())), "    ");
+					xml = s.toString();
+					if (o == null || !o.contains(e.getKey()))
+						cached.put(e.getKey(), xml);
+				}
+				b.append(xml);
+			}
+			b.append("  </player>\n");
+		}
+		if (comboFragment == null) {
+			StringBuilder c = new StringBuilder();
+			for (Combo<T> combo : combos)
+				indent(c, write(COMBO_WRITER, toPOJO(combo)), "  ");
+			comboFragment = c.length() == 0 ? NO_COMBOS : c.toString();
+		}
+		b.append(comboFragment).append(XML_END);
+		xmlLength = b.length();
+		return b.toString();
+	}
+
+	/**
+	 * Serializes a section of the xml.
+	 * 
+	 * @param writer writer of the section
+	 * @param pojo   POJO to serialize
+	 * @return the xml of the section, without xml declaration
+	 * @throws JsonProcessingException if serializing failed
+	 */
+	private static String write(ObjectWriter writer, Object pojo) throws JsonProcessingException {
+		String xml = writer.writeValueAsString(pojo);
+		return xml.substring(xml.indexOf('\n') + 1);
+	}
+
+	/**
+	 * Appends xml, indenting every line.
+	 * 
+	 * @param b      {@link StringBuilder} to append to
+	 * @param xml    xml to append, ending with a line break
+	 * @param indent indentation to add to every line
+	 */
+	private static void indent(StringBuilder b, String xml, String indent) {
+		int start = 0;
+		int end;
+		while ((end = xml.indexOf('\n', start)) >= 0) {
+			b.append(indent).append(xml, start, end + 1);
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Marks everything as changed, without clearing the cached xml.
+	 */
+	private void changed() {
+		modifications++;
+		Runnable l = changeListener;
+		if (l != null)
+			l.run();
+	}
+
+	/**
+	 * Marks the configuration of a player and an {@link InputSource} as changed.
+	 * 
+	 * @param player player that changed
+	 * @param type   Class of {@link InputSource} that changed
+	 */
+	private void changed(int player, Class<? extends InputSource> type) {
+		Map<Class<? extends InputSource>, String> cached = fragments.get(player);
+		if (cached != null)
+			cached.remove(type);
+		changed();
+	}
+
+	/**
+	 * Compiles the configuration after the configuration of a player and an
+	 * {@link InputSource} was changed directly (see
+	 * {@link #getConfiguration(int, Class)}), marking only it as changed.
+	 * 
+	 * @param player player that changed
+	 * @param type   Class of {@link InputSource} that changed
+	 */
+	synchronized void compile(int player, Class<? extends InputSource> type) {
+		Set<Class<? extends InputSource>> o = open.get(player);
+		if (o != null)
+			o.remove(type);
+		changed(player, type);
+		compileTables();
+		compileReverse();
+	}
+
+	/**
+	 * Gets the number of changes of this {@link InputConfiguration}.
+	 * 
+	 * @return a number that is incremented whenever the configuration changes
+	 */
+	long modifications() {
+		return modifications;
+	}
+
+	/**
+	 * Sets the {@link Runnable} called after every change of the configuration,
+	 * on the thread that changed it.
+	 * 
+	 * @param listener {@link Runnable} to call, or null
+	 */
+	void setChangeListener(Runnable listener) {
+		changeListener = listener;
+	}
+
+	/**
+	 * Creates an {@link IdentifierPOJO} storing an identifier of a {@link Combo}.
+	 * 
+	 * @param key identifier to store
+	 * @return an {@link IdentifierPOJO} storing the identifier
+	 */
+	private static <T> IdentifierPOJO<T> key(T key) {
+		IdentifierPOJO<T> k = new IdentifierPOJO<T>();
+		k.key = key;
+		return k;
+	}
+
+	/**
+	 * Saves this {@link InputConfiguration} to a xml {@link String}. <br />
+	 * 
+	 * The xml of every player and {@link InputSource} is cached, so saving again
+	 * only serializes the parts that changed since.
 	 * 
 	 * @return xml {@link String}
 	 * @throws JsonProcessingException
 	 */
 	public String save() throws JsonProcessingException {
-		return new XmlMapper().configure(ToXmlGenerator.Feature.WRITE_XML_1_1, true).writerWithDefaultPrettyPrinter()
-				.writeValueAsString(toPOJO());
+		Object event = Events.beginConfigurationIO();
+		String xml = xml();
+		saved(event, "xml", xml.length());
+		return xml;
 	}
 
 	/**
@@ -180,22 +870,58 @@ public class InputConfiguration<T> {
 	 * {@link OutputStream}.
 	 * 
 	 * @param s {@link OutputStream} to write xml to
-	 * @throws IOException see {@link ObjectWriter#writeValue(OutputStream, Object)}
+	 * @throws IOException if writing failed
 	 */
 	public void save(OutputStream s) throws IOException {
-		new XmlMapper().configure(ToXmlGenerator.Feature.WRITE_XML_1_1, true).writerWithDefaultPrettyPrinter()
-				.writeValue(s, toPOJO());
+		Object event = Events.beginConfigurationIO();
+		byte[] xml = xml().getBytes(StandardCharsets.UTF_8);
+		s.write(xml);
+		saved(event, "xml", xml.length);
 	}
 
 	/**
 	 * Saves this {@link InputConfiguration} to xml and writes it to a {@link File}.
+	 * <br />
+	 * 
+	 * The xml is written to a temporary file in the same directory, which then
+	 * replaces the file, so the file is never left half-written.
 	 * 
 	 * @param f {@link File} to write to
-	 * @throws IOException see {@link ObjectWriter#writeValue(File, Object)}
+	 * @throws IOException if writing the file failed
 	 */
 	public void save(File f) throws IOException {
-		new XmlMapper().configure(ToXmlGenerator.Feature.WRITE_XML_1_1, true).writerWithDefaultPrettyPrinter()
-				.writeValue(f, toPOJO());
+		Object event = Events.beginConfigurationIO();
+		byte[] xml = xml().getBytes(StandardCharsets.UTF_8);
+		write(f, xml);
+		saved(event, "xml", xml.length);
+	}
+
+	/**
+	 * Writes a file through a temporary file in the same directory that replaces
+	 * it, atomically if supported by the file system. The temporary file is
+	 * created with the default permissions and gets the permissions of the file
+	 * it replaces, so saving never changes who can read the file.
+	 * 
+	 * @param f    {@link File} to write to
+	 * @param data data to write
+	 * @throws IOException if writing the file failed
+	 */
+	static void write(File f, byte[] data) throws IOException {
+		Path target = f.getAbsoluteFile().toPath();
+		Path temp = target.resolveSibling(
+				target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		try {
+			Files.write(temp, data, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			if (Files.exists(target) && Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class))
+				Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
 	}
 
 	/**
@@ -204,7 +930,9 @@ public class InputConfiguration<T> {
 	 * 
 	 * @param <T> Class of identifier (to return typed {@link InputConfiguration})
 	 * @param xml xml to load from
-	 * @param c   Class of identifier (to return typed {@link InputConfiguration})
+	 * @param c   Class of identifier (to return typed {@link InputConfiguration}
+	 *            and to create its {@link ActionRegistry}, see
+	 *            {@link ActionRegistry#forClass(Class)})
 	 * @return {@link InputConfiguration} loaded from the given xml
 	 * @throws JsonMappingException    see
 	 *                                 {@link ObjectMapper#readValue(String, Class)}
@@ -215,7 +943,8 @@ public class InputConfiguration<T> {
 	 */
 	public static <T> InputConfiguration<T> load(String xml, Class<T> c)
 			throws JsonMappingException, JsonProcessingException, ClassNotFoundException {
-		return new InputConfiguration<T>(new XmlMapper().readValue(xml, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", xml.length(), READER.readValue(xml), ActionRegistry.forClass(c));
 	}
 
 	/**
@@ -232,7 +961,8 @@ public class InputConfiguration<T> {
 	 */
 	public static InputConfiguration<?> load(String xml)
 			throws JsonMappingException, JsonProcessingException, ClassNotFoundException {
-		return new InputConfiguration<>(new XmlMapper().readValue(xml, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", xml.length(), READER.readValue(xml), new HashActionRegistry<Object>());
 	}
 
 	/**
@@ -241,7 +971,9 @@ public class InputConfiguration<T> {
 	 * 
 	 * @param <T> Class of identifier (to return typed {@link InputConfiguration})
 	 * @param s   {@link InputStream} to read xml from
-	 * @param c   Class of identifier (to return typed {@link InputConfiguration})
+	 * @param c   Class of identifier (to return typed {@link InputConfiguration}
+	 *            and to create its {@link ActionRegistry}, see
+	 *            {@link ActionRegistry#forClass(Class)})
 	 * @return {@link InputConfiguration} loaded from the given xml
 	 * @throws IOException            see
 	 *                                {@link ObjectMapper#readValue(String, Class)}
@@ -249,7 +981,8 @@ public class InputConfiguration<T> {
 	 *                                {@link InputSource} could not be found
 	 */
 	public static <T> InputConfiguration<T> load(InputStream s, Class<T> c) throws IOException, ClassNotFoundException {
-		return new InputConfiguration<T>(new XmlMapper().readValue(s, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", -1, READER.readValue(s), ActionRegistry.forClass(c));
 	}
 
 	/**
@@ -263,7 +996,8 @@ public class InputConfiguration<T> {
 	 *                                {@link InputSource} could not be found
 	 */
 	public static InputConfiguration<?> load(InputStream s) throws IOException, ClassNotFoundException {
-		return new InputConfiguration<>(new XmlMapper().readValue(s, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", -1, READER.readValue(s), new HashActionRegistry<Object>());
 	}
 
 	/**
@@ -272,7 +1006,9 @@ public class InputConfiguration<T> {
 	 * 
 	 * @param <T> Class of identifier (to return typed {@link InputConfiguration})
 	 * @param f   {@link File} to read the xml from
-	 * @param c   Class of identifier (to return typed {@link InputConfiguration})
+	 * @param c   Class of identifier (to return typed {@link InputConfiguration}
+	 *            and to create its {@link ActionRegistry}, see
+	 *            {@link ActionRegistry#forClass(Class)})
 	 * @return {@link InputConfiguration} loaded from the given xml
 	 * @throws IOException            see
 	 *                                {@link ObjectMapper#readValue(File, Class)}
@@ -280,7 +1016,51 @@ public class InputConfiguration<T> {
 	 *                                {@link InputSource} could not be found
 	 */
 	public static <T> InputConfiguration<T> load(File f, Class<T> c) throws IOException, ClassNotFoundException {
-		return new InputConfiguration<T>(new XmlMapper().readValue(f, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", f.length(), READER.readValue(f), ActionRegistry.forClass(c));
+	}
+
+	/**
+	 * Loads an {@link InputConfiguration} from a xml {@link File} and assigns ids
+	 * to its identifiers using an existing {@link ActionRegistry}. <br />
+	 * 
+	 * Identifiers already known to the {@link ActionRegistry} keep their ids, so
+	 * this can replace an {@link InputConfiguration} without invalidating ids
+	 * that are in use.
+	 * 
+	 * @param <T>      Class of identifier (to return typed
+	 *                 {@link InputConfiguration})
+	 * @param f        {@link File} to read the xml from
+	 * @param registry {@link ActionRegistry} to assign ids with
+	 * @return {@link InputConfiguration} loaded from the given xml
+	 * @throws IOException            see
+	 *                                {@link ObjectMapper#readValue(File, Class)}
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} could not be found
+	 */
+	public static <T> InputConfiguration<T> load(File f, ActionRegistry<T> registry)
+			throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", f.length(), READER.readValue(f), registry);
+	}
+
+	/**
+	 * Loads an {@link InputConfiguration} from xml that has already been read and
+	 * assigns ids to its identifiers using an existing {@link ActionRegistry}.
+	 * 
+	 * @param <T>      Class of identifier
+	 * @param xml      UTF-8 encoded xml to load from
+	 * @param registry {@link ActionRegistry} to assign ids with
+	 * @return {@link InputConfiguration} loaded from the given xml
+	 * @throws IOException            see
+	 *                                {@link ObjectMapper#readValue(byte[], Class)}
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} could not be found
+	 */
+	static <T> InputConfiguration<T> load(byte[] xml, ActionRegistry<T> registry)
+			throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", xml.length, READER.readValue(xml), registry);
 	}
 
 	/**
@@ -295,78 +1075,198 @@ public class InputConfiguration<T> {
 	 *                                {@link InputSource} could not be found
 	 */
 	public static InputConfiguration<?> load(File f) throws IOException, ClassNotFoundException {
-		return new InputConfiguration<>(new XmlMapper().readValue(f, ConfigPOJO.class));
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "xml", f.length(), READER.readValue(f), new HashActionRegistry<Object>());
 	}
 
-	@Override
-	public String toString() {
-		return config.toString();
+	/**
+	 * Saves this {@link InputConfiguration} in the compact binary format and
+	 * writes it to an {@link OutputStream}. <br />
+	 * 
+	 * The binary format stores the same data as the xml format, but every class
+	 * name, identifier and {@link SourceConfiguration} only once, so it is much
+	 * smaller and faster to load for configurations with many players. Load it
+	 * with {@link #loadBinary(InputStream, Class)}.
+	 * 
+	 * @param s {@link OutputStream} to write to. It is flushed, but not closed.
+	 * @throws IOException if writing failed
+	 */
+	public void saveBinary(OutputStream s) throws IOException {
+		Object event = Events.beginConfigurationIO();
+		BinaryConfiguration.write(toPOJO(), s);
+		saved(event, "binary", -1);
 	}
 
-}
+	/**
+	 * Saves this {@link InputConfiguration} in the compact binary format and
+	 * writes it to a {@link FileChannel} at its current position.
+	 * 
+	 * @param c {@link FileChannel} to write to. It is not closed.
+	 * @throws IOException if writing failed
+	 * @see #saveBinary(OutputStream)
+	 */
+	public void saveBinary(FileChannel c) throws IOException {
+		Object event = Events.beginConfigurationIO();
+		long start = c.position();
+		BinaryConfiguration.write(toPOJO(), Channels.newOutputStream(c));
+		saved(event, "binary", c.position() - start);
+	}
 
-// ConfigPOJO:         PlayerPOJO[]
-// PlayerPOJO:         Integer,                          InputSourcePOJO[]
-// InputSourcePOJO:    Class<? extends InputSource>,     SourceConfigPOJO[]
-// SourceConfigPOJO:   T,                                SourceConfiguration[]
+	/**
+	 * Loads an {@link InputConfiguration} in the binary format from an
+	 * {@link InputStream} and types it to the given class.
+	 * 
+	 * @param <T> Class of identifier (to return typed {@link InputConfiguration})
+	 * @param s   {@link InputStream} to read from. It is not closed. It is read
+	 *            ahead, so bytes after the configuration may be read as well.
+	 * @param c   Class of identifier (to return typed {@link InputConfiguration}
+	 *            and to create its {@link ActionRegistry}, see
+	 *            {@link ActionRegistry#forClass(Class)})
+	 * @return {@link InputConfiguration} loaded from the given data
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} or identifier could not
+	 *                                be found
+	 * @see #saveBinary(OutputStream)
+	 */
+	public static <T> InputConfiguration<T> loadBinary(InputStream s, Class<T> c)
+			throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "binary", -1, BinaryConfiguration.read(s), ActionRegistry.forClass(c));
+	}
 
-/**
- * POJO for serializing {@link InputConfiguration}
- * 
- * @author Floeze
- *
- */
-@JsonRootName("InputConfiguration")
-final class ConfigPOJO {
+	/**
+	 * Loads an {@link InputConfiguration} in the binary format from an
+	 * {@link InputStream}.
+	 * 
+	 * @param s {@link InputStream} to read from. It is not closed. It is read
+	 *          ahead, so bytes after the configuration may be read as well.
+	 * @return {@link InputConfiguration} loaded from the given data
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} or identifier could not
+	 *                                be found
+	 * @see #saveBinary(OutputStream)
+	 */
+	public static InputConfiguration<?> loadBinary(InputStream s) throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		return loaded(event, "binary", -1, BinaryConfiguration.read(s), new HashActionRegistry<Object>());
+	}
 
-	@JacksonXmlProperty(localName = "player")
-	@JacksonXmlElementWrapper(useWrapping = false)
-	public PlayerPOJO[] players;
-}
+	/**
+	 * Loads an {@link InputConfiguration} in the binary format from a
+	 * {@link FileChannel}, starting at its current position, and types it to the
+	 * given class.
+	 * 
+	 * @param <T> Class of identifier (to return typed {@link InputConfiguration})
+	 * @param f   {@link FileChannel} to read from. It is not closed. Afterwards,
+	 *            it is positioned right after the configuration.
+	 * @param c   Class of identifier (to return typed {@link InputConfiguration}
+	 *            and to create its {@link ActionRegistry}, see
+	 *            {@link ActionRegistry#forClass(Class)})
+	 * @return {@link InputConfiguration} loaded from the given data
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} or identifier could not
+	 *                                be found
+	 * @see #saveBinary(FileChannel)
+	 */
+	public static <T> InputConfiguration<T> loadBinary(FileChannel f, Class<T> c)
+			throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		long start = f.position();
+		ConfigPOJO pojo = BinaryConfiguration.read(f);
+		return loaded(event, "binary", f.position() - start, pojo, ActionRegistry.forClass(c));
+	}
 
-/**
- * POJO for serializing {@link InputConfiguration}
- * 
- * @author Floeze
- *
- */
-final class PlayerPOJO {
-	@JacksonXmlProperty(isAttribute = true, localName = "num")
-	public int num;
+	/**
+	 * Loads an {@link InputConfiguration} in the binary format from a
+	 * {@link FileChannel}, starting at its current position.
+	 * 
+	 * @param f {@link FileChannel} to read from. It is not closed. Afterwards, it
+	 *          is positioned right after the configuration.
+	 * @return {@link InputConfiguration} loaded from the given data
+	 * @throws IOException            if reading failed or the data is not in the
+	 *                                binary format
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} or identifier could not
+	 *                                be found
+	 * @see #saveBinary(FileChannel)
+	 */
+	public static InputConfiguration<?> loadBinary(FileChannel f) throws IOException, ClassNotFoundException {
+		Object event = Events.beginConfigurationIO();
+		long start = f.position();
+		ConfigPOJO pojo = BinaryConfiguration.read(f);
+		return loaded(event, "binary", f.position() - start, pojo, new HashActionRegistry<Object>());
+	}
 
-	@JacksonXmlProperty(localName = "configs")
-	@JacksonXmlElementWrapper(useWrapping = false)
-	public InputSourcePOJO[] inputSourceConfigs;
-}
+	/**
+	 * Creates an {@link InputConfiguration} from a loaded {@link ConfigPOJO} and
+	 * ends the event of loading it.
+	 * 
+	 * @param <T>      Class of identifier
+	 * @param event    event returned by {@link Events#beginConfigurationIO()}
+	 * @param format   format that was loaded
+	 * @param size     size of the loaded data, or -1 if unknown
+	 * @param source   {@link ConfigPOJO} to load data from
+	 * @param registry {@link ActionRegistry} to assign ids with
+	 * @return the {@link InputConfiguration}
+	 * @throws ClassNotFoundException When the stored class of an
+	 *                                {@link InputSource} could not be found
+	 */
+	private static <T> InputConfiguration<T> loaded(Object event, String format, long size, ConfigPOJO source,
+			ActionRegistry<T> registry) throws ClassNotFoundException {
+		InputConfiguration<T> c = new InputConfiguration<T>(source, registry);
+		Events.endConfigurationIO(event, "load", format, c.config.size(), size);
+		return c;
+	}
 
-/**
- * POJO for serializing {@link InputConfiguration}
- * 
- * @author Floeze
- *
- */
-final class InputSourcePOJO {
+	/**
+	 * Ends the event of saving this {@link InputConfiguration}.
+	 * 
+	 * @param event  event returned by {@link Events#beginConfigurationIO()}
+	 * @param format format that was saved
+	 * @param size   size of the saved data, or -1 if unknown
+	 */
+	private void saved(Object event, String format, long size) {
+		Events.endConfigurationIO(event, "save", format, config.size(), size);
+	}
 
-	@JacksonXmlProperty(isAttribute = true, localName = "for")
-	public String className;
+	@Override
+	public String toString() {
+		List<Combo<T>> c = combos;
+		return c.isEmpty() ? config.toString() : config.toString() + " " + c;
+	}
 
-	@JacksonXmlProperty(localName = "key")
-	@JacksonXmlElementWrapper(useWrapping = false)
-	public SourceConfigPOJO<?>[] sourceConfigs;
 }
 
 /**
- * POJO for serializing {@link InputConfiguration}
+ * One binding of a player and an identifier to a {@link SourceConfiguration},
+ * used while compiling {@link BindingTable}s.
  * 
  * @author Floeze
  *
+ * @param <T> Class of identifier
  */
-final class SourceConfigPOJO<T> {
-	@JacksonXmlProperty(isAttribute = true, localName = "name")
-	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "class")
-	public T key;
-
-	@JacksonXmlProperty(localName = "value")
-	@JacksonXmlElementWrapper(useWrapping = false)
-	public SourceConfiguration[] configs;
-}
\ No newline at end of file
+final class Binding<T> implements Comparable<Binding<T>> {
+	final int player;
+	final int action;
+	final T identifier;
+	final SourceConfiguration config;
+
+	Binding(int player, int action, T identifier, SourceConfiguration config) {
+		this.player = player;
+		this.action = action;
+		this.identifier = identifier;
+		this.config = config;
+	}
+
+	@Override
+	public int compareTo(Binding<T> o) {
+		int c = Integer.compare(player, o.player);
+		return c != 0 ? c : Integer.compare(action, o.action);
+	}
+}
@@ -0,0 +1,326 @@
+package tv.floeze.Input4J;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the difference between two frames stored in {@link DenseInputMap}s
+ * into a {@link ByteBuffer} and applies it to another {@link DenseInputMap},
+ * for example to replicate the inputs to spectators or to keep frames for
+ * rollback. <br />
+ * 
+ * The identifiers of a player are divided into groups of 64. Every group that
+ * changed is written as a header, a bitmask of the changed identifiers and the
+ * new values of these identifiers:
+ * 
+ * <pre>
+ * delta: group..., varint 0
+ * group: varint difference to the player of the previous group plus one,
+ *        varint index of group (minus the previous index plus one if the
+ *        player stayed the same), varlong bitmask, zigzag varint value...
+ * </pre>
+ * 
+ * A {@link DenseInputMap} keeps track of the groups that were set (see
+ * {@link DenseInputMap#clear()}), so encoding only visits the groups set in
+ * either frame. Both the size of a difference and the time to encode and apply
+ * it therefore depend on the number of changed inputs, not on the size of the
+ * frames. Neither encoding nor decoding allocates, unless the target of a
+ * decode has to grow. The frames of an {@link Input4J} can be copied into
+ * {@link DenseInputMap}s with {@link InputSnapshot#copyTo(DenseInputMap)}.
+ * <br />
+ * 
+ * Identifiers are encoded by their ids (see {@link ActionRegistry}), so both
+ * sides have to assign the same ids, which is always the case for
+ * {@link EnumActionRegistry}s. <br />
+ * 
+ * This is also the format of the frames recorded by {@link InputRecorder} and
+ * sent by {@link RemoteInputPublisher}.
+ * 
+ * @author Floeze
+ *
+ */
+public final class InputDeltaCodec {
+
+	private InputDeltaCodec() {
+	}
+
+	/**
+	 * Gets the maximum number of bytes needed to encode the difference between
+	 * two frames.
+	 * 
+	 * @param current   new frame
+	 * @param reference frame the difference is encoded to, or null for an empty
+	 *                  frame
+	 * @return the maximum number of bytes
+	 */
+	public static int maxSize(DenseInputMap<?> current, DenseInputMap<?> reference) {
+		int players = current.players();
+		int actions = current.actions();
+		if (reference != null) {
+			players = Math.max(players, reference.players());
+			actions = Math.max(actions, reference.actions());
+		}
+		// 5 bytes per varint of the header, 10 per bitmask, 3 per value
+		long groups = (long) players * ((actions + 63) >>> 6);
+		return (int) Math.min(Integer.MAX_VALUE, groups * 20 + (long) players * actions * 3 + 1);
+	}
+
+	/**
+	 * Encodes the difference between two frames.
+	 * 
+	 * @param out       {@link ByteBuffer} to write to
+	 * @param current   new frame
+	 * @param reference frame to encode the difference to, or null for an empty
+	 *                  frame (to encode all inputs)
+	 * @return the number of changed inputs
+	 * @throws BufferOverflowException if there is not enough room in the buffer
+	 *                                 (see
+	 *                                 {@link #maxSize(DenseInputMap, DenseInputMap)}).
+	 *                                 The position of the buffer is undefined.
+	 */
+	public static int encode(ByteBuffer out, DenseInputMap<?> current, DenseInputMap<?> reference) {
+		if (reference != null
+				&& (reference.players() != current.players() || reference.actions() != current.actions()))
+			return encodeResized(out, current, reference);
+		short[] c = current.array();
+		short[] r = reference == null ? null : reference.array();
+		long[] tc = current.touched();
+		long[] tr = reference == null ? null : reference.touched();
+		int words = current.words();
+		int changes = 0;
+		int lastPlayer = -1;
+		int lastWord = -1;
+		for (int w = 0; w < tc.length; w++) {
+			long bits = tr == null ? tc[w] : tc[w] | tr[w];
+			for (; bits != 0; bits &= bits - 1) {
+				int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+				int start = current.groupStart(g);
+				int end = current.groupEnd(g);
+				long mask = 0;
+				for (int i = start; i < end; i++)
+					if (c[i] != (r == null ? 0 : r[i]))
+						mask |= 1L << (i - start);
+				if (mask == 0)
+					continue;
+				int player = g / words;
+				int word = g - player * words;
+				putHeader(out, player, word, lastPlayer, lastWord, mask);
+				for (long m = mask; m != 0; m &= m - 1)
+					putValue(out, c[start + Long.numberOfTrailingZeros(m)]);
+				changes += Long.bitCount(mask);
+				lastPlayer = player;
+				lastWord = word;
+			}
+		}
+		putVarint(out, 0);
+		return changes;
+	}
+
+	/**
+	 * Encodes the difference between two frames of different sizes. This visits
+	 * every input of both frames.
+	 * 
+	 * @param out       {@link ByteBuffer} to write to
+	 * @param current   new frame
+	 * @param reference frame to encode the difference to
+	 * @return the number of changed inputs
+	 */
+	private static int encodeResized(ByteBuffer out, DenseInputMap<?> current, DenseInputMap<?> reference) {
+		int players = Math.max(current.players(), reference.players());
+		int actions = Math.max(current.actions(), reference.actions());
+		int changes = 0;
+		int lastPlayer = -1;
+		int lastWord = -1;
+		for (int player = 0; player < players; player++) {
+			for (int word = 0; word << 6 < actions; word++) {
+				int start = word << 6;
+				int end = Math.min(start + 64, actions);
+				long mask = 0;
+				for (int action = start; action < end; action++)
+					if (current.getById(player, action) != reference.getById(player, action))
+						mask |= 1L << (action - start);
+				if (mask == 0)
+					continue;
+				putHeader(out, player, word, lastPlayer, lastWord, mask);
+				for (long m = mask; m != 0; m &= m - 1)
+					putValue(out, current.getById(player, start + Long.numberOfTrailingZeros(m)));
+				changes += Long.bitCount(mask);
+				lastPlayer = player;
+				lastWord = word;
+			}
+		}
+		putVarint(out, 0);
+		return changes;
+	}
+
+	/**
+	 * Decodes a difference and applies it to a frame. Inputs not contained in the
+	 * difference keep their value.
+	 * 
+	 * @param in     {@link ByteBuffer} to read from
+	 * @param target frame to apply the difference to, usually a copy of the
+	 *               reference frame it was encoded to
+	 * @return the number of changed inputs
+	 * @throws IllegalArgumentException if the difference is malformed. Changes
+	 *                                  before the error have been applied.
+	 * @throws BufferUnderflowException if the difference is incomplete. Changes
+	 *                                  before the error have been applied.
+	 */
+	public static int decode(ByteBuffer in, DenseInputMap<?> target) {
+		return decode(in, target, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Decodes a difference from an untrusted source and applies it to a frame.
+	 * Inputs not contained in the difference keep their value.
+	 * 
+	 * @param in         {@link ByteBuffer} to read from
+	 * @param target     frame to apply the difference to, usually a copy of the
+	 *                   reference frame it was encoded to
+	 * @param maxPlayers players from this on are rejected
+	 * @param maxActions ids from this on are rejected
+	 * @return the number of changed inputs
+	 * @throws IllegalArgumentException if the difference is malformed or out of
+	 *                                  bounds. Changes before the error have
+	 *                                  been applied.
+	 * @throws BufferUnderflowException if the difference is incomplete. Changes
+	 *                                  before the error have been applied.
+	 */
+	public static int decode(ByteBuffer in, DenseInputMap<?> target, int maxPlayers, int maxActions) {
+		return decode(in, target, null, maxPlayers, maxActions);
+	}
+
+	/**
+	 * Decodes a difference from an untrusted source, applies it to a frame and
+	 * also sets every changed input in another {@link InputMap}.
+	 * 
+	 * @param in         {@link ByteBuffer} to read from
+	 * @param target     frame to apply the difference to
+	 * @param also       {@link InputMap} to set the changed inputs in using
+	 *                   {@link InputMap#setById(int, int, short)}, or null
+	 * @param maxPlayers players from this on are rejected
+	 * @param maxActions ids from this on are rejected
+	 * @return the number of changed inputs
+	 * @throws IllegalArgumentException if the difference is malformed or out of
+	 *                                  bounds. Changes before the error have
+	 *                                  been applied.
+	 * @throws BufferUnderflowException if the difference is incomplete. Changes
+	 *                                  before the error have been applied.
+	 */
+	static int decode(ByteBuffer in, DenseInputMap<?> target, InputMap<?> also, int maxPlayers, int maxActions) {
+		int changes = 0;
+		int player = -1;
+		int word = -1;
+		int skip;
+		while ((skip = getVarint(in)) != 0) {
+			int w = getVarint(in);
+			word = skip == 1 ? word + w + 1 : w;
+			player += skip - 1;
+			if (player < 0 || player >= maxPlayers || word < 0 || word > (maxActions - 1) >>> 6)
+				throw new IllegalArgumentException("Group out of bounds: " + player + ", " + word);
+			long mask = getVarlong(in);
+			for (; mask != 0; mask &= mask - 1) {
+				int action = (word << 6) + Long.numberOfTrailingZeros(mask);
+				if (action >= maxActions)
+					throw new IllegalArgumentException("Input out of bounds: " + player + ", " + action);
+				int v = getVarint(in);
+				short value = (short) ((v >>> 1) ^ -(v & 1));
+				target.put(player, action, value);
+				if (also != null)
+					also.setById(player, action, value);
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Writes the header of a group.
+	 * 
+	 * @param out        {@link ByteBuffer} to write to
+	 * @param player     player of group
+	 * @param word       index of group
+	 * @param lastPlayer player of the previous group, or -1
+	 * @param lastWord   index of the previous group, or -1
+	 * @param mask       bitmask of the changed identifiers
+	 */
+	private static void putHeader(ByteBuffer out, int player, int word, int lastPlayer, int lastWord, long mask) {
+		putVarint(out, player - lastPlayer + 1);
+		putVarint(out, player == lastPlayer ? word - lastWord - 1 : word);
+		putVarlong(out, mask);
+	}
+
+	/**
+	 * Writes a zigzag encoded value.
+	 * 
+	 * @param out   {@link ByteBuffer} to write to
+	 * @param value value to write
+	 */
+	private static void putValue(ByteBuffer out, short value) {
+		putVarint(out, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Writes an unsigned varint.
+	 * 
+	 * @param out {@link ByteBuffer} to write to
+	 * @param v   value to write
+	 */
+	static void putVarint(ByteBuffer out, int v) {
+		while ((v & ~0x7F) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 * 
+	 * @param in {@link ByteBuffer} to read from
+	 * @return the value read
+	 */
+	static int getVarint(ByteBuffer in) {
+		int v = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			v |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return v;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * Writes an unsigned varlong.
+	 * 
+	 * @param out {@link ByteBuffer} to write to
+	 * @param v   value to write
+	 */
+	private static void putVarlong(ByteBuffer out, long v) {
+		while ((v & ~0x7FL) != 0) {
+			out.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.put((byte) v);
+	}
+
+	/**
+	 * Reads an unsigned varlong.
+	 * 
+	 * @param in {@link ByteBuffer} to read from
+	 * @return the value read
+	 */
+	private static long getVarlong(ByteBuffer in) {
+		long v = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return v;
+		}
+		throw new IllegalArgumentException("Malformed varlong");
+	}
+
+}
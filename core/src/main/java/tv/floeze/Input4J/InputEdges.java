@@ -0,0 +1,320 @@
+package tv.floeze.Input4J;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which inputs were just pressed or just released by
+ * {@link Input4J#update()}. <br />
+ * 
+ * An input is pressed if its value is not 0. After every frame, the pressed
+ * state of the inputs is packed into a bitset and compared with the one of the
+ * previous frame. Only the groups of inputs set in the frame (see
+ * {@link DenseInputMap#touched()}) and the words of the bitset that had inputs
+ * pressed or released in the frame before are visited, so the cost grows with
+ * the number of inputs in use, not with the number of players and
+ * identifiers. Querying an edge is a single bit test, and
+ * {@link #nextChanged(int)} iterates only the inputs that changed.
+ * 
+ * Inputs are addressed by an index {@code player * stride + id}, which can be
+ * split using {@link #getPlayer(int)} and {@link #getAction(int)}.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class InputEdges<T> {
+
+	private final ActionRegistry<T> registry;
+
+	/**
+	 * Number of players of the bitsets
+	 */
+	private int players;
+
+	/**
+	 * Number of identifiers per player of the bitsets
+	 */
+	private int stride;
+
+	/**
+	 * Inputs pressed in the latest frame
+	 */
+	private long[] down = new long[0];
+
+	/**
+	 * Inputs pressed in the latest frame but not in the one before
+	 */
+	private long[] pressed = new long[0];
+
+	/**
+	 * Inputs pressed in the frame before the latest but not in the latest
+	 */
+	private long[] released = new long[0];
+
+	/**
+	 * Words of the bitsets with inputs pressed or just released in the latest
+	 * frame, in no particular order. They are visited by the next update.
+	 */
+	private int[] active = new int[0];
+
+	private int activeCount;
+
+	/**
+	 * Words of the bitsets with inputs just pressed or just released in the
+	 * latest frame, sorted
+	 */
+	private int[] changed = new int[0];
+
+	private int changedCount;
+
+	/**
+	 * Words of the bitsets to visit in an update
+	 */
+	private int[] visit = new int[0];
+
+	/**
+	 * One bit per word of the bitsets, set while the word is in {@link #visit}
+	 */
+	private long[] queued = new long[0];
+
+	/**
+	 * Creates a new {@link InputEdges} without any pressed inputs.
+	 * 
+	 * @param registry {@link ActionRegistry} resolving identifiers to ids
+	 */
+	InputEdges(ActionRegistry<T> registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Computes the edges between the latest frame and a new one.
+	 * 
+	 * @param frame {@link DenseInputMap} storing the inputs of the new frame
+	 */
+	void update(DenseInputMap<T> frame) {
+		if (frame.players() != players || frame.actions() != stride)
+			resize(frame.players(), frame.actions());
+		int n = 0;
+		for (int i = 0; i < activeCount; i++)
+			n = queue(active[i], n);
+		long[] t = frame.touched();
+		for (int w = 0; w < t.length; w++)
+			for (long bits = t[w]; bits != 0; bits &= bits - 1) {
+				int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+				for (int i = frame.groupStart(g) >>> 6, last = (frame.groupEnd(g) - 1) >>> 6; i <= last; i++)
+					n = queue(i, n);
+			}
+		short[] v = frame.array();
+		activeCount = 0;
+		changedCount = 0;
+		for (int k = 0; k < n; k++) {
+			int w = visit[k];
+			queued[w >>> 6] &= ~(1L << w);
+			int base = w << 6;
+			int end = Math.min(base + 64, v.length);
+			long bits = 0;
+			for (int i = base; i < end; i++)
+				if (v[i] != 0)
+					bits |= 1L << (i - base);
+			long previous = down[w];
+			down[w] = bits;
+			pressed[w] = bits & ~previous;
+			released[w] = previous & ~bits;
+			if ((bits | previous) != 0)
+				active[activeCount++] = w;
+			if (bits != previous)
+				changed[changedCount++] = w;
+		}
+		Arrays.sort(changed, 0, changedCount);
+	}
+
+	/**
+	 * Adds a word of the bitsets to {@link #visit}, unless it is already in it.
+	 * 
+	 * @param w index of word
+	 * @param n number of words in {@link #visit}
+	 * @return the new number of words in {@link #visit}
+	 */
+	private int queue(int w, int n) {
+		long bit = 1L << w;
+		if ((queued[w >>> 6] & bit) != 0)
+			return n;
+		queued[w >>> 6] |= bit;
+		visit[n] = w;
+		return n + 1;
+	}
+
+	/**
+	 * Changes the layout of the bitsets, keeping the pressed state of all inputs.
+	 * 
+	 * @param p new number of players
+	 * @param s new number of identifiers per player
+	 */
+	private void resize(int p, int s) {
+		int words = (p * s + 63) >>> 6;
+		long[] d = new long[words];
+		for (int player = 0; player < Math.min(players, p); player++)
+			for (int action = 0; action < Math.min(stride, s); action++)
+				if (test(down, player * stride + action))
+					d[(player * s + action) >>> 6] |= 1L << (player * s + action);
+		down = d;
+		pressed = new long[words];
+		released = new long[words];
+		active = new int[words];
+		activeCount = 0;
+		for (int w = 0; w < words; w++)
+			if (d[w] != 0)
+				active[activeCount++] = w;
+		changed = new int[words];
+		changedCount = 0;
+		visit = new int[words];
+		queued = new long[(words + 63) >>> 6];
+		players = p;
+		stride = s;
+	}
+
+	/**
+	 * Tests a bit of a bitset.
+	 * 
+	 * @param bits  bitset to test
+	 * @param index index of bit
+	 * @return true if the bit is set, false otherwise
+	 */
+	private static boolean test(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Gets the index of an input.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input
+	 * @return the index of the input, or -1 if it is not tracked
+	 */
+	private int index(int player, int action) {
+		if (player < 0 || player >= players || action < 0 || action >= stride)
+			return -1;
+		return player * stride + action;
+	}
+
+	/**
+	 * Checks if an input is pressed in the latest frame.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @return true if pressed, false otherwise
+	 */
+	public boolean isPressedById(int player, int action) {
+		int i = index(player, action);
+		return i >= 0 && test(down, i);
+	}
+
+	/**
+	 * Checks if an input was pressed in the latest frame but not in the one
+	 * before.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @return true if just pressed, false otherwise
+	 */
+	public boolean isJustPressedById(int player, int action) {
+		int i = index(player, action);
+		return i >= 0 && test(pressed, i);
+	}
+
+	/**
+	 * Checks if an input was pressed in the frame before the latest but not in
+	 * the latest.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @return true if just released, false otherwise
+	 */
+	public boolean isJustReleasedById(int player, int action) {
+		int i = index(player, action);
+		return i >= 0 && test(released, i);
+	}
+
+	/**
+	 * See {@link #isPressedById(int, int)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @return true if pressed, false otherwise
+	 */
+	public boolean isPressed(int player, T identifier) {
+		return isPressedById(player, registry.getId(identifier));
+	}
+
+	/**
+	 * See {@link #isJustPressedById(int, int)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @return true if just pressed, false otherwise
+	 */
+	public boolean isJustPressed(int player, T identifier) {
+		return isJustPressedById(player, registry.getId(identifier));
+	}
+
+	/**
+	 * See {@link #isJustReleasedById(int, int)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @return true if just released, false otherwise
+	 */
+	public boolean isJustReleased(int player, T identifier) {
+		return isJustReleasedById(player, registry.getId(identifier));
+	}
+
+	/**
+	 * Gets the index of the next input that was just pressed or just released.
+	 * 
+	 * <pre>
+	 * for (int i = edges.nextChanged(0); i &gt;= 0; i = edges.nextChanged(i + 1))
+	 * 	handle(edges.getPlayer(i), edges.getAction(i), edges.isPressedById(edges.getPlayer(i), edges.getAction(i)));
+	 * </pre>
+	 * 
+	 * @param fromIndex index to start searching at (inclusive)
+	 * @return the index of the next changed input, or -1 if there is none
+	 */
+	public int nextChanged(int fromIndex) {
+		if (fromIndex < 0)
+			fromIndex = 0;
+		int w = fromIndex >>> 6;
+		int k = Arrays.binarySearch(changed, 0, changedCount, w);
+		if (k < 0)
+			k = -k - 1;
+		for (; k < changedCount; k++) {
+			int c = changed[k];
+			long bits = pressed[c] | released[c];
+			if (c == w)
+				bits &= -1L << fromIndex;
+			if (bits != 0)
+				return (c << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the player of an index.
+	 * 
+	 * @param index index of input
+	 * @return the player of the input
+	 */
+	public int getPlayer(int index) {
+		return index / stride;
+	}
+
+	/**
+	 * Gets the id of the identifier of an index.
+	 * 
+	 * @param index index of input
+	 * @return the id of the identifier of the input (see {@link ActionRegistry})
+	 */
+	public int getAction(int index) {
+		return index % stride;
+	}
+
+}
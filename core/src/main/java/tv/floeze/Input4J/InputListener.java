@@ -0,0 +1,24 @@
+package tv.floeze.Input4J;
+
+/**
+ * A listener for changes of one input, see
+ * {@link Input4J#subscribe(int, Object, short, InputListener)}.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+@FunctionalInterface
+public interface InputListener<T> {
+
+	/**
+	 * Called by {@link Input4J#update()} when the input changed.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @param previous   value of input in the previous frame
+	 * @param value      value of input in the current frame
+	 */
+	public void inputChanged(int player, T identifier, short previous, short value);
+
+}
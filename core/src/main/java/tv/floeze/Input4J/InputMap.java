@@ -27,11 +27,46 @@ public class InputMap<T> {
 	 */
 	private final Map<Integer, Map<T, Short>> map;
 
+	/**
+	 * Registry resolving the ids of the {@code ById} methods. May be null.
+	 */
+	private final ActionRegistry<T> registry;
+
+	/**
+	 * Buffer collecting the samples of the current frame, or null to set samples
+	 * directly. Only set by {@link Input4J} while updating.
+	 */
+	SampleBuffer samples;
+
 	/**
 	 * Creates a new empty {@link InputMap}
 	 */
 	public InputMap() {
-		map = new HashMap<Integer, Map<T, Short>>();
+		this(null, true);
+	}
+
+	/**
+	 * Creates a new empty {@link InputMap} that resolves ids using an
+	 * {@link ActionRegistry}.
+	 * 
+	 * @param registry {@link ActionRegistry} to resolve ids with
+	 */
+	public InputMap(ActionRegistry<T> registry) {
+		this(registry, true);
+	}
+
+	/**
+	 * Creates a new empty {@link InputMap}.
+	 * 
+	 * Subclasses that store the inputs themselves can skip creating the default
+	 * storage. These have to override every method accessing the inputs.
+	 * 
+	 * @param registry {@link ActionRegistry} to resolve ids with
+	 * @param storage  true to create the default storage, false otherwise
+	 */
+	InputMap(ActionRegistry<T> registry, boolean storage) {
+		this.registry = registry;
+		map = storage ? new HashMap<Integer, Map<T, Short>>() : null;
 	}
 
 	/**
@@ -71,6 +106,122 @@ public class InputMap<T> {
 		return m.getOrDefault(identifier, (short) 0);
 	}
 
+	/**
+	 * Removes all inputs of all players.<br />
+	 * <b>This should only be done by the owner of the map!</b>
+	 */
+	public void clear() {
+		map.clear();
+	}
+
+	/**
+	 * Sets the value of an input using the id of its identifier.<br />
+	 * <b>This should only be done by input sources!</b><br />
+	 * <br />
+	 * See {@link #set(int, Object, short)}.
+	 * 
+	 * @param player player to set value for
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @param value  value of input to set to
+	 * @throws IllegalStateException if this {@link InputMap} has no
+	 *                               {@link ActionRegistry}
+	 */
+	public void setById(int player, int action, short value) {
+		set(player, getActionRegistry().getAction(action), value);
+	}
+
+	/**
+	 * Reports a timestamped sample of an input.<br />
+	 * <b>This should only be done by input sources!</b><br />
+	 * <br />
+	 * See {@link #sampleById(int, int, short, long)}.
+	 * 
+	 * @param player     player of input
+	 * @param identifier identifier of input
+	 * @param value      value of input
+	 * @param nanoTime   time the value was read (see {@link System#nanoTime()})
+	 */
+	public void sample(int player, T identifier, short value, long nanoTime) {
+		if (samples == null)
+			set(player, identifier, value);
+		else
+			sampleById(player, getActionRegistry().register(identifier), value, nanoTime);
+	}
+
+	/**
+	 * Reports a timestamped sample of an input using the id of its
+	 * identifier.<br />
+	 * <b>This should only be done by input sources!</b><br />
+	 * <br />
+	 * Unlike {@link #setById(int, int, short)}, this keeps every value an input
+	 * had since the last update, like a tap that started and ended in between.
+	 * When updated by {@link Input4J#update()}, all samples of an input are
+	 * combined using the {@link Aggregation} of its identifier (see
+	 * {@link Input4J#setAggregation(Object, Aggregation)}) and the time of the
+	 * first sample is available from {@link Input4J#getFirstSampleNanoTime()}.
+	 * Otherwise, this is the same as {@link #setById(int, int, short)}.
+	 * 
+	 * @param player   player of input
+	 * @param action   id of the identifier of input (see {@link ActionRegistry})
+	 * @param value    value of input
+	 * @param nanoTime time the value was read (see {@link System#nanoTime()})
+	 * @throws IllegalArgumentException if the id is negative
+	 */
+	public void sampleById(int player, int action, short value, long nanoTime) {
+		SampleBuffer s = samples;
+		// negative players are not sampled, only set
+		if (s == null || player < 0) {
+			setById(player, action, value);
+			return;
+		}
+		if (action < 0)
+			throw new IllegalArgumentException("Id must not be negative: " + action);
+		s.add(player, action, value, nanoTime);
+	}
+
+	/**
+	 * Gets the value for an input using the id of its identifier.
+	 * 
+	 * See {@link #get(int, Object)}.
+	 * 
+	 * @param player player to get input for
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @return value of input. If the player or identifier has no inputs set, this
+	 *         returns 0.
+	 * @throws IllegalStateException if this {@link InputMap} has no
+	 *                               {@link ActionRegistry}
+	 */
+	public short getById(int player, int action) {
+		ActionRegistry<T> r = getActionRegistry();
+		if (action < 0 || action >= r.size())
+			return 0;
+		return get(player, r.getAction(action));
+	}
+
+	/**
+	 * Gets the {@link ActionRegistry} resolving the ids of the {@code ById}
+	 * methods.
+	 * 
+	 * @return the {@link ActionRegistry} of this {@link InputMap}
+	 * @throws IllegalStateException if this {@link InputMap} has no
+	 *                               {@link ActionRegistry}
+	 */
+	public ActionRegistry<T> getActionRegistry() {
+		if (registry == null)
+			throw new IllegalStateException("InputMap has no ActionRegistry");
+		return registry;
+	}
+
+	/**
+	 * Sets every input of this {@link InputMap} in another {@link InputMap},
+	 * using {@link #set(int, Object, short)}.
+	 * 
+	 * @param target {@link InputMap} to set inputs in
+	 */
+	void mergeInto(InputMap<T> target) {
+		map.forEach((player, m) -> m.forEach((identifier, value) -> target.set(player, identifier, value)));
+	}
+
 	@Override
 	public String toString() {
 		return map.toString();
@@ -0,0 +1,219 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records frames to a binary log that can be replayed by a
+ * {@link ReplayInputSource}. <br />
+ * 
+ * Every frame is appended as a record storing only the inputs that changed
+ * since the previous frame (see {@link InputDeltaCodec}). Every
+ * {@link #getKeyframeInterval()} frames, a keyframe storing all inputs is
+ * written instead, so a replay can seek to any frame without decoding the whole
+ * log. <br />
+ * 
+ * The log is written through memory mapped regions of the file, so recording
+ * a long session doesn't grow the heap. The header is updated after every
+ * frame, so the log stays readable up to the last complete frame even if the
+ * application crashes. <br />
+ * 
+ * The log stores ids of identifiers (see {@link ActionRegistry}), so the
+ * {@link Input4J} replaying it has to assign the same ids, which is always the
+ * case for {@link EnumActionRegistry}s.
+ * 
+ * <pre>
+ * header:   int magic, short version, short reserved, int keyframe interval,
+ *           int reserved, long end of last record, long number of frames
+ * record:   int length of data, byte type (0 = delta, 1 = keyframe), data
+ * </pre>
+ * 
+ * @author Floeze
+ *
+ */
+public final class InputRecorder implements Closeable {
+
+	/**
+	 * "I4JR"
+	 */
+	static final int MAGIC = 0x49344A52;
+
+	static final short VERSION = 2;
+
+	static final int HEADER_SIZE = 32;
+
+	static final int KEYFRAME_INTERVAL_OFFSET = 8;
+
+	static final int END_OFFSET = 16;
+
+	static final int FRAMES_OFFSET = 24;
+
+	/**
+	 * Size of the header of a record
+	 */
+	static final int RECORD_HEADER_SIZE = 5;
+
+	static final byte DELTA = 0;
+
+	static final byte KEYFRAME = 1;
+
+	/**
+	 * Default number of frames between two keyframes
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 256;
+
+	/**
+	 * Minimum size of a mapped region of the file
+	 */
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer header;
+
+	private final int keyframeInterval;
+
+	/**
+	 * Region of the file records are currently written to
+	 */
+	private MappedByteBuffer chunk;
+
+	/**
+	 * Position of {@link #chunk} in the file
+	 */
+	private long chunkStart;
+
+	/**
+	 * Inputs of the latest recorded frame
+	 */
+	private final DenseInputMap<Object> previous = new DenseInputMap<Object>(1, 1);
+
+	/**
+	 * Buffer to encode records into before they are copied to {@link #chunk}, so
+	 * a new region is only mapped when the encoded record doesn't fit, not
+	 * whenever the largest possible one wouldn't
+	 */
+	private ByteBuffer scratch = ByteBuffer.allocate(0);
+
+	private long frames;
+
+	/**
+	 * Creates a new {@link InputRecorder} writing a keyframe every
+	 * {@value #DEFAULT_KEYFRAME_INTERVAL} frames. If the file exists, it is
+	 * overwritten.
+	 * 
+	 * @param file {@link File} to write log to
+	 * @throws IOException if the file could not be opened
+	 */
+	public InputRecorder(File file) throws IOException {
+		this(file, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Creates a new {@link InputRecorder}. If the file exists, it is overwritten.
+	 * 
+	 * @param file             {@link File} to write log to
+	 * @param keyframeInterval number of frames between two keyframes
+	 * @throws IOException if the file could not be opened
+	 */
+	public InputRecorder(File file, int keyframeInterval) throws IOException {
+		if (keyframeInterval < 1)
+			throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+		this.keyframeInterval = keyframeInterval;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.putInt(0, MAGIC);
+		header.putShort(4, VERSION);
+		header.putInt(KEYFRAME_INTERVAL_OFFSET, keyframeInterval);
+		header.putLong(END_OFFSET, HEADER_SIZE);
+		header.putLong(FRAMES_OFFSET, 0);
+		chunkStart = HEADER_SIZE;
+	}
+
+	/**
+	 * Appends a frame to the log.
+	 * 
+	 * @param frame {@link DenseInputMap} storing the inputs of the frame
+	 * @throws IOException if a new region of the file could not be mapped
+	 */
+	void record(DenseInputMap<?> frame) throws IOException {
+		if (!channel.isOpen())
+			throw new IOException("Recorder is closed");
+		boolean key = frames % keyframeInterval == 0;
+		int max = RECORD_HEADER_SIZE + InputDeltaCodec.maxSize(frame, previous);
+		if (scratch.capacity() < max)
+			scratch = ByteBuffer.allocate(Math.max(max, scratch.capacity() * 2));
+		ByteBuffer s = scratch;
+		s.clear().position(RECORD_HEADER_SIZE);
+		InputDeltaCodec.encode(s, frame, key ? null : previous);
+		s.putInt(0, s.position() - RECORD_HEADER_SIZE);
+		s.put(4, key ? KEYFRAME : DELTA);
+		s.flip();
+		ByteBuffer b = reserve(s.remaining());
+		b.put(s);
+		previous.copyFrom(frame);
+		frames++;
+		header.putLong(END_OFFSET, chunkStart + b.position());
+		header.putLong(FRAMES_OFFSET, frames);
+	}
+
+	/**
+	 * Gets the region to write the next record to, mapping a new one if the
+	 * current one doesn't have enough room.
+	 * 
+	 * @param size size of the record
+	 * @return the region to write to, positioned at the end of the log
+	 * @throws IOException if a new region could not be mapped
+	 */
+	private ByteBuffer reserve(int size) throws IOException {
+		if (chunk == null || chunk.remaining() < size) {
+			long end = chunk == null ? chunkStart : chunkStart + chunk.position();
+			chunk = channel.map(MapMode.READ_WRITE, end, Math.max(CHUNK_SIZE, size));
+			chunkStart = end;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Gets the number of recorded frames.
+	 * 
+	 * @return the number of recorded frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Gets the number of frames between two keyframes.
+	 * 
+	 * @return the number of frames between two keyframes
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * Stops recording and cuts the file to the size of the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!channel.isOpen())
+			return;
+		try {
+			if (chunk != null)
+				chunk.force();
+			header.force();
+			channel.truncate(header.getLong(END_OFFSET));
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package tv.floeze.Input4J;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The inputs of the latest frame published by {@link Input4J#update()},
+ * readable from any thread. <br />
+ * 
+ * There is a single writer (the thread calling {@link Input4J#update()}) and any
+ * number of readers. Writing copies the frame into this snapshot inside a
+ * sequence lock ({@link StampedLock}); readers use optimistic reads and retry if
+ * a frame was published while they were reading. Readers therefore never take
+ * a lock, never block the writer and never see values of two different frames
+ * in one read. Neither reading nor publishing allocates once the snapshot has
+ * the size of the frames.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class InputSnapshot<T> {
+
+	private final ActionRegistry<T> registry;
+
+	private final StampedLock lock = new StampedLock();
+
+	private int players;
+
+	private int actions;
+
+	private short[] values = new short[0];
+
+	private long frame;
+
+	/**
+	 * Creates a new empty {@link InputSnapshot}.
+	 * 
+	 * @param registry {@link ActionRegistry} resolving identifiers to ids
+	 */
+	InputSnapshot(ActionRegistry<T> registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Publishes a new frame. Must only be called by one thread.
+	 * 
+	 * @param d {@link DenseInputMap} storing the inputs of the frame
+	 */
+	void publish(DenseInputMap<T> d) {
+		short[] v = d.array();
+		long stamp = lock.writeLock();
+		try {
+			if (values.length != v.length)
+				values = new short[v.length];
+			System.arraycopy(v, 0, values, 0, v.length);
+			players = d.players();
+			actions = d.actions();
+			frame++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the value of an input in the latest frame.
+	 * 
+	 * @param player     player to get input for
+	 * @param identifier identifier of input
+	 * @return value of input. If the player or identifier has no inputs set, this
+	 *         returns 0.
+	 */
+	public short get(int player, T identifier) {
+		return getById(player, registry.getId(identifier));
+	}
+
+	/**
+	 * Gets the value of an input in the latest frame using the id of its
+	 * identifier.
+	 * 
+	 * @param player player to get input for
+	 * @param action id of the identifier of input (see {@link ActionRegistry})
+	 * @return value of input. If the player or identifier has no inputs set, this
+	 *         returns 0.
+	 */
+	public short getById(int player, int action) {
+		for (;;) {
+			long stamp = lock.tryOptimisticRead();
+			short value = 0;
+			int p = players;
+			int a = actions;
+			short[] v = values;
+			if (player >= 0 && player < p && action >= 0 && action < a && player * a + action < v.length)
+				value = v[player * a + action];
+			if (stamp != 0 && lock.validate(stamp))
+				return value;
+		}
+	}
+
+	/**
+	 * Copies the latest frame into an {@link InputMap}, replacing all of its
+	 * inputs. All values are guaranteed to be from the same frame. <br />
+	 * 
+	 * This does not allocate if the {@link DenseInputMap} already has the size of
+	 * the frames, so a reader can keep one {@link DenseInputMap} and copy every
+	 * frame into it.
+	 * 
+	 * @param target {@link DenseInputMap} to copy into
+	 * @return the number of the copied frame (see {@link #getFrame()})
+	 */
+	public long copyTo(DenseInputMap<T> target) {
+		for (;;) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0)
+				continue;
+			int p = players;
+			int a = actions;
+			short[] v = values;
+			long f = frame;
+			if (!lock.validate(stamp))
+				continue;
+			target.clear();
+			target.ensureCapacity(p, a);
+			short[] t = target.array();
+			int stride = target.actions();
+			for (int player = 0; player < p; player++)
+				System.arraycopy(v, player * a, t, player * stride, a);
+			target.retouch();
+			if (lock.validate(stamp))
+				return f;
+		}
+	}
+
+	/**
+	 * Gets the number of the latest frame. This starts at 0 before the first
+	 * frame is published and increases by one with every frame.
+	 * 
+	 * @return the number of the latest frame
+	 */
+	public long getFrame() {
+		for (;;) {
+			long stamp = lock.tryOptimisticRead();
+			long f = frame;
+			if (stamp != 0 && lock.validate(stamp))
+				return f;
+		}
+	}
+
+	/**
+	 * Gets the {@link ActionRegistry} resolving identifiers to ids.
+	 * 
+	 * @return the {@link ActionRegistry} of this snapshot
+	 */
+	public ActionRegistry<T> getActionRegistry() {
+		return registry;
+	}
+
+}
@@ -13,7 +13,7 @@ package tv.floeze.Input4J;
  */
 public abstract class InputSourceImpl implements InputSource {
 
-	private boolean enabled = false;
+	private volatile boolean enabled = false;
 
 	/**
 	 * This method is called, when this {@link InputSource} is asked to enable and
@@ -42,6 +42,9 @@ public abstract class InputSourceImpl implements InputSource {
 	 * 
 	 * See {@link InputSource#update(InputMap, InputConfiguration)}
 	 * 
+	 * Use {@link InputConfiguration#getBindings(Class)} to read the configuration
+	 * without hashing or allocating.
+	 * 
 	 * @param <T>    Type of identifier
 	 * @param map    {@link InputMap} to write values to
 	 * @param config {@link InputConfiguration} storing the configurations for the
@@ -73,16 +76,29 @@ public abstract class InputSourceImpl implements InputSource {
 	 */
 	protected abstract <T> boolean handleSetInput(int player, T name, short value, InputConfiguration<T> config);
 
+	/**
+	 * Called when this {@link InputSource} was enabled or disabled successfully,
+	 * before the new state is visible to {@link #isEnabled()}.
+	 * 
+	 * @param enabled true if it is being enabled, false if it is being disabled
+	 */
+	void enabledChanged(boolean enabled) {
+	}
+
 	@Override
 	public final void enable() {
-		if (!enabled)
-			enabled = handleEnable();
+		if (!enabled && handleEnable()) {
+			enabledChanged(true);
+			enabled = true;
+		}
 	}
 
 	@Override
 	public final void disable() {
-		if (enabled)
-			enabled = !handleDisable();
+		if (enabled && handleDisable()) {
+			enabledChanged(false);
+			enabled = false;
+		}
 	}
 
 	@Override
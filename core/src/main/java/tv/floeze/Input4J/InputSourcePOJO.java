@@ -0,0 +1,20 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+/**
+ * POJO for serializing {@link InputConfiguration}
+ * 
+ * @author Floeze
+ *
+ */
+final class InputSourcePOJO {
+
+	@JacksonXmlProperty(isAttribute = true, localName = "for")
+	public String className;
+
+	@JacksonXmlProperty(localName = "key")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public SourceConfigPOJO<?>[] sourceConfigs;
+}
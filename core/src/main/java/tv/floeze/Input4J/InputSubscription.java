@@ -0,0 +1,61 @@
+package tv.floeze.Input4J;
+
+/**
+ * A subscription of an {@link InputListener} to one input. Returned by
+ * {@link Input4J#subscribe(int, Object, short, InputListener)}.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class InputSubscription<T> {
+
+	private final ListenerDispatcher<T> dispatcher;
+
+	final int player;
+
+	final int action;
+
+	final short threshold;
+
+	final InputListener<T> listener;
+
+	/**
+	 * Creates a new {@link InputSubscription}.
+	 * 
+	 * @param dispatcher {@link ListenerDispatcher} calling the listener
+	 * @param player     player of input
+	 * @param action     id of the identifier of input
+	 * @param threshold  threshold of the listener, or 0 to be called on every
+	 *                   change
+	 * @param listener   {@link InputListener} to call
+	 */
+	InputSubscription(ListenerDispatcher<T> dispatcher, int player, int action, short threshold,
+			InputListener<T> listener) {
+		this.dispatcher = dispatcher;
+		this.player = player;
+		this.action = action;
+		this.threshold = threshold;
+		this.listener = listener;
+	}
+
+	/**
+	 * Checks if the listener has to be called for a change.
+	 * 
+	 * @param previous value of input in the previous frame
+	 * @param value    value of input in the current frame
+	 * @return true if the listener has to be called, false otherwise
+	 */
+	boolean accepts(short previous, short value) {
+		return threshold == 0 || (Math.abs(previous) >= threshold) != (Math.abs(value) >= threshold);
+	}
+
+	/**
+	 * Cancels this subscription. The listener won't be called by any following
+	 * {@link Input4J#update()}.
+	 */
+	public void cancel() {
+		dispatcher.remove(this);
+	}
+
+}
@@ -0,0 +1,304 @@
+package tv.floeze.Input4J;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calls the {@link InputListener}s of all inputs that changed in a frame.
+ * <br />
+ * 
+ * The subscriptions are compiled into dispatch arrays: the index of every
+ * subscribed input in the frame, its value in the previous frame and the
+ * subscriptions of that input, sorted by player and identifier, plus the
+ * subscribed inputs of every group of the frame (see
+ * {@link DenseInputMap#touched()}). Dispatching only compares the subscribed
+ * inputs of the groups set in the frame and the ones that were not 0 in the
+ * previous frame, and only calls the listeners of inputs that changed; the
+ * number of subscriptions doesn't matter unless their inputs are used.
+ * Dispatching does not allocate.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ListenerDispatcher<T> {
+
+	private static final Comparator<InputSubscription<?>> ORDER = (a, b) -> a.player != b.player
+			? Integer.compare(a.player, b.player)
+			: Integer.compare(a.action, b.action);
+
+	private final ActionRegistry<T> registry;
+
+	/**
+	 * All subscriptions in the order they were made
+	 */
+	private final List<InputSubscription<T>> subscriptions = new ArrayList<InputSubscription<T>>();
+
+	/**
+	 * Whether the dispatch arrays have to be compiled again
+	 */
+	private boolean modified;
+
+	/**
+	 * Number of players of the frames the dispatch arrays were compiled for
+	 */
+	private int players = -1;
+
+	/**
+	 * Number of identifiers per player of the frames the dispatch arrays were
+	 * compiled for
+	 */
+	private int stride = -1;
+
+	/**
+	 * Index of each subscribed input in the frame
+	 */
+	private int[] slots = new int[0];
+
+	/**
+	 * Value of each subscribed input in the previous frame
+	 */
+	private short[] last = new short[0];
+
+	/**
+	 * Subscriptions of each subscribed input
+	 */
+	private InputSubscription<T>[][] targets;
+
+	/**
+	 * Subscribed inputs of each group of the frame: the ones of group g are
+	 * between {@code groups[g]} (inclusive) and {@code groups[g + 1]} (exclusive)
+	 */
+	private int[] groups = new int[1];
+
+	/**
+	 * Subscribed inputs that were not 0 in the previous frame, in no particular
+	 * order
+	 */
+	private int[] set = new int[0];
+
+	private int setCount;
+
+	/**
+	 * Subscribed inputs to compare in a frame
+	 */
+	private int[] visit = new int[0];
+
+	/**
+	 * {@link #round} in which each subscribed input was added to {@link #visit}
+	 */
+	private int[] visited = new int[0];
+
+	/**
+	 * Number of the current dispatch, to tell which inputs are in
+	 * {@link #visit}
+	 */
+	private int round;
+
+	/**
+	 * Creates a new {@link ListenerDispatcher} without subscriptions.
+	 * 
+	 * @param registry {@link ActionRegistry} resolving ids to identifiers
+	 */
+	@SuppressWarnings("unchecked")
+	ListenerDispatcher(ActionRegistry<T> registry) {
+		this.registry = registry;
+		this.targets = (InputSubscription<T>[][]) new InputSubscription<?>[0][];
+	}
+
+	/**
+	 * Adds a subscription.
+	 * 
+	 * @param player    player of input
+	 * @param action    id of the identifier of input
+	 * @param threshold threshold of the listener, or 0 to be called on every
+	 *                  change
+	 * @param listener  {@link InputListener} to call
+	 * @return the new {@link InputSubscription}
+	 */
+	InputSubscription<T> add(int player, int action, short threshold, InputListener<T> listener) {
+		if (player < 0 || action < 0)
+			throw new IllegalArgumentException("Player and id must not be negative: " + player + ", " + action);
+		if (threshold < 0)
+			throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+		InputSubscription<T> s = new InputSubscription<T>(this, player, action, threshold, listener);
+		subscriptions.add(s);
+		modified = true;
+		return s;
+	}
+
+	/**
+	 * Removes a subscription.
+	 * 
+	 * @param s {@link InputSubscription} to remove
+	 */
+	void remove(InputSubscription<T> s) {
+		if (subscriptions.remove(s))
+			modified = true;
+	}
+
+	/**
+	 * Calls the listeners of all inputs that changed since the previous frame.
+	 * 
+	 * @param frame {@link DenseInputMap} storing the inputs of the current frame
+	 */
+	void dispatch(DenseInputMap<T> frame) {
+		if (modified || frame.players() != players || frame.actions() != stride)
+			compile(frame.players(), frame.actions(), frame.words());
+		if (++round == 0) {
+			Arrays.fill(visited, 0);
+			round = 1;
+		}
+		int[] g = groups;
+		int n = 0;
+		long[] touched = frame.touched();
+		for (int w = 0; w < touched.length; w++)
+			for (long bits = touched[w]; bits != 0; bits &= bits - 1) {
+				int group = (w << 6) + Long.numberOfTrailingZeros(bits);
+				for (int k = g[group], end = g[group + 1]; k < end; k++)
+					n = queue(k, n);
+			}
+		for (int j = 0; j < setCount; j++)
+			n = queue(set[j], n);
+		// called in the order of the subscribed inputs
+		Arrays.sort(visit, 0, n);
+		int[] s = slots;
+		short[] l = last;
+		InputSubscription<T>[][] t = targets;
+		int[] v = visit;
+		short[] values = frame.array();
+		setCount = 0;
+		for (int j = 0; j < n; j++) {
+			int k = v[j];
+			int i = s[k];
+			short value = i < 0 ? 0 : values[i];
+			short previous = l[k];
+			if (value != 0)
+				set[setCount++] = k;
+			if (value == previous)
+				continue;
+			l[k] = value;
+			for (InputSubscription<T> sub : t[k])
+				if (sub.accepts(previous, value))
+					sub.listener.inputChanged(sub.player, registry.getAction(sub.action), previous, value);
+		}
+	}
+
+	/**
+	 * Adds a subscribed input to {@link #visit}, unless it is already in it.
+	 * 
+	 * @param k index of subscribed input
+	 * @param n number of inputs in {@link #visit}
+	 * @return the new number of inputs in {@link #visit}
+	 */
+	private int queue(int k, int n) {
+		if (visited[k] == round)
+			return n;
+		visited[k] = round;
+		visit[n] = k;
+		return n + 1;
+	}
+
+	/**
+	 * Compiles the dispatch arrays for frames of a size, keeping the previous
+	 * values of inputs that stay subscribed.
+	 * 
+	 * @param p     number of players of the frames
+	 * @param a     number of identifiers per player of the frames
+	 * @param words number of groups per player of the frames
+	 */
+	@SuppressWarnings("unchecked")
+	private void compile(int p, int a, int words) {
+		InputSubscription<T>[] sorted = subscriptions
+				.toArray((InputSubscription<T>[]) new InputSubscription<?>[subscriptions.size()]);
+		// stable, so listeners of the same input are called in the order they subscribed
+		Arrays.sort(sorted, ORDER);
+		int n = 0;
+		for (int i = 0; i < sorted.length; i++)
+			if (i == 0 || ORDER.compare(sorted[i - 1], sorted[i]) != 0)
+				n++;
+		int[] s = new int[n];
+		short[] l = new short[n];
+		InputSubscription<T>[][] t = (InputSubscription<T>[][]) new InputSubscription<?>[n][];
+		for (int i = 0, k = 0; i < sorted.length; k++) {
+			int j = i;
+			while (j < sorted.length && ORDER.compare(sorted[i], sorted[j]) == 0)
+				j++;
+			InputSubscription<T> first = sorted[i];
+			s[k] = first.player < p && first.action < a ? first.player * a + first.action : -1;
+			l[k] = previous(first.player, first.action);
+			t[k] = Arrays.copyOfRange(sorted, i, j);
+			i = j;
+		}
+		// inputs outside of the frames are sorted behind the last group of their player
+		int[] g = new int[p * words + 1];
+		for (int group = 0, k = 0; group < g.length; group++) {
+			while (k < n && group(t[k][0], p, a, words) < group)
+				k++;
+			g[group] = k;
+		}
+		int[] set = new int[n];
+		int count = 0;
+		for (int k = 0; k < n; k++)
+			if (l[k] != 0)
+				set[count++] = k;
+		slots = s;
+		last = l;
+		targets = t;
+		groups = g;
+		this.set = set;
+		setCount = count;
+		visit = new int[n];
+		visited = new int[n];
+		round = 0;
+		players = p;
+		stride = a;
+		modified = false;
+	}
+
+	/**
+	 * Gets the group of the frames of a subscribed input.
+	 * 
+	 * @param s     {@link InputSubscription} of input
+	 * @param p     number of players of the frames
+	 * @param a     number of identifiers per player of the frames
+	 * @param words number of groups per player of the frames
+	 * @return the group of the input, or the group after the last one of its
+	 *         player if the input is outside of the frames
+	 */
+	private static int group(InputSubscription<?> s, int p, int a, int words) {
+		if (s.player >= p)
+			return p * words;
+		if (s.action >= a)
+			return (s.player + 1) * words;
+		return s.player * words + (s.action >>> 6);
+	}
+
+	/**
+	 * Gets the value of an input in the previous frame from the current dispatch
+	 * arrays.
+	 * 
+	 * @param player player of input
+	 * @param action id of the identifier of input
+	 * @return the value of the input, or 0 if it wasn't subscribed
+	 */
+	private short previous(int player, int action) {
+		int low = 0;
+		int high = targets.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			InputSubscription<T> s = targets[mid][0];
+			int c = s.player != player ? Integer.compare(s.player, player) : Integer.compare(s.action, action);
+			if (c == 0)
+				return last[mid];
+			if (c < 0)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,219 @@
+package tv.floeze.Input4J;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Updates multiple {@link InputSource}s at the same time on an
+ * {@link Executor}. <br />
+ * 
+ * Each {@link InputSource} writes into its own {@link InputMap}. Afterwards
+ * these are merged in the order of the {@link InputSource}s, with the same rule
+ * as {@link InputMap#set(int, Object, short)}. The result is therefore the
+ * same as updating the {@link InputSource}s one after another, no matter in
+ * which order they finish. Samples (see
+ * {@link InputMap#sampleById(int, int, short, long)}) are collected in one
+ * {@link SampleBuffer} per {@link InputSource} and appended in the same order.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ParallelPoller<T> {
+
+	private final Executor executor;
+
+	private final InputSource[] sources;
+
+	/**
+	 * One {@link InputMap} for each {@link InputSource}, or null to create new
+	 * ones on every update
+	 */
+	private final DenseInputMap<T>[] partials;
+
+	/**
+	 * One {@link SampleBuffer} for each {@link InputSource}, created when samples
+	 * are collected for the first time
+	 */
+	private SampleBuffer[] samples;
+
+	/**
+	 * One task for each {@link InputSource}, updating it
+	 */
+	private final Runnable[] tasks;
+
+	/**
+	 * Number of tasks that did not finish yet
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * {@link InputMap}s the current update writes into
+	 */
+	private final InputMap<T>[] maps;
+
+	/**
+	 * {@link InputConfiguration} of the current update
+	 */
+	private volatile InputConfiguration<T> config;
+
+	/**
+	 * {@link SourceMetrics} of the current update, or null if not measuring
+	 */
+	private volatile SourceMetrics[] metrics;
+
+	/**
+	 * Thread waiting for the current update
+	 */
+	private volatile Thread waiter;
+
+	/**
+	 * First exception thrown by a task of the current update
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Creates a new {@link ParallelPoller}.
+	 * 
+	 * @param executor {@link Executor} to update {@link InputSource}s on
+	 * @param sources  {@link InputSource}s to update
+	 * @param registry {@link ActionRegistry} to create reusable {@link InputMap}s
+	 *                 with, or null to create new {@link InputMap}s on every
+	 *                 update
+	 * @param players  expected number of players of reusable {@link InputMap}s
+	 */
+	@SuppressWarnings("unchecked")
+	ParallelPoller(Executor executor, InputSource[] sources, ActionRegistry<T> registry, int players) {
+		this.executor = executor;
+		this.sources = sources;
+		this.maps = (InputMap<T>[]) new InputMap<?>[sources.length];
+		this.tasks = new Runnable[sources.length];
+		if (registry != null) {
+			partials = (DenseInputMap<T>[]) new DenseInputMap<?>[sources.length];
+			for (int i = 0; i < sources.length; i++)
+				partials[i] = new DenseInputMap<T>(registry, players);
+		} else {
+			partials = null;
+		}
+		for (int i = 0; i < sources.length; i++) {
+			final int index = i;
+			tasks[i] = () -> run(index);
+		}
+	}
+
+	/**
+	 * Checks if this {@link ParallelPoller} was created for the given arguments.
+	 * 
+	 * @param executor {@link Executor} to update {@link InputSource}s on
+	 * @param sources  {@link InputSource}s to update
+	 * @param reuse    whether {@link InputMap}s should be reused
+	 * @return true if it can be used for them, false otherwise
+	 */
+	boolean isFor(Executor executor, InputSource[] sources, boolean reuse) {
+		return this.executor == executor && this.sources == sources && (partials != null) == reuse;
+	}
+
+	/**
+	 * Updates all {@link InputSource}s at the same time and merges their inputs
+	 * into an {@link InputMap}.
+	 * 
+	 * @param map     {@link InputMap} to store inputs in
+	 * @param config  {@link InputConfiguration} storing the input configurations
+	 * @param metrics {@link SourceMetrics} of each {@link InputSource} to record
+	 *                the updates in, or null to not measure them
+	 */
+	void update(InputMap<T> map, InputConfiguration<T> config, SourceMetrics[] metrics) {
+		int n = sources.length;
+		if (n == 0)
+			return;
+		for (int i = 0; i < n; i++) {
+			if (partials == null) {
+				maps[i] = new InputMap<T>(config.getActionRegistry());
+			} else {
+				partials[i].clear();
+				maps[i] = partials[i];
+			}
+		}
+		if (map.samples != null) {
+			if (samples == null) {
+				samples = new SampleBuffer[n];
+				for (int i = 0; i < n; i++)
+					samples[i] = new SampleBuffer();
+			}
+			for (int i = 0; i < n; i++)
+				maps[i].samples = samples[i];
+		}
+		this.config = config;
+		this.metrics = metrics;
+		failure = null;
+		waiter = Thread.currentThread();
+		pending.set(n);
+		for (int i = 1; i < n; i++) {
+			try {
+				executor.execute(tasks[i]);
+			} catch (RejectedExecutionException e) {
+				run(i);
+			}
+		}
+		run(0);
+		while (pending.get() != 0)
+			LockSupport.park(this);
+		waiter = null;
+		this.config = null;
+		this.metrics = null;
+
+		Throwable t = failure;
+		if (t != null) {
+			failure = null;
+			for (int i = 0; i < n; i++) {
+				if (maps[i].samples != null)
+					maps[i].samples.clear();
+				maps[i].samples = null;
+				maps[i] = null;
+			}
+			if (t instanceof RuntimeException)
+				throw (RuntimeException) t;
+			if (t instanceof Error)
+				throw (Error) t;
+			throw new RuntimeException(t);
+		}
+		for (int i = 0; i < n; i++) {
+			maps[i].mergeInto(map);
+			if (maps[i].samples != null) {
+				maps[i].samples.drainTo(map.samples);
+				maps[i].samples = null;
+			}
+			maps[i] = null;
+		}
+	}
+
+	/**
+	 * Updates one {@link InputSource} and wakes up the waiting thread if it was
+	 * the last one.
+	 * 
+	 * @param i index of {@link InputSource}
+	 */
+	private void run(int i) {
+		Object event = Events.beginPoll();
+		try {
+			SourceMetrics[] m = metrics;
+			if (m == null) {
+				sources[i].update(maps[i], config);
+			} else {
+				long start = System.nanoTime();
+				sources[i].update(maps[i], config);
+				m[i].record(SourceMetrics.Operation.UPDATE, System.nanoTime() - start);
+			}
+		} catch (Throwable t) {
+			if (failure == null)
+				failure = t;
+		} finally {
+			Events.endPoll(event, sources[i]);
+			if (pending.decrementAndGet() == 0)
+				LockSupport.unpark(waiter);
+		}
+	}
+
+}
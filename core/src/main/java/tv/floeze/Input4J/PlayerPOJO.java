@@ -0,0 +1,19 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+/**
+ * POJO for serializing {@link InputConfiguration}
+ * 
+ * @author Floeze
+ *
+ */
+final class PlayerPOJO {
+	@JacksonXmlProperty(isAttribute = true, localName = "num")
+	public int num;
+
+	@JacksonXmlProperty(localName = "configs")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public InputSourcePOJO[] inputSourceConfigs;
+}
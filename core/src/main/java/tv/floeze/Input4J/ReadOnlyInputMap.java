@@ -0,0 +1,78 @@
+package tv.floeze.Input4J;
+
+/**
+ * A read-only view of another {@link InputMap}. Every method changing the
+ * inputs throws an {@link UnsupportedOperationException}.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ReadOnlyInputMap<T> extends InputMap<T> {
+
+	/**
+	 * The {@link InputMap} this is a view of
+	 */
+	private final InputMap<T> map;
+
+	/**
+	 * Creates a new read-only view of an {@link InputMap}.
+	 * 
+	 * @param map {@link InputMap} to create view of
+	 */
+	ReadOnlyInputMap(InputMap<T> map) {
+		super(null, false);
+		this.map = map;
+	}
+
+	@Override
+	public void set(int player, T identifier, short value) {
+		throw new UnsupportedOperationException("InputMap is read-only");
+	}
+
+	@Override
+	public void setById(int player, int action, short value) {
+		throw new UnsupportedOperationException("InputMap is read-only");
+	}
+
+	@Override
+	public void sample(int player, T identifier, short value, long nanoTime) {
+		throw new UnsupportedOperationException("InputMap is read-only");
+	}
+
+	@Override
+	public void sampleById(int player, int action, short value, long nanoTime) {
+		throw new UnsupportedOperationException("InputMap is read-only");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("InputMap is read-only");
+	}
+
+	@Override
+	public short get(int player, T identifier) {
+		return map.get(player, identifier);
+	}
+
+	@Override
+	public short getById(int player, int action) {
+		return map.getById(player, action);
+	}
+
+	@Override
+	public ActionRegistry<T> getActionRegistry() {
+		return map.getActionRegistry();
+	}
+
+	@Override
+	void mergeInto(InputMap<T> target) {
+		map.mergeInto(target);
+	}
+
+	@Override
+	public String toString() {
+		return map.toString();
+	}
+
+}
@@ -0,0 +1,198 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Sends inputs to a {@link RemoteInputSource} over the network. <br />
+ * 
+ * Inputs are set for the current frame, which is ended with
+ * {@link #endFrame()} (or set and ended at once with
+ * {@link #publish(InputMap)}). Ended frames are batched: only the inputs that
+ * changed since the previous frame are encoded (see {@link InputDeltaCodec})
+ * and appended to a buffer, which is sent with {@link #flush()}. All frames of
+ * a flush are sent as one packet, so a client polling faster than it sends
+ * only needs one write per flush. <br />
+ * 
+ * Writing never blocks. If the connection can't keep up, the remaining data is
+ * kept and sent with the next flush, up to {@value #MAX_PENDING} bytes.
+ * <br />
+ * 
+ * Inputs are sent as ids of identifiers (see {@link ActionRegistry}), so the
+ * {@link Input4J} receiving them has to assign the same ids, which is always
+ * the case for {@link EnumActionRegistry}s. Players are sent as they are, so
+ * clients of different players have to use different player numbers.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+public final class RemoteInputPublisher<T> implements Closeable {
+
+	/**
+	 * Maximum number of bytes waiting to be sent
+	 */
+	public static final int MAX_PENDING = 4 << 20;
+
+	private final SocketChannel channel;
+
+	/**
+	 * Inputs of the current frame
+	 */
+	private final DenseInputMap<T> current;
+
+	/**
+	 * Inputs of the previous frame
+	 */
+	private final DenseInputMap<Object> previous = new DenseInputMap<Object>(1, 1);
+
+	/**
+	 * Data waiting to be sent, ready for writing
+	 */
+	private ByteBuffer out = ByteBuffer.allocate(1024);
+
+	/**
+	 * Position of the header of the packet currently written, or -1 if none is
+	 */
+	private int packet = -1;
+
+	/**
+	 * Connects to a {@link RemoteInputSource}. Connecting blocks, sending does
+	 * not.
+	 * 
+	 * @param address  address of the {@link RemoteInputSource}
+	 * @param registry {@link ActionRegistry} assigning ids to the identifiers
+	 * @throws IOException if the connection could not be established
+	 */
+	public RemoteInputPublisher(SocketAddress address, ActionRegistry<T> registry) throws IOException {
+		current = new DenseInputMap<T>(registry, 1);
+		channel = SocketChannel.open(address);
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.configureBlocking(false);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		out.putInt(RemoteInputSource.MAGIC).putShort(RemoteInputSource.VERSION);
+	}
+
+	/**
+	 * Sets the value of an input in the current frame. Setting an input several
+	 * times keeps the largest absolute value.
+	 * 
+	 * @param player     player to set value for
+	 * @param identifier identifier of input
+	 * @param value      value of input to set to
+	 */
+	public void set(int player, T identifier, short value) {
+		current.set(player, identifier, value);
+	}
+
+	/**
+	 * Sets the value of an input in the current frame by the id of its
+	 * identifier.
+	 * 
+	 * @param player player to set value for
+	 * @param action id of the identifier of input
+	 * @param value  value of input to set to
+	 */
+	public void setById(int player, int action, short value) {
+		current.setById(player, action, value);
+	}
+
+	/**
+	 * Sets the current frame to the inputs of an {@link InputMap} and ends it.
+	 * 
+	 * @param frame {@link InputMap} storing the inputs of the frame, for example
+	 *              the one returned by {@link Input4J#update()}
+	 * @throws IOException if the data waiting to be sent exceeds
+	 *                     {@value #MAX_PENDING} bytes
+	 */
+	public void publish(InputMap<T> frame) throws IOException {
+		current.clear();
+		frame.mergeInto(current);
+		endFrame();
+	}
+
+	/**
+	 * Ends the current frame and appends it to the packet to send. The inputs are
+	 * reset for the next frame.
+	 * 
+	 * @throws IOException if the data waiting to be sent exceeds
+	 *                     {@value #MAX_PENDING} bytes
+	 */
+	public void endFrame() throws IOException {
+		ensureRemaining(RemoteInputSource.PACKET_HEADER_SIZE + InputDeltaCodec.maxSize(current, previous));
+		if (packet < 0) {
+			packet = out.position();
+			out.putInt(0);
+		}
+		InputDeltaCodec.encode(out, current, previous);
+		previous.copyFrom(current);
+		current.clear();
+	}
+
+	/**
+	 * Sends all ended frames without blocking. Data that could not be sent yet
+	 * is sent with the next flush.
+	 * 
+	 * @throws IOException if the connection failed
+	 */
+	public void flush() throws IOException {
+		if (packet >= 0) {
+			out.putInt(packet, out.position() - packet - RemoteInputSource.PACKET_HEADER_SIZE);
+			packet = -1;
+		}
+		out.flip();
+		try {
+			channel.write(out);
+		} finally {
+			out.compact();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes that have not been sent yet.
+	 * 
+	 * @return the number of bytes waiting to be sent
+	 */
+	public int getPendingBytes() {
+		return out.position();
+	}
+
+	/**
+	 * Makes sure that the buffer has room for more bytes.
+	 * 
+	 * @param bytes number of bytes to make room for
+	 * @throws IOException if the buffer would exceed {@value #MAX_PENDING} bytes
+	 */
+	private void ensureRemaining(int bytes) throws IOException {
+		if (out.remaining() >= bytes)
+			return;
+		long size = (long) out.position() + bytes;
+		if (size > MAX_PENDING)
+			throw new IOException("Too much data waiting to be sent: " + size + " bytes");
+		ByteBuffer b = ByteBuffer.allocate((int) Math.min(MAX_PENDING, Math.max(size, out.capacity() * 2L)));
+		out.flip();
+		out = b.put(out);
+	}
+
+	/**
+	 * Tries to send the remaining frames and closes the connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (channel.isOpen())
+				flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,518 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link InputSource} receiving inputs over the network from
+ * {@link RemoteInputPublisher}s, for example from thin clients connected to a
+ * dedicated server. <br />
+ * 
+ * The source listens on a TCP port using non-blocking NIO sockets. Nothing
+ * runs in the background: every update accepts new connections and reads the
+ * data that has arrived since the last update, without blocking. Publishers
+ * send batches of frames, each frame storing only the inputs that changed
+ * since the previous frame of the same connection (see
+ * {@link InputDeltaCodec}). All frames received since the last update are
+ * applied in order. Every input is set to the largest absolute value it had in
+ * any of these frames, so short taps are not lost, and inputs that did not
+ * change keep their value. <br />
+ * 
+ * The inputs are not configured in the {@link InputConfiguration}, they are
+ * written to the {@link InputMap} by the player and id sent by the publisher,
+ * so both sides have to assign the same ids (see {@link ActionRegistry}).
+ * Inputs of different connections are combined like inputs of different
+ * {@link InputSource}s. When a connection is closed, its inputs are released.
+ * <br />
+ * 
+ * Connections sending malformed data or inputs outside of
+ * {@link Builder#maxPlayers(int)} and {@link Builder#maxActions(int)} are
+ * closed. <br />
+ * 
+ * Connections are neither authenticated nor encrypted: anyone who can connect
+ * can send inputs for any player. By default the source only listens on the
+ * loopback address. Only listen on other addresses (see
+ * {@link Builder#Builder(InetSocketAddress)}) in a trusted network. Every
+ * connection keeps up to {@code maxPlayers * maxActions} inputs, so the limits
+ * of the {@link Builder}, including {@link Builder#maxConnections(int)}, bound
+ * the memory a peer can make the source use.
+ * 
+ * <pre>
+ * connection: int magic, short version, packet...
+ * packet:     int length of data, delta... (until the end of the data)
+ * </pre>
+ * 
+ * @author Floeze
+ *
+ */
+public class RemoteInputSource extends InputSourceImpl implements Closeable {
+
+	/**
+	 * "I4JN"
+	 */
+	static final int MAGIC = 0x49344A4E;
+
+	static final short VERSION = 2;
+
+	static final int HANDSHAKE_SIZE = 6;
+
+	/**
+	 * Size of the header of a packet
+	 */
+	static final int PACKET_HEADER_SIZE = 4;
+
+	/**
+	 * Default maximum size of a packet
+	 */
+	public static final int DEFAULT_MAX_PACKET_SIZE = 1 << 20;
+
+	/**
+	 * Default maximum number of connections
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+	/**
+	 * A Builder for building {@link RemoteInputSource}s.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Builder extends InputSourceBuilder {
+
+		private final InetSocketAddress address;
+
+		private int maxPlayers = 1024;
+
+		private int maxActions = 1024;
+
+		private int maxPacketSize = DEFAULT_MAX_PACKET_SIZE;
+
+		private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+		/**
+		 * Creates a new {@link Builder} for a source listening on a port of the
+		 * loopback address, so only publishers on the same machine can connect.
+		 * 
+		 * @param port port to listen on, or 0 to use any free port (see
+		 *             {@link RemoteInputSource#getLocalPort()})
+		 */
+		public Builder(int port) {
+			this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		}
+
+		/**
+		 * Creates a new {@link Builder} for a source listening on an address. Use
+		 * {@code new InetSocketAddress(port)} to listen on all addresses. <br />
+		 * 
+		 * Connections are not authenticated, so only listen on addresses reachable
+		 * from trusted networks.
+		 * 
+		 * @param address address to listen on
+		 */
+		public Builder(InetSocketAddress address) {
+			if (address == null)
+				throw new IllegalArgumentException("Address must not be null");
+			this.address = address;
+		}
+
+		/**
+		 * Sets the number of players a connection may send inputs for. Defaults to
+		 * 1024.
+		 * 
+		 * @param maxPlayers maximum player plus one
+		 * @return this {@link Builder}
+		 */
+		public Builder maxPlayers(int maxPlayers) {
+			if (maxPlayers < 1)
+				throw new IllegalArgumentException("Maximum number of players must be positive: " + maxPlayers);
+			this.maxPlayers = maxPlayers;
+			return this;
+		}
+
+		/**
+		 * Sets the number of identifiers a connection may send inputs for.
+		 * Defaults to 1024.
+		 * 
+		 * @param maxActions maximum id of an identifier plus one
+		 * @return this {@link Builder}
+		 */
+		public Builder maxActions(int maxActions) {
+			if (maxActions < 1)
+				throw new IllegalArgumentException("Maximum number of ids must be positive: " + maxActions);
+			this.maxActions = maxActions;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum size of a packet. Defaults to
+		 * {@value RemoteInputSource#DEFAULT_MAX_PACKET_SIZE}.
+		 * 
+		 * @param maxPacketSize maximum size of a packet in bytes
+		 * @return this {@link Builder}
+		 */
+		public Builder maxPacketSize(int maxPacketSize) {
+			if (maxPacketSize < 1)
+				throw new IllegalArgumentException("Maximum packet size must be positive: " + maxPacketSize);
+			this.maxPacketSize = maxPacketSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of open connections. Further connections are
+		 * closed right after they were accepted. Defaults to
+		 * {@value RemoteInputSource#DEFAULT_MAX_CONNECTIONS}.
+		 * 
+		 * @param maxConnections maximum number of connections
+		 * @return this {@link Builder}
+		 */
+		public Builder maxConnections(int maxConnections) {
+			if (maxConnections < 1)
+				throw new IllegalArgumentException("Maximum number of connections must be positive: " + maxConnections);
+			this.maxConnections = maxConnections;
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @throws UncheckedIOException if the port could not be opened
+		 */
+		@Override
+		protected InputSource build() {
+			try {
+				return new RemoteInputSource(address, maxPlayers, maxActions, maxPacketSize, maxConnections);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * A connection of a {@link RemoteInputPublisher}
+	 */
+	private static final class Connection {
+
+		final SocketChannel channel;
+
+		/**
+		 * Received data that has not been handled yet, ready for writing
+		 */
+		ByteBuffer in = ByteBuffer.allocate(1024);
+
+		/**
+		 * Inputs of the latest frame received
+		 */
+		final DenseInputMap<Object> state = new DenseInputMap<Object>(1, 1);
+
+		boolean handshaken;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+	}
+
+	private final int maxPlayers;
+
+	private final int maxActions;
+
+	private final int maxPacketSize;
+
+	private final int maxConnections;
+
+	private final ServerSocketChannel server;
+
+	private final Selector selector;
+
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	/**
+	 * Number of frames received
+	 */
+	private long frames;
+
+	/**
+	 * Creates a new {@link RemoteInputSource} and starts listening.
+	 * 
+	 * @param address        address to listen on
+	 * @param maxPlayers     number of players a connection may send inputs for
+	 * @param maxActions     number of identifiers a connection may send inputs
+	 *                       for
+	 * @param maxPacketSize  maximum size of a packet in bytes
+	 * @param maxConnections maximum number of open connections
+	 * @throws IOException if the address could not be opened
+	 */
+	protected RemoteInputSource(InetSocketAddress address, int maxPlayers, int maxActions, int maxPacketSize,
+			int maxConnections) throws IOException {
+		this.maxPlayers = maxPlayers;
+		this.maxActions = maxActions;
+		this.maxPacketSize = maxPacketSize;
+		this.maxConnections = maxConnections;
+		selector = Selector.open();
+		try {
+			server = ServerSocketChannel.open();
+			try {
+				server.bind(address);
+				server.configureBlocking(false);
+				server.register(selector, SelectionKey.OP_ACCEPT);
+			} catch (IOException e) {
+				server.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			selector.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the port this source listens on.
+	 * 
+	 * @return the local port
+	 */
+	public int getLocalPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Gets the number of open connections. Connections are only accepted and
+	 * closed while updating.
+	 * 
+	 * @return the number of connections
+	 */
+	public int getConnections() {
+		return connections.size();
+	}
+
+	/**
+	 * Gets the number of frames received over all connections.
+	 * 
+	 * @return the number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	@Override
+	protected boolean handleEnable() {
+		return server.isOpen();
+	}
+
+	@Override
+	protected boolean handleDisable() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws UncheckedIOException if the listening socket failed
+	 */
+	@Override
+	protected <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		try {
+			if (selector.selectNow() > 0) {
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept();
+					else if (key.isReadable())
+						read(key, (Connection) key.attachment(), map);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// inputs that did not change keep their value, only visit the groups that
+		// were ever set (see DenseInputMap#touched())
+		for (int c = 0; c < connections.size(); c++) {
+			DenseInputMap<Object> state = connections.get(c).state;
+			short[] v = state.array();
+			long[] t = state.touched();
+			int words = state.words();
+			int actions = state.actions();
+			for (int w = 0; w < t.length; w++) {
+				for (long bits = t[w]; bits != 0; bits &= bits - 1) {
+					int g = (w << 6) + Long.numberOfTrailingZeros(bits);
+					int player = g / words;
+					int row = player * actions;
+					for (int i = state.groupStart(g), end = state.groupEnd(g); i < end; i++)
+						if (v[i] != 0)
+							map.setById(player, i - row, v[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accepts all pending connections. Connections over the limit are closed.
+	 * 
+	 * @throws IOException if the listening socket failed
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			if (connections.size() >= maxConnections) {
+				channel.close();
+				continue;
+			}
+			try {
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				Connection c = new Connection(channel);
+				channel.register(selector, SelectionKey.OP_READ, c);
+				connections.add(c);
+			} catch (IOException e) {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads all available data of a connection and applies the complete
+	 * packets. Closes the connection if it was closed by the publisher or sent
+	 * invalid data.
+	 * 
+	 * @param key {@link SelectionKey} of connection
+	 * @param c   connection to read from
+	 * @param map {@link InputMap} to set the changed inputs in
+	 */
+	private void read(SelectionKey key, Connection c, InputMap<?> map) {
+		try {
+			int n;
+			do {
+				n = c.channel.read(c.in);
+				if (!handle(c, map)) {
+					close(key, c);
+					return;
+				}
+				// a packet that does not fit yet
+				if (!c.in.hasRemaining())
+					c.in = grow(c.in);
+			} while (n > 0);
+			if (n < 0)
+				close(key, c);
+		} catch (IOException e) {
+			close(key, c);
+		}
+	}
+
+	/**
+	 * Grows a buffer, if the maximum packet size allows it.
+	 * 
+	 * @param b buffer to grow, ready for writing
+	 * @return the grown buffer, ready for writing
+	 * @throws IOException if the buffer is as large as a packet may be
+	 */
+	private ByteBuffer grow(ByteBuffer b) throws IOException {
+		if (b.capacity() >= maxPacketSize + PACKET_HEADER_SIZE)
+			throw new IOException("Packet too large");
+		ByteBuffer g = ByteBuffer.allocate((int) Math.min((long) b.capacity() * 2, maxPacketSize + PACKET_HEADER_SIZE));
+		b.flip();
+		return g.put(b);
+	}
+
+	/**
+	 * Applies all complete packets in the buffer of a connection.
+	 * 
+	 * @param c   connection to handle data of
+	 * @param map {@link InputMap} to set the changed inputs in
+	 * @return true if the data was valid, false otherwise
+	 */
+	private boolean handle(Connection c, InputMap<?> map) {
+		ByteBuffer b = c.in;
+		b.flip();
+		try {
+			if (!c.handshaken) {
+				if (b.remaining() < HANDSHAKE_SIZE)
+					return true;
+				if (b.getInt() != MAGIC || b.getShort() != VERSION)
+					return false;
+				c.handshaken = true;
+			}
+			while (b.remaining() >= PACKET_HEADER_SIZE) {
+				int length = b.getInt(b.position());
+				if (length < 0 || length > maxPacketSize)
+					return false;
+				if (b.remaining() < PACKET_HEADER_SIZE + length)
+					break;
+				int end = b.position() + PACKET_HEADER_SIZE + length;
+				int limit = b.limit();
+				b.position(b.position() + PACKET_HEADER_SIZE).limit(end);
+				while (b.hasRemaining()) {
+					InputDeltaCodec.decode(b, c.state, map, maxPlayers, maxActions);
+					frames++;
+				}
+				b.limit(limit);
+			}
+			return true;
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			return false;
+		} finally {
+			b.compact();
+		}
+	}
+
+	/**
+	 * Closes a connection, releasing its inputs.
+	 * 
+	 * @param key {@link SelectionKey} of connection
+	 * @param c   connection to close
+	 */
+	private void close(SelectionKey key, Connection c) {
+		key.cancel();
+		connections.remove(c);
+		try {
+			c.channel.close();
+		} catch (IOException e) {
+			// closing anyway
+		}
+	}
+
+	/**
+	 * Stops listening and closes all connections.
+	 */
+	@Override
+	public void close() throws IOException {
+		disable();
+		try {
+			for (Connection c : connections)
+				c.channel.close();
+			connections.clear();
+			server.close();
+		} finally {
+			selector.close();
+		}
+	}
+
+	@Override
+	protected void handleSaveInputs() {
+	}
+
+	/**
+	 * Remote inputs can't be rebound, so this always returns false.
+	 */
+	@Override
+	protected <T> boolean handleSetInput(int player, T name, short value, InputConfiguration<T> config) {
+		return false;
+	}
+
+}
@@ -0,0 +1,352 @@
+package tv.floeze.Input4J;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An {@link InputSource} replaying a log written by an {@link InputRecorder}.
+ * <br />
+ * 
+ * Every update replays the next recorded frame. The log is read directly from
+ * memory mapped regions of the file, without copying it to the heap. Using the
+ * keyframes of the log, the replay can seek to any frame (see
+ * {@link #seek(long)}). <br />
+ * 
+ * The replayed inputs are not configured in the {@link InputConfiguration},
+ * they are written to the {@link InputMap} by the ids stored in the log. <br />
+ * 
+ * The file is closed while the source is disabled and opened again when it is
+ * enabled. {@link #close()} closes it for good.
+ * 
+ * @author Floeze
+ *
+ */
+public class ReplayInputSource extends InputSourceImpl implements Closeable {
+
+	/**
+	 * A Builder for building {@link ReplayInputSource}s.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Builder extends InputSourceBuilder {
+
+		private final File file;
+
+		private boolean loop;
+
+		/**
+		 * Creates a new {@link Builder} for a log.
+		 * 
+		 * @param file {@link File} storing the log
+		 */
+		public Builder(File file) {
+			this.file = file;
+		}
+
+		/**
+		 * Sets whether the replay starts over after the last frame.
+		 * 
+		 * @param loop true to start over, false to stop at the end
+		 * @return this {@link Builder}
+		 */
+		public Builder loop(boolean loop) {
+			this.loop = loop;
+			return this;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @throws UncheckedIOException if the log could not be read
+		 */
+		@Override
+		protected InputSource build() {
+			try {
+				return new ReplayInputSource(file, loop);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * Minimum size of a mapped region of the file
+	 */
+	private static final int WINDOW_SIZE = 1 << 24;
+
+	private final File file;
+
+	/**
+	 * Channel to read the log from, or null while disabled
+	 */
+	private FileChannel channel;
+
+	/**
+	 * true once closed by {@link #close()}
+	 */
+	private boolean closed;
+
+	private final boolean loop;
+
+	/**
+	 * End of the last record
+	 */
+	private final long end;
+
+	private final long frames;
+
+	private final int keyframeInterval;
+
+	/**
+	 * Position of every keyframe in the file
+	 */
+	private final long[] keyframes;
+
+	/**
+	 * Region of the file currently mapped
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * Position of {@link #window} in the file
+	 */
+	private long windowStart;
+
+	/**
+	 * Position of the next record in the file
+	 */
+	private long position;
+
+	/**
+	 * Number of the next frame
+	 */
+	private long frame;
+
+	/**
+	 * Inputs of the latest replayed frame
+	 */
+	private final DenseInputMap<Object> state = new DenseInputMap<Object>(1, 1);
+
+	/**
+	 * Creates a new {@link ReplayInputSource} and reads the keyframes of a log.
+	 * 
+	 * @param file {@link File} storing the log
+	 * @param loop true to start over after the last frame, false to stop
+	 * @throws IOException if the log could not be read or is no log
+	 */
+	protected ReplayInputSource(File file, boolean loop) throws IOException {
+		this.file = file;
+		this.loop = loop;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(InputRecorder.HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+				;
+			if (header.hasRemaining() || header.getInt(0) != InputRecorder.MAGIC)
+				throw new IOException(file + " is no input log");
+			if (header.getShort(4) != InputRecorder.VERSION)
+				throw new IOException("Unsupported input log version: " + header.getShort(4));
+			keyframeInterval = header.getInt(InputRecorder.KEYFRAME_INTERVAL_OFFSET);
+			end = Math.min(header.getLong(InputRecorder.END_OFFSET), channel.size());
+			long[] k = new long[16];
+			int n = 0;
+			long f = 0;
+			for (long p = InputRecorder.HEADER_SIZE; p + InputRecorder.RECORD_HEADER_SIZE <= end; f++) {
+				ByteBuffer b = map(p, InputRecorder.RECORD_HEADER_SIZE);
+				int length = b.getInt(b.position());
+				if (p + InputRecorder.RECORD_HEADER_SIZE + length > end)
+					break;
+				if (f % keyframeInterval == 0) {
+					if (n == k.length)
+						k = Arrays.copyOf(k, n * 2);
+					k[n++] = p;
+				}
+				p += InputRecorder.RECORD_HEADER_SIZE + length;
+			}
+			frames = f;
+			keyframes = Arrays.copyOf(k, n);
+			position = InputRecorder.HEADER_SIZE;
+		} finally {
+			// opened again when enabled
+			release();
+		}
+	}
+
+	/**
+	 * Closes {@link #channel} and drops the mapped region, so it is unmapped by
+	 * the garbage collector.
+	 * 
+	 * @throws UncheckedIOException if the channel could not be closed
+	 */
+	private void release() {
+		window = null;
+		FileChannel c = channel;
+		channel = null;
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Maps the region of the file containing a range, if it isn't mapped yet.
+	 * 
+	 * @param offset start of range
+	 * @param size   size of range
+	 * @return the mapped region, positioned at the start of the range
+	 * @throws IOException if the region could not be mapped
+	 */
+	private ByteBuffer map(long offset, int size) throws IOException {
+		if (window == null || offset < windowStart || offset + size > windowStart + window.capacity()) {
+			window = channel.map(MapMode.READ_ONLY, offset, Math.min(end - offset, Math.max(WINDOW_SIZE, size)));
+			windowStart = offset;
+		}
+		window.position((int) (offset - windowStart));
+		return window;
+	}
+
+	/**
+	 * Reads the next record and applies it to {@link #state}.
+	 * 
+	 * @throws IOException if the record could not be read
+	 */
+	private void next() throws IOException {
+		ByteBuffer b = map(position, InputRecorder.RECORD_HEADER_SIZE);
+		int length = b.getInt(b.position());
+		byte type = b.get(b.position() + 4);
+		b = map(position, InputRecorder.RECORD_HEADER_SIZE + length);
+		b.position(b.position() + InputRecorder.RECORD_HEADER_SIZE);
+		if (type == InputRecorder.KEYFRAME)
+			state.clear();
+		InputDeltaCodec.decode(b, state);
+		position += InputRecorder.RECORD_HEADER_SIZE + length;
+		frame++;
+	}
+
+	/**
+	 * Seeks to a frame, so that the next update replays it. While disabled, the
+	 * log is opened for seeking only.
+	 * 
+	 * @param frame number of frame to seek to
+	 * @throws IOException if the log could not be read or was closed
+	 */
+	public void seek(long frame) throws IOException {
+		if (frame < 0 || frame > frames)
+			throw new IllegalArgumentException("No frame " + frame + " in log of " + frames + " frames");
+		boolean open = channel == null;
+		if (open) {
+			if (closed)
+				throw new IOException("Replay of " + file + " is closed");
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+		try {
+			// continue from the current frame unless going back or past another keyframe
+			if (frame < this.frame || frame / keyframeInterval != this.frame / keyframeInterval) {
+				int k = (int) Math.min(frame / keyframeInterval, keyframes.length - 1);
+				position = keyframes[k];
+				this.frame = (long) k * keyframeInterval;
+			}
+			while (this.frame < frame)
+				next();
+		} finally {
+			if (open)
+				release();
+		}
+	}
+
+	/**
+	 * Gets the number of the frame the next update replays.
+	 * 
+	 * @return the number of the next frame
+	 */
+	public long getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Gets the number of frames in the log.
+	 * 
+	 * @return the number of frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	@Override
+	protected boolean handleEnable() {
+		if (closed)
+			return false;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	protected boolean handleDisable() {
+		release();
+		return true;
+	}
+
+	/**
+	 * Disables this source and closes the log for good.
+	 */
+	@Override
+	public void close() {
+		disable();
+		closed = true;
+		release();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws UncheckedIOException if the log could not be read
+	 */
+	@Override
+	protected <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		try {
+			if (frame >= frames) {
+				if (!loop || frames == 0)
+					return;
+				seek(0);
+			}
+			next();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		short[] v = state.array();
+		int actions = state.actions();
+		for (int i = 0; i < v.length; i++)
+			if (v[i] != 0)
+				map.setById(i / actions, i % actions, v[i]);
+	}
+
+	@Override
+	protected void handleSaveInputs() {
+	}
+
+	/**
+	 * Replays can't be rebound, so this always returns false.
+	 */
+	@Override
+	protected <T> boolean handleSetInput(int player, T name, short value, InputConfiguration<T> config) {
+		return false;
+	}
+
+}
@@ -0,0 +1,240 @@
+package tv.floeze.Input4J;
+
+import java.util.Arrays;
+
+/**
+ * A buffer of timestamped samples reported by {@link InputSource}s during one
+ * frame, combined into the values of the frame by
+ * {@link #aggregateInto(InputMap, Aggregation[])}. <br />
+ * 
+ * The samples are stored in primitive arrays that are reused every frame and
+ * only grow if more samples are reported than ever before. Samples of the same
+ * player and identifier are grouped with an open-addressing hash table of the
+ * same size, so aggregating does not allocate either. <br />
+ * 
+ * A {@link SampleBuffer} is only used by one thread at a time.
+ * 
+ * @author Floeze
+ *
+ */
+final class SampleBuffer {
+
+	/**
+	 * Number of samples a new buffer has room for
+	 */
+	static final int INITIAL_CAPACITY = 256;
+
+	private int[] players;
+
+	private int[] actions;
+
+	private short[] values;
+
+	private long[] timestamps;
+
+	private int size;
+
+	/**
+	 * Smallest timestamp of the samples
+	 */
+	private long first;
+
+	/**
+	 * Player of every slot of the hash table
+	 */
+	private int[] slotPlayer;
+
+	/**
+	 * Identifier id of every slot of the hash table
+	 */
+	private int[] slotAction;
+
+	/**
+	 * Slot is used if its stamp is {@link #stamp}, so the table never has to be
+	 * cleared
+	 */
+	private int[] slotStamp;
+
+	private int[] slotCount;
+
+	private long[] slotSum;
+
+	/**
+	 * Value of the last sample; for {@link Aggregation#LAST} the one with the
+	 * latest timestamp
+	 */
+	private short[] slotLast;
+
+	private long[] slotLastTimestamp;
+
+	private int[] slotPresses;
+
+	private Aggregation[] slotMode;
+
+	/**
+	 * Slots used in the current aggregation
+	 */
+	private int[] used;
+
+	private int stamp;
+
+	/**
+	 * Creates a new empty {@link SampleBuffer} with room for
+	 * {@value #INITIAL_CAPACITY} samples.
+	 */
+	SampleBuffer() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Allocates the arrays for a capacity, keeping all samples.
+	 * 
+	 * @param capacity number of samples to have room for
+	 */
+	private void allocate(int capacity) {
+		players = players == null ? new int[capacity] : Arrays.copyOf(players, capacity);
+		actions = actions == null ? new int[capacity] : Arrays.copyOf(actions, capacity);
+		values = values == null ? new short[capacity] : Arrays.copyOf(values, capacity);
+		timestamps = timestamps == null ? new long[capacity] : Arrays.copyOf(timestamps, capacity);
+		int slots = capacity * 2;
+		slotPlayer = new int[slots];
+		slotAction = new int[slots];
+		slotStamp = new int[slots];
+		slotCount = new int[slots];
+		slotSum = new long[slots];
+		slotLast = new short[slots];
+		slotLastTimestamp = new long[slots];
+		slotPresses = new int[slots];
+		slotMode = new Aggregation[slots];
+		used = new int[capacity];
+		stamp = 0;
+	}
+
+	/**
+	 * Adds a sample.
+	 * 
+	 * @param player    player of input
+	 * @param action    id of the identifier of input
+	 * @param value     value of input
+	 * @param timestamp timestamp of sample (see {@link System#nanoTime()})
+	 */
+	void add(int player, int action, short value, long timestamp) {
+		if (size == players.length)
+			allocate(size * 2);
+		if (size == 0 || timestamp - first < 0)
+			first = timestamp;
+		players[size] = player;
+		actions[size] = action;
+		values[size] = value;
+		timestamps[size] = timestamp;
+		size++;
+	}
+
+	/**
+	 * Moves all samples of this buffer to the end of another one.
+	 * 
+	 * @param target {@link SampleBuffer} to move samples to
+	 */
+	void drainTo(SampleBuffer target) {
+		for (int i = 0; i < size; i++)
+			target.add(players[i], actions[i], values[i], timestamps[i]);
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of samples.
+	 * 
+	 * @return the number of samples in this buffer
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the smallest timestamp of the samples.
+	 * 
+	 * @return the timestamp of the first sample, undefined if there are none
+	 */
+	long first() {
+		return first;
+	}
+
+	/**
+	 * Removes all samples.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Combines the samples of every input and sets the result in an
+	 * {@link InputMap} using {@link InputMap#setById(int, int, short)}. The
+	 * samples are kept until {@link #clear()}.
+	 * 
+	 * @param <T>    Class of identifier
+	 * @param target {@link InputMap} to set values in
+	 * @param modes  {@link Aggregation} of every identifier id. Identifiers
+	 *               without one use {@link Aggregation#MAX_ABS}.
+	 */
+	<T> void aggregateInto(InputMap<T> target, Aggregation[] modes) {
+		if (++stamp == 0) {
+			Arrays.fill(slotStamp, 0);
+			stamp = 1;
+		}
+		int mask = slotStamp.length - 1;
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			int action = actions[i];
+			Aggregation mode = action < modes.length && modes[action] != null ? modes[action] : Aggregation.MAX_ABS;
+			if (mode == Aggregation.MAX_ABS) {
+				target.setById(players[i], action, values[i]);
+				continue;
+			}
+			int player = players[i];
+			int h = player * 0x9E3779B9 ^ action * 0x85EBCA6B;
+			int slot = (h ^ (h >>> 16)) & mask;
+			while (slotStamp[slot] == stamp && (slotPlayer[slot] != player || slotAction[slot] != action))
+				slot = (slot + 1) & mask;
+			short value = values[i];
+			long timestamp = timestamps[i];
+			if (slotStamp[slot] != stamp) {
+				slotStamp[slot] = stamp;
+				slotPlayer[slot] = player;
+				slotAction[slot] = action;
+				slotMode[slot] = mode;
+				slotCount[slot] = 1;
+				slotSum[slot] = value;
+				slotLast[slot] = value;
+				slotLastTimestamp[slot] = timestamp;
+				slotPresses[slot] = value != 0 ? 1 : 0;
+				used[n++] = slot;
+				continue;
+			}
+			slotCount[slot]++;
+			slotSum[slot] += value;
+			if (value != 0 && slotLast[slot] == 0 && mode == Aggregation.PRESS_COUNT)
+				slotPresses[slot]++;
+			if (mode != Aggregation.LAST || timestamp - slotLastTimestamp[slot] >= 0) {
+				slotLast[slot] = value;
+				slotLastTimestamp[slot] = timestamp;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			int slot = used[i];
+			short value;
+			switch (slotMode[slot]) {
+			case LAST:
+				value = slotLast[slot];
+				break;
+			case MEAN:
+				value = (short) Math.round((double) slotSum[slot] / slotCount[slot]);
+				break;
+			default:
+				value = (short) Math.min(slotPresses[slot], Short.MAX_VALUE);
+				break;
+			}
+			target.setById(slotPlayer[slot], slotAction[slot], value);
+		}
+	}
+
+}
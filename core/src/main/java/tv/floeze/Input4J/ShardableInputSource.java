@@ -0,0 +1,58 @@
+package tv.floeze.Input4J;
+
+/**
+ * An {@link InputSource} that can update its inputs in parts, each covering a
+ * range of players. <br />
+ * 
+ * If sharding is enabled (see {@link Input4J#enableSharding(int)}), the
+ * players of an update are split into shards and
+ * {@link #updateShard(InputMap, InputConfiguration, int, int)} is called for
+ * every shard at the same time on different threads. Each shard may only write
+ * inputs of its own players, which lets all shards write into the same
+ * {@link InputMap} without locking. <br />
+ * 
+ * To find the inputs of a range of players, use
+ * {@link BindingTable#indexOfPlayer(int)}. Samples reported during a sharded
+ * update (see {@link InputMap#sampleById(int, int, short, long)}) are set
+ * directly, as if their {@link Aggregation} was {@link Aggregation#MAX_ABS}.
+ * 
+ * @author Floeze
+ *
+ */
+public interface ShardableInputSource extends InputSource {
+
+	/**
+	 * Prepares an update split into shards. This is called on the updating
+	 * thread before any shard of the update and can be used to update state that
+	 * is shared by all players.
+	 * 
+	 * @param <T>    Type of identifier
+	 * @param config {@link InputConfiguration} storing the input configurations
+	 */
+	public default <T> void startShardedUpdate(InputConfiguration<T> config) {
+	}
+
+	/**
+	 * Updates the inputs of a range of players, like
+	 * {@link #update(InputMap, InputConfiguration)} does for all players. <br />
+	 * 
+	 * This is called at the same time for other ranges of players, so it must
+	 * only write inputs of players from {@code fromPlayer} to
+	 * {@code toPlayer - 1} into the {@link InputMap} and must only change state
+	 * belonging to these players. The {@link InputMap} has room for all
+	 * identifiers known to the {@link ActionRegistry} when the update starts.
+	 * <br />
+	 * 
+	 * <b>WARNING</b>: like {@link #update(InputMap, InputConfiguration)}, this
+	 * method may still be called even if disabled.
+	 * 
+	 * @param <T>        Type of identifier
+	 * @param map        {@link InputMap} to write values to
+	 * @param config     {@link InputConfiguration} storing the input
+	 *                   configurations
+	 * @param fromPlayer first player of the shard
+	 * @param toPlayer   player after the last player of the shard
+	 */
+	public <T> void updateShard(InputMap<T> map, InputConfiguration<T> config, int fromPlayer, int toPlayer);
+
+}
@@ -0,0 +1,276 @@
+package tv.floeze.Input4J;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Updates {@link ShardableInputSource}s by splitting their players into shards
+ * and updating the shards at the same time on an {@link Executor}. <br />
+ * 
+ * All shards write directly into the {@link DenseInputMap} of the frame. As
+ * every shard only writes the rows of its own players, shards start at
+ * multiples of 64 players and the map is grown before the shards start, they
+ * never write the same values and no merging or locking is needed. Players
+ * not stored in the array of the map (see
+ * {@link DenseInputMap#MAX_DENSE_PLAYERS}) are updated on the calling thread
+ * after the shards.
+ * 
+ * @author Floeze
+ *
+ * @param <T> Class of identifier
+ */
+final class ShardedUpdater<T> {
+
+	private final Executor executor;
+
+	private final int shards;
+
+	/**
+	 * All {@link InputSource}s this was created for
+	 */
+	private final InputSource[] sources;
+
+	/**
+	 * Indices of the {@link ShardableInputSource}s in {@link #sources}
+	 */
+	private final int[] sharded;
+
+	/**
+	 * The {@link InputSource}s that cannot be sharded
+	 */
+	private final InputSource[] others;
+
+	/**
+	 * Indices of {@link #others} in {@link #sources}
+	 */
+	private final int[] otherIndices;
+
+	/**
+	 * {@link SourceMetrics} last passed to {@link #otherMetrics(SourceMetrics[])}
+	 */
+	private SourceMetrics[] metrics;
+
+	/**
+	 * {@link SourceMetrics} of {@link #others}, selected from {@link #metrics}
+	 */
+	private SourceMetrics[] otherMetrics;
+
+	/**
+	 * One task for each shard but the first, updating it
+	 */
+	private final Runnable[] tasks;
+
+	/**
+	 * Number of shards that did not finish yet
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * {@link ShardableInputSource} of the current update
+	 */
+	private volatile ShardableInputSource source;
+
+	/**
+	 * {@link DenseInputMap} of the current update
+	 */
+	private volatile DenseInputMap<T> map;
+
+	/**
+	 * {@link InputConfiguration} of the current update
+	 */
+	private volatile InputConfiguration<T> config;
+
+	/**
+	 * Number of players per shard of the current update
+	 */
+	private volatile int shardSize;
+
+	/**
+	 * Number of players of the current update
+	 */
+	private volatile int players;
+
+	/**
+	 * Thread waiting for the current update
+	 */
+	private volatile Thread waiter;
+
+	/**
+	 * First exception thrown by a shard of the current update
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Creates a new {@link ShardedUpdater}.
+	 * 
+	 * @param executor {@link Executor} to update shards on
+	 * @param shards   maximum number of shards
+	 * @param sources  all {@link InputSource}s to update
+	 */
+	ShardedUpdater(Executor executor, int shards, InputSource[] sources) {
+		this.executor = executor;
+		this.shards = shards;
+		this.sources = sources;
+		List<InputSource> o = new ArrayList<InputSource>();
+		int[] s = new int[sources.length];
+		int[] oi = new int[sources.length];
+		int n = 0;
+		for (int i = 0; i < sources.length; i++) {
+			if (sources[i] instanceof ShardableInputSource) {
+				s[n++] = i;
+			} else {
+				oi[o.size()] = i;
+				o.add(sources[i]);
+			}
+		}
+		this.sharded = Arrays.copyOf(s, n);
+		this.others = o.toArray(new InputSource[o.size()]);
+		this.otherIndices = Arrays.copyOf(oi, o.size());
+		this.tasks = new Runnable[shards];
+		for (int i = 1; i < shards; i++) {
+			final int shard = i;
+			tasks[i] = () -> run(shard);
+		}
+	}
+
+	/**
+	 * Checks if this {@link ShardedUpdater} was created for the given arguments.
+	 * 
+	 * @param executor {@link Executor} to update shards on
+	 * @param shards   maximum number of shards
+	 * @param sources  all {@link InputSource}s to update
+	 * @return true if it can be used for them, false otherwise
+	 */
+	boolean isFor(Executor executor, int shards, InputSource[] sources) {
+		return this.executor == executor && this.shards == shards && this.sources == sources;
+	}
+
+	/**
+	 * Gets the {@link InputSource}s that cannot be sharded and have to be updated
+	 * in another way.
+	 * 
+	 * @return the {@link InputSource}s that are not {@link ShardableInputSource}s
+	 */
+	InputSource[] others() {
+		return others;
+	}
+
+	/**
+	 * Gets the {@link SourceMetrics} of the {@link InputSource}s returned by
+	 * {@link #others()}.
+	 * 
+	 * @param metrics {@link SourceMetrics} of each of the {@link InputSource}s
+	 *                this was created for, or null
+	 * @return the {@link SourceMetrics} of {@link #others()}, or null if
+	 *         {@code metrics} is null
+	 */
+	SourceMetrics[] otherMetrics(SourceMetrics[] metrics) {
+		if (metrics == null)
+			return null;
+		if (metrics != this.metrics) {
+			SourceMetrics[] m = new SourceMetrics[others.length];
+			for (int i = 0; i < m.length; i++)
+				m[i] = metrics[otherIndices[i]];
+			this.otherMetrics = m;
+			this.metrics = metrics;
+		}
+		return otherMetrics;
+	}
+
+	/**
+	 * Updates all {@link ShardableInputSource}s one after another, each in
+	 * shards at the same time.
+	 * 
+	 * @param map     {@link DenseInputMap} to store inputs in
+	 * @param config  {@link InputConfiguration} storing the input configurations
+	 * @param metrics {@link SourceMetrics} of each of the {@link InputSource}s
+	 *                this was created for, or null to not measure them
+	 */
+	void update(DenseInputMap<T> map, InputConfiguration<T> config, SourceMetrics[] metrics) {
+		if (sharded.length == 0)
+			return;
+		int all = config.players();
+		int p = Math.min(all, DenseInputMap.MAX_DENSE_PLAYERS);
+		map.ensureCapacity(p, config.getActionRegistry().size());
+		// shards start at multiples of 64 players, so they never share a word of
+		// the bits of the groups set in the map (see DenseInputMap#touched())
+		int n = Math.max(1, Math.min(shards, p));
+		int size = Math.max(64, ((p + n - 1) / n + 63) & ~63);
+		n = Math.max(1, (p + size - 1) / size);
+		this.map = map;
+		this.config = config;
+		this.players = p;
+		this.shardSize = size;
+		waiter = Thread.currentThread();
+		// shards write at the same time, so samples are set directly
+		SampleBuffer samples = map.samples;
+		map.samples = null;
+		try {
+			for (int index : sharded) {
+				long start = metrics == null ? 0 : System.nanoTime();
+				ShardableInputSource s = (ShardableInputSource) sources[index];
+				s.startShardedUpdate(config);
+				source = s;
+				failure = null;
+				pending.set(n);
+				for (int i = 1; i < n; i++) {
+					try {
+						executor.execute(tasks[i]);
+					} catch (RejectedExecutionException e) {
+						run(i);
+					}
+				}
+				run(0);
+				while (pending.get() != 0)
+					LockSupport.park(this);
+				Throwable t = failure;
+				if (t != null) {
+					failure = null;
+					if (t instanceof RuntimeException)
+						throw (RuntimeException) t;
+					if (t instanceof Error)
+						throw (Error) t;
+					throw new RuntimeException(t);
+				}
+				// players stored in a map, which must not be written at the same time
+				if (all > p)
+					s.updateShard(map, config, p, all);
+				if (metrics != null)
+					metrics[index].record(SourceMetrics.Operation.UPDATE, System.nanoTime() - start);
+			}
+		} finally {
+			map.samples = samples;
+			waiter = null;
+			source = null;
+			this.map = null;
+			this.config = null;
+		}
+	}
+
+	/**
+	 * Updates one shard and wakes up the waiting thread if it was the last one.
+	 * 
+	 * @param shard index of shard
+	 */
+	private void run(int shard) {
+		ShardableInputSource s = source;
+		Object event = Events.beginPoll();
+		try {
+			int from = shard * shardSize;
+			s.updateShard(map, config, from, Math.min(players, from + shardSize));
+		} catch (Throwable t) {
+			if (failure == null)
+				failure = t;
+		} finally {
+			Events.endPoll(event, s);
+			if (pending.decrementAndGet() == 0)
+				LockSupport.unpark(waiter);
+		}
+	}
+
+}
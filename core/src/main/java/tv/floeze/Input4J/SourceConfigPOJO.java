@@ -0,0 +1,21 @@
+package tv.floeze.Input4J;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+
+/**
+ * POJO for serializing {@link InputConfiguration}
+ * 
+ * @author Floeze
+ *
+ */
+final class SourceConfigPOJO<T> {
+	@JacksonXmlProperty(isAttribute = true, localName = "name")
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "class")
+	public T key;
+
+	@JacksonXmlProperty(localName = "value")
+	@JacksonXmlElementWrapper(useWrapping = false)
+	public SourceConfiguration[] configs;
+}
@@ -0,0 +1,233 @@
+package tv.floeze.Input4J;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the calls of an {@link InputSource} and the time they took. <br />
+ * 
+ * For every {@link Operation}, this records the number of calls, the total and
+ * the maximum time and a histogram of the times. Bucket {@code i} of the
+ * histogram counts the calls that took less than {@code 2^i} and at least
+ * {@code 2^(i-1)} nanoseconds, so percentiles are accurate to a factor of 2.
+ * <br />
+ * 
+ * The values can be read from any thread while they are recorded. See
+ * {@link Input4J#enableMetrics()}.
+ * 
+ * @author Floeze
+ *
+ */
+public final class SourceMetrics implements SourceMetricsMXBean {
+
+	/**
+	 * Calls of an {@link InputSource} that are measured
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public enum Operation {
+		/**
+		 * {@link InputSource#update(InputMap, InputConfiguration)}
+		 */
+		UPDATE,
+		/**
+		 * {@link InputSource#saveInputs()}
+		 */
+		SAVE_INPUTS,
+		/**
+		 * {@link InputSource#setInput(int, Object, short, InputConfiguration)}
+		 */
+		SET_INPUT
+	}
+
+	/**
+	 * Number of buckets of a histogram
+	 */
+	public static final int BUCKETS = 64;
+
+	private static final int OPERATIONS = Operation.values().length;
+
+	private final AtomicLongArray counts = new AtomicLongArray(OPERATIONS);
+
+	private final AtomicLongArray nanos = new AtomicLongArray(OPERATIONS);
+
+	private final AtomicLongArray max = new AtomicLongArray(OPERATIONS);
+
+	/**
+	 * The histograms of all operations, indexed by
+	 * {@code operation * BUCKETS + bucket}
+	 */
+	private final AtomicLongArray histograms = new AtomicLongArray(OPERATIONS * BUCKETS);
+
+	/**
+	 * Records a call.
+	 * 
+	 * @param operation {@link Operation} that was called
+	 * @param time      nanoseconds the call took
+	 */
+	void record(Operation operation, long time) {
+		int o = operation.ordinal();
+		if (time < 0)
+			time = 0;
+		counts.incrementAndGet(o);
+		nanos.addAndGet(o, time);
+		long m;
+		while (time > (m = max.get(o)) && !max.compareAndSet(o, m, time))
+			;
+		histograms.incrementAndGet(o * BUCKETS + 64 - Long.numberOfLeadingZeros(time));
+	}
+
+	/**
+	 * Gets the number of calls of an {@link Operation}.
+	 * 
+	 * @param operation {@link Operation} to get value of
+	 * @return the number of calls
+	 */
+	public long getCount(Operation operation) {
+		return counts.get(operation.ordinal());
+	}
+
+	/**
+	 * Gets the nanoseconds spent in all calls of an {@link Operation}.
+	 * 
+	 * @param operation {@link Operation} to get value of
+	 * @return the total nanoseconds
+	 */
+	public long getTotalNanos(Operation operation) {
+		return nanos.get(operation.ordinal());
+	}
+
+	/**
+	 * Gets the average nanoseconds of a call of an {@link Operation}.
+	 * 
+	 * @param operation {@link Operation} to get value of
+	 * @return the average nanoseconds, or 0 if there were no calls
+	 */
+	public double getMeanNanos(Operation operation) {
+		long c = getCount(operation);
+		return c == 0 ? 0 : (double) getTotalNanos(operation) / c;
+	}
+
+	/**
+	 * Gets the nanoseconds of the slowest call of an {@link Operation}.
+	 * 
+	 * @param operation {@link Operation} to get value of
+	 * @return the maximum nanoseconds
+	 */
+	public long getMaxNanos(Operation operation) {
+		return max.get(operation.ordinal());
+	}
+
+	/**
+	 * Gets the histogram of the times of an {@link Operation}.
+	 * 
+	 * @param operation {@link Operation} to get value of
+	 * @return a copy of the histogram with {@link #BUCKETS} buckets
+	 */
+	public long[] getHistogram(Operation operation) {
+		long[] h = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			h[i] = histograms.get(operation.ordinal() * BUCKETS + i);
+		return h;
+	}
+
+	/**
+	 * Gets an upper bound of the nanoseconds a part of the calls of an
+	 * {@link Operation} took.
+	 * 
+	 * @param operation  {@link Operation} to get value of
+	 * @param percentile part of the calls, between 0 and 1
+	 * @return the upper bound of the histogram bucket containing the percentile,
+	 *         or 0 if there were no calls
+	 */
+	public long getPercentileNanos(Operation operation, double percentile) {
+		long[] h = getHistogram(operation);
+		long total = 0;
+		for (long c : h)
+			total += c;
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += h[i];
+			if (seen >= rank && seen > 0)
+				return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public long getUpdateCount() {
+		return getCount(Operation.UPDATE);
+	}
+
+	@Override
+	public long getUpdateTotalNanos() {
+		return getTotalNanos(Operation.UPDATE);
+	}
+
+	@Override
+	public double getUpdateMeanNanos() {
+		return getMeanNanos(Operation.UPDATE);
+	}
+
+	@Override
+	public long getUpdateMaxNanos() {
+		return getMaxNanos(Operation.UPDATE);
+	}
+
+	@Override
+	public long getUpdate99thPercentileNanos() {
+		return getPercentileNanos(Operation.UPDATE, 0.99);
+	}
+
+	@Override
+	public long getSaveInputsCount() {
+		return getCount(Operation.SAVE_INPUTS);
+	}
+
+	@Override
+	public long getSaveInputsTotalNanos() {
+		return getTotalNanos(Operation.SAVE_INPUTS);
+	}
+
+	@Override
+	public long getSetInputCount() {
+		return getCount(Operation.SET_INPUT);
+	}
+
+	@Override
+	public long getSetInputTotalNanos() {
+		return getTotalNanos(Operation.SET_INPUT);
+	}
+
+	/**
+	 * Resets all values to 0. Calls recorded at the same time may be partially
+	 * kept.
+	 */
+	@Override
+	public void reset() {
+		for (int i = 0; i < OPERATIONS; i++) {
+			counts.set(i, 0);
+			nanos.set(i, 0);
+			max.set(i, 0);
+		}
+		for (int i = 0; i < histograms.length(); i++)
+			histograms.set(i, 0);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("{");
+		for (Operation o : Operation.values()) {
+			if (b.length() > 1)
+				b.append(", ");
+			b.append(o).append("={count=").append(getCount(o)).append(", mean=")
+					.append(String.format("%.0f", getMeanNanos(o))).append("ns, max=").append(getMaxNanos(o))
+					.append("ns}");
+		}
+		return b.append('}').toString();
+	}
+
+}
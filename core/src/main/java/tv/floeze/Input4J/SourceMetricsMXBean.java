@@ -0,0 +1,63 @@
+package tv.floeze.Input4J;
+
+/**
+ * JMX view of the {@link SourceMetrics} of an {@link InputSource}. <br />
+ * 
+ * See {@link Input4J#registerMetrics(String)}.
+ * 
+ * @author Floeze
+ *
+ */
+public interface SourceMetricsMXBean {
+
+	/**
+	 * @return the number of updates
+	 */
+	long getUpdateCount();
+
+	/**
+	 * @return the nanoseconds spent in all updates
+	 */
+	long getUpdateTotalNanos();
+
+	/**
+	 * @return the average nanoseconds of an update
+	 */
+	double getUpdateMeanNanos();
+
+	/**
+	 * @return the nanoseconds of the slowest update
+	 */
+	long getUpdateMaxNanos();
+
+	/**
+	 * @return an upper bound of the nanoseconds 99% of the updates took
+	 */
+	long getUpdate99thPercentileNanos();
+
+	/**
+	 * @return the number of times the inputs were saved
+	 */
+	long getSaveInputsCount();
+
+	/**
+	 * @return the nanoseconds spent saving inputs
+	 */
+	long getSaveInputsTotalNanos();
+
+	/**
+	 * @return the number of times an input was set
+	 */
+	long getSetInputCount();
+
+	/**
+	 * @return the nanoseconds spent setting inputs
+	 */
+	long getSetInputTotalNanos();
+
+	/**
+	 * Resets all values to 0.
+	 */
+	void reset();
+
+}
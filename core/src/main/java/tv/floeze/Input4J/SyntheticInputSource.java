@@ -0,0 +1,349 @@
+package tv.floeze.Input4J;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link InputSource} generating inputs without any device, to test and
+ * benchmark Input4J with many players and inputs. <br />
+ * 
+ * Every input bound to this source (see {@link Config}) is either pressed,
+ * which sets it to the value of its {@link Config}, or released. Which inputs
+ * are pressed is decided by a {@link Pattern} using a seeded random number
+ * generator, so two sources built with the same seed produce the same inputs
+ * for the same configuration. The state is reset whenever the configuration
+ * is compiled again. <br />
+ * 
+ * Use {@link #bindAll(InputConfiguration, int, Iterable, short)} to bind many
+ * players and identifiers at once. <br />
+ * 
+ * The random numbers only depend on the seed, the update and the input, so
+ * the source can be updated in shards (see {@link ShardableInputSource}) and
+ * produces the same inputs either way.
+ * 
+ * @author Floeze
+ *
+ */
+public class SyntheticInputSource extends InputSourceImpl implements ShardableInputSource {
+
+	/**
+	 * How the inputs of a {@link SyntheticInputSource} are pressed
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public enum Pattern {
+		/**
+		 * Every update, each input is toggled with a probability of the rate.
+		 */
+		RANDOM,
+		/**
+		 * Every update, a burst starts with a probability of the rate, unless one
+		 * is running. During a burst, all inputs are pressed.
+		 */
+		BURSTY,
+		/**
+		 * All inputs are always pressed.
+		 */
+		ALL_PRESSED
+	}
+
+	/**
+	 * The {@link SourceConfiguration} of {@link SyntheticInputSource}s, storing
+	 * the value of a pressed input
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Config implements SourceConfiguration {
+
+		/**
+		 * Value of the input while pressed
+		 */
+		public short value;
+
+		/**
+		 * Creates a new {@link Config} with a value of 0 (for deserializing).
+		 */
+		public Config() {
+		}
+
+		/**
+		 * Creates a new {@link Config}.
+		 * 
+		 * @param value value of the input while pressed
+		 */
+		public Config(short value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Config && ((Config) obj).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "Synthetic[" + value + "]";
+		}
+
+	}
+
+	/**
+	 * A Builder for building {@link SyntheticInputSource}s.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	public static class Builder extends InputSourceBuilder {
+
+		private final Pattern pattern;
+
+		private long seed;
+
+		private double rate = 0.1;
+
+		private int burstLength = 10;
+
+		/**
+		 * Creates a new {@link Builder}.
+		 * 
+		 * @param pattern {@link Pattern} to press the inputs with
+		 */
+		public Builder(Pattern pattern) {
+			if (pattern == null)
+				throw new IllegalArgumentException("Pattern must not be null");
+			this.pattern = pattern;
+		}
+
+		/**
+		 * Sets the seed of the random number generator. Defaults to 0.
+		 * 
+		 * @param seed seed of the random number generator
+		 * @return this {@link Builder}
+		 */
+		public Builder seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Sets the probability per update of the {@link Pattern}. Defaults to 0.1.
+		 * 
+		 * @param rate probability between 0 and 1
+		 * @return this {@link Builder}
+		 */
+		public Builder rate(double rate) {
+			if (!(rate >= 0 && rate <= 1))
+				throw new IllegalArgumentException("Rate must be between 0 and 1: " + rate);
+			this.rate = rate;
+			return this;
+		}
+
+		/**
+		 * Sets the number of updates a burst of {@link Pattern#BURSTY} lasts.
+		 * Defaults to 10.
+		 * 
+		 * @param burstLength number of updates
+		 * @return this {@link Builder}
+		 */
+		public Builder burstLength(int burstLength) {
+			if (burstLength < 1)
+				throw new IllegalArgumentException("Burst length must be positive: " + burstLength);
+			this.burstLength = burstLength;
+			return this;
+		}
+
+		@Override
+		protected InputSource build() {
+			return new SyntheticInputSource(pattern, seed, rate, burstLength);
+		}
+
+	}
+
+	private final Pattern pattern;
+
+	private final long seed;
+
+	/**
+	 * Probability per update, scaled to 53 bits
+	 */
+	private final long threshold;
+
+	private final int burstLength;
+
+	/**
+	 * Number of updates since {@link #table} changed
+	 */
+	private long frame;
+
+	/**
+	 * {@link BindingTable} {@link #pressed} belongs to
+	 */
+	private BindingTable<?> table;
+
+	/**
+	 * One entry for each entry of {@link #table}, true if pressed
+	 */
+	private boolean[] pressed = new boolean[0];
+
+	/**
+	 * Number of updates left of the current burst
+	 */
+	private int burst;
+
+	/**
+	 * True if any input may be pressed in the current update
+	 */
+	private boolean active;
+
+	/**
+	 * Creates a new {@link SyntheticInputSource}.
+	 * 
+	 * @param pattern     {@link Pattern} to press the inputs with
+	 * @param seed        seed of the random number generator
+	 * @param rate        probability per update of the {@link Pattern}
+	 * @param burstLength number of updates a burst lasts
+	 */
+	protected SyntheticInputSource(Pattern pattern, long seed, double rate, int burstLength) {
+		this.pattern = pattern;
+		this.seed = seed;
+		this.threshold = (long) (rate * (1L << 53));
+		this.burstLength = burstLength;
+	}
+
+	/**
+	 * Binds every identifier of every player from 0 to {@code players - 1} to a
+	 * {@link SyntheticInputSource} and compiles the configuration once. <br />
+	 * 
+	 * This is much faster than binding the inputs one by one.
+	 * 
+	 * @param <T>         Class of identifier
+	 * @param config      {@link InputConfiguration} to add the inputs to
+	 * @param players     number of players
+	 * @param identifiers identifiers to bind for every player
+	 * @param value       value of the inputs while pressed
+	 */
+	public static <T> void bindAll(InputConfiguration<T> config, int players, Iterable<T> identifiers, short value) {
+		for (int p = 0; p < players; p++) {
+			Map<T, List<SourceConfiguration>> map = config.getConfiguration(p, SyntheticInputSource.class);
+			for (T identifier : identifiers)
+				map.computeIfAbsent(identifier, k -> new ArrayList<SourceConfiguration>()).add(new Config(value));
+		}
+		config.compile();
+	}
+
+	@Override
+	protected boolean handleEnable() {
+		return true;
+	}
+
+	@Override
+	protected boolean handleDisable() {
+		return true;
+	}
+
+	@Override
+	protected <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		BindingTable<T> t = config.getBindings(SyntheticInputSource.class);
+		if (prepare(t))
+			apply(map, t, 0, t.size());
+	}
+
+	@Override
+	public <T> void startShardedUpdate(InputConfiguration<T> config) {
+		if (isEnabled())
+			prepare(config.getBindings(SyntheticInputSource.class));
+	}
+
+	@Override
+	public <T> void updateShard(InputMap<T> map, InputConfiguration<T> config, int fromPlayer, int toPlayer) {
+		if (!isEnabled())
+			return;
+		BindingTable<T> t = config.getBindings(SyntheticInputSource.class);
+		if (t == table && active)
+			apply(map, t, t.indexOfPlayer(fromPlayer), t.indexOfPlayer(toPlayer));
+	}
+
+	/**
+	 * Starts the next update: resets the state if the {@link BindingTable}
+	 * changed and decides if a burst is running.
+	 * 
+	 * @param t {@link BindingTable} of this source
+	 * @return true if any input may be pressed in this update
+	 */
+	private boolean prepare(BindingTable<?> t) {
+		if (t != table) {
+			table = t;
+			pressed = new boolean[t.size()];
+			frame = 0;
+			burst = 0;
+		}
+		frame++;
+		if (pattern != Pattern.BURSTY)
+			return active = true;
+		if (burst > 0)
+			burst--;
+		if (burst == 0 && (random(frame, -1) >>> 11) < threshold)
+			burst = burstLength;
+		return active = burst > 0;
+	}
+
+	/**
+	 * Writes the pressed inputs of a range of entries of a {@link BindingTable}
+	 * into an {@link InputMap}.
+	 * 
+	 * @param <T>  Type of identifier
+	 * @param map  {@link InputMap} to write values to
+	 * @param t    {@link BindingTable} of this source
+	 * @param from first entry
+	 * @param to   entry after the last entry
+	 */
+	private <T> void apply(InputMap<T> map, BindingTable<T> t, int from, int to) {
+		if (pattern == Pattern.RANDOM) {
+			boolean[] p = pressed;
+			long f = frame;
+			for (int i = from; i < to; i++) {
+				if ((random(f, i) >>> 11) < threshold)
+					p[i] = !p[i];
+				if (p[i])
+					map.setById(t.getPlayer(i), t.getAction(i), ((Config) t.getConfiguration(i)).value);
+			}
+		} else {
+			for (int i = from; i < to; i++)
+				map.setById(t.getPlayer(i), t.getAction(i), ((Config) t.getConfiguration(i)).value);
+		}
+	}
+
+	/**
+	 * Gets the random number of an input in an update (SplitMix64 of a counter
+	 * built from the seed, update and input).
+	 * 
+	 * @param frame number of the update
+	 * @param index index of the input, or -1 for the update itself
+	 * @return a random number
+	 */
+	private long random(long frame, int index) {
+		long z = seed + frame * 0x9E3779B97F4A7C15L + (index + 1) * 0xD1B54A32D192ED03L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	protected void handleSaveInputs() {
+	}
+
+	@Override
+	protected <T> boolean handleSetInput(int player, T name, short value, InputConfiguration<T> config) {
+		config.addInput(player, SyntheticInputSource.class, name, new Config(value));
+		return true;
+	}
+
+}
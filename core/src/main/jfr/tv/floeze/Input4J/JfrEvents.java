@@ -0,0 +1,179 @@
+package tv.floeze.Input4J;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder events of Input4J. Only use through {@link Events},
+ * which checks that JFR is available first and creates this through
+ * reflection. <br />
+ * 
+ * This is compiled separately from the rest of Input4J (see the {@code jfr}
+ * profile in the pom), because {@code jdk.jfr} is not part of the Java 8 API.
+ * 
+ * @author Floeze
+ *
+ */
+final class JfrEvents implements Events.Recorder {
+
+	@Name("tv.floeze.Input4J.Update")
+	@Label("Input Update")
+	@Category("Input4J")
+	@Description("Input4J.update() collecting the inputs of a frame")
+	static final class UpdateEvent extends Event {
+		@Label("Sources")
+		int sources;
+	}
+
+	@Name("tv.floeze.Input4J.Poll")
+	@Label("Input Source Poll")
+	@Category("Input4J")
+	@Description("Update of one InputSource")
+	static final class PollEvent extends Event {
+		@Label("Source")
+		Class<?> source;
+	}
+
+	@Name("tv.floeze.Input4J.SetInput")
+	@Label("Set Input")
+	@Category("Input4J")
+	@Description("Binding an input with Input4J.setInput()")
+	static final class SetInputEvent extends Event {
+		@Label("Source")
+		Class<?> source;
+
+		@Label("Player")
+		int player;
+
+		@Label("Identifier")
+		String identifier;
+
+		@Label("Value")
+		short value;
+
+		@Label("Handled")
+		@Description("Whether the source set the input")
+		boolean handled;
+	}
+
+	@Name("tv.floeze.Input4J.ConfigurationIO")
+	@Label("Input Configuration I/O")
+	@Category("Input4J")
+	@Description("Saving or loading an InputConfiguration")
+	static final class ConfigurationIOEvent extends Event {
+		@Label("Operation")
+		String operation;
+
+		@Label("Format")
+		String format;
+
+		@Label("Players")
+		int players;
+
+		@Label("Size")
+		@DataAmount
+		@Description("Size of the data in bytes (characters for Strings), or -1 if unknown")
+		long bytes;
+	}
+
+	private static final EventType UPDATE = EventType.getEventType(UpdateEvent.class);
+
+	private static final EventType POLL = EventType.getEventType(PollEvent.class);
+
+	private static final EventType SET_INPUT = EventType.getEventType(SetInputEvent.class);
+
+	private static final EventType CONFIGURATION_IO = EventType.getEventType(ConfigurationIOEvent.class);
+
+	JfrEvents() {
+	}
+
+	@Override
+	public Object beginUpdate() {
+		if (!UPDATE.isEnabled())
+			return null;
+		UpdateEvent e = new UpdateEvent();
+		e.begin();
+		return e;
+	}
+
+	@Override
+	public void endUpdate(Object event, int sources) {
+		UpdateEvent e = (UpdateEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.sources = sources;
+			e.commit();
+		}
+	}
+
+	@Override
+	public Object beginPoll() {
+		if (!POLL.isEnabled())
+			return null;
+		PollEvent e = new PollEvent();
+		e.begin();
+		return e;
+	}
+
+	@Override
+	public void endPoll(Object event, InputSource source) {
+		PollEvent e = (PollEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.source = source.getClass();
+			e.commit();
+		}
+	}
+
+	@Override
+	public Object beginSetInput() {
+		if (!SET_INPUT.isEnabled())
+			return null;
+		SetInputEvent e = new SetInputEvent();
+		e.begin();
+		return e;
+	}
+
+	@Override
+	public void endSetInput(Object event, InputSource source, int player, Object identifier, short value,
+			boolean handled) {
+		SetInputEvent e = (SetInputEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.source = source.getClass();
+			e.player = player;
+			e.identifier = String.valueOf(identifier);
+			e.value = value;
+			e.handled = handled;
+			e.commit();
+		}
+	}
+
+	@Override
+	public Object beginConfigurationIO() {
+		if (!CONFIGURATION_IO.isEnabled())
+			return null;
+		ConfigurationIOEvent e = new ConfigurationIOEvent();
+		e.begin();
+		return e;
+	}
+
+	@Override
+	public void endConfigurationIO(Object event, String operation, String format, int players, long bytes) {
+		ConfigurationIOEvent e = (ConfigurationIOEvent) event;
+		e.end();
+		if (e.shouldCommit()) {
+			e.operation = operation;
+			e.format = format;
+			e.players = players;
+			e.bytes = bytes;
+			e.commit();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests handling the events of an {@link AsyncInputSourceImpl} across enabling
+ * and disabling it.
+ * 
+ * @author Floeze
+ *
+ */
+class AsyncInputSourceImplTest {
+
+	/**
+	 * Remembers the codes of all handled events.
+	 */
+	private static final class Recording extends AsyncInputSourceImpl {
+
+		final List<Integer> codes = new ArrayList<Integer>();
+
+		boolean send(int code) {
+			return publish(code, (short) 1);
+		}
+
+		@Override
+		protected void handleEvent(int code, short value, long timestamp) {
+			codes.add(code);
+		}
+
+		@Override
+		protected <T> void handleAsyncUpdate(InputMap<T> map, InputConfiguration<T> config) {
+		}
+
+		@Override
+		protected boolean handleEnable() {
+			return true;
+		}
+
+		@Override
+		protected boolean handleDisable() {
+			return true;
+		}
+
+		@Override
+		protected void handleSaveInputs() {
+		}
+
+		@Override
+		protected <T> boolean handleSetInput(int player, T name, short value, InputConfiguration<T> config) {
+			return false;
+		}
+
+	}
+
+	@Test
+	void discardsEventsPublishedBeforeDisabling() {
+		Recording source = new Recording();
+		source.enable();
+		source.send(1);
+		source.update(new InputMap<Object>(), null);
+		source.send(2);
+		source.send(3);
+		source.disable();
+		assertFalse(source.send(4));
+		source.enable();
+		source.send(5);
+		source.update(new InputMap<Object>(), null);
+		assertEquals(Arrays.asList(1, 5), source.codes);
+	}
+
+}
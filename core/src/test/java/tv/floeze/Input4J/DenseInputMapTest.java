@@ -0,0 +1,46 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests storing players and identifiers outside of the array of a
+ * {@link DenseInputMap}.
+ * 
+ * @author Floeze
+ *
+ */
+class DenseInputMapTest {
+
+	@Test
+	void storesLargePlayersInMap() {
+		DenseInputMap<String> map = new DenseInputMap<String>(4, 10);
+		for (int player : new int[] { -3, 5_000_000, Integer.MAX_VALUE }) {
+			map.set(player, "jump", (short) 7);
+			assertEquals(7, map.get(player, "jump"), "player " + player);
+		}
+		map.set(1, "jump", (short) 3);
+		assertTrue(map.players() <= 8, "players " + map.players());
+		assertEquals(3, map.get(1, "jump"));
+		map.clear();
+		assertEquals(0, map.get(5_000_000, "jump"));
+		assertEquals(0, map.get(Integer.MAX_VALUE, "jump"));
+	}
+
+	@Test
+	void rejectsTooLargeSizes() {
+		DenseInputMap<Object> map = new DenseInputMap<Object>(4, 10);
+		assertThrows(IllegalArgumentException.class, () -> map.setById(0, Integer.MAX_VALUE, (short) 1));
+		assertThrows(IllegalArgumentException.class, () -> map.put(5_000_000, 0, (short) 1));
+		assertThrows(IllegalArgumentException.class,
+				() -> map.ensureCapacity(DenseInputMap.MAX_DENSE_PLAYERS + 1, 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> map.ensureCapacity(DenseInputMap.MAX_DENSE_PLAYERS, 1 << 20));
+		assertEquals(4, map.players());
+		assertEquals(10, map.actions());
+	}
+
+}
@@ -0,0 +1,137 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link EventRingBuffer}, with several producers publishing while the
+ * consumer drains.
+ * 
+ * @author Floeze
+ *
+ */
+class EventRingBufferTest {
+
+	private static final int PRODUCERS = 4;
+
+	private static final int EVENTS = 200_000;
+
+	@Test
+	void roundsCapacityUp() {
+		assertEquals(1, new EventRingBuffer(1).capacity());
+		assertEquals(64, new EventRingBuffer(64).capacity());
+		assertEquals(128, new EventRingBuffer(65).capacity());
+	}
+
+	@Test
+	void dropsEventsWhenFull() {
+		EventRingBuffer buffer = new EventRingBuffer(4);
+		for (int i = 0; i < 4; i++)
+			assertTrue(buffer.offer(i, (short) i, i));
+		assertFalse(buffer.offer(4, (short) 4, 4));
+		assertEquals(1, buffer.dropped());
+
+		List<Integer> codes = new ArrayList<Integer>();
+		assertEquals(2, buffer.drain((code, value, timestamp) -> codes.add(code), 2));
+		assertTrue(buffer.offer(5, (short) 5, 5));
+		assertEquals(3, buffer.drain((code, value, timestamp) -> codes.add(code), 10));
+		assertEquals(0, buffer.drain((code, value, timestamp) -> codes.add(code), 10));
+		assertEquals("[0, 1, 2, 3, 5]", codes.toString());
+	}
+
+	/**
+	 * Checks the events drained while producers publish.
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	private static final class Checker implements EventRingBuffer.EventHandler {
+
+		/**
+		 * Next expected sequence of each producer
+		 */
+		final int[] next = new int[PRODUCERS];
+
+		int received;
+
+		boolean retry;
+
+		@Override
+		public void handleEvent(int code, short value, long timestamp) {
+			int sequence = (int) timestamp;
+			// the fields of an event are written by the same producer
+			assertEquals(code, (int) (timestamp >>> 32));
+			assertEquals((short) sequence, value);
+			// events of a producer arrive in order, each once, and none are skipped if
+			// producers retry
+			if (retry)
+				assertEquals(next[code], sequence);
+			else
+				assertTrue(sequence >= next[code]);
+			next[code] = sequence + 1;
+			received++;
+		}
+	}
+
+	private static int publishAndDrain(EventRingBuffer buffer, Checker checker) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger running = new AtomicInteger(PRODUCERS);
+		AtomicInteger offered = new AtomicInteger();
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			int code = p;
+			producers[p] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int s = 0; s < EVENTS; s++) {
+					long timestamp = (long) code << 32 | s;
+					while (!buffer.offer(code, (short) s, timestamp) && checker.retry)
+						Thread.yield();
+					offered.incrementAndGet();
+				}
+				running.decrementAndGet();
+			});
+			producers[p].start();
+		}
+		start.countDown();
+		while (running.get() > 0)
+			if (buffer.drain(checker, 100) == 0)
+				Thread.yield();
+		while (buffer.drain(checker, 100) > 0)
+			;
+		for (Thread t : producers)
+			t.join();
+		return offered.get();
+	}
+
+	@Test
+	void deliversEveryEventOnceAndInOrder() throws InterruptedException {
+		EventRingBuffer buffer = new EventRingBuffer(256);
+		Checker checker = new Checker();
+		checker.retry = true;
+		publishAndDrain(buffer, checker);
+		assertEquals(PRODUCERS * EVENTS, checker.received);
+		for (int p = 0; p < PRODUCERS; p++)
+			assertEquals(EVENTS, checker.next[p]);
+	}
+
+	@Test
+	void countsDroppedEvents() throws InterruptedException {
+		EventRingBuffer buffer = new EventRingBuffer(16);
+		Checker checker = new Checker();
+		int offered = publishAndDrain(buffer, checker);
+		assertEquals(offered, checker.received + buffer.dropped());
+	}
+
+}
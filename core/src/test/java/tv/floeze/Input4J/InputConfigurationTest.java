@@ -0,0 +1,216 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests saving and loading {@link InputConfiguration}s as xml and in the binary
+ * format.
+ * 
+ * @author Floeze
+ *
+ */
+class InputConfigurationTest {
+
+	private static final String UP = "up", DOWN = "down", RIGHT = "right", JUMP = "jump", FIRE = "fire";
+
+	private static final String[] ACTIONS = { UP, DOWN, "left", RIGHT, JUMP, FIRE };
+
+	private static final int PLAYERS = 20;
+
+	/**
+	 * Creates a random {@link InputConfiguration}, with inputs of two
+	 * {@link InputSource}s, several bindings of the same input and combos.
+	 * 
+	 * @param seed seed of the random number generator
+	 * @return the {@link InputConfiguration}
+	 */
+	static InputConfiguration<String> random(long seed) {
+		Random random = new Random(seed);
+		InputConfiguration<String> config = new InputConfiguration<String>();
+		for (int i = 0; i < 200; i++) {
+			Class<? extends InputSource> type = random.nextBoolean() ? SyntheticInputSource.class
+					: RemoteInputSource.class;
+			config.addInput(random.nextInt(PLAYERS), type, ACTIONS[random.nextInt(ACTIONS.length)],
+					new SyntheticInputSource.Config((short) (random.nextInt(65535) - 32767)));
+		}
+		config.addCombo(Combo.chord(JUMP, UP, FIRE));
+		config.addCombo(Combo.sequence(FIRE, 8, DOWN, RIGHT, FIRE).withValue((short) -3));
+		return config;
+	}
+
+	static void assertSameContent(InputConfiguration<String> expected, InputConfiguration<String> actual)
+			throws IOException {
+		assertEquals(expected.save(), actual.save());
+		assertEquals(expected.getCombos(), actual.getCombos());
+		for (int p = 0; p < PLAYERS; p++)
+			for (Class<? extends InputSource> type : Arrays.asList(SyntheticInputSource.class,
+					RemoteInputSource.class))
+				assertEquals(expected.getConfiguration(p, type), actual.getConfiguration(p, type));
+	}
+
+	@Test
+	void xmlRoundTrip() throws Exception {
+		for (long seed = 0; seed < 10; seed++) {
+			InputConfiguration<String> config = random(seed);
+			assertSameContent(config, InputConfiguration.load(config.save(), String.class));
+		}
+	}
+
+	@Test
+	void binaryRoundTrip() throws Exception {
+		for (long seed = 0; seed < 10; seed++) {
+			InputConfiguration<String> config = random(seed);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			config.saveBinary(out);
+			assertSameContent(config,
+					InputConfiguration.loadBinary(new ByteArrayInputStream(out.toByteArray()), String.class));
+		}
+	}
+
+	@Test
+	void binaryRoundTripThroughFileChannel(@TempDir Path dir) throws Exception {
+		InputConfiguration<String> config = random(42);
+		Path file = dir.resolve("config.bin");
+		try (FileChannel c = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			config.saveBinary(c);
+		}
+		try (FileChannel c = FileChannel.open(file)) {
+			assertSameContent(config, InputConfiguration.loadBinary(c, String.class));
+		}
+	}
+
+	@Test
+	void binaryLoadLeavesFileChannelAfterConfiguration(@TempDir Path dir) throws Exception {
+		Path file = dir.resolve("configs.bin");
+		long[] ends = new long[3];
+		try (FileChannel c = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			for (int i = 0; i < ends.length; i++) {
+				random(i).saveBinary(c);
+				ends[i] = c.position();
+			}
+		}
+		try (FileChannel c = FileChannel.open(file)) {
+			for (int i = 0; i < ends.length; i++) {
+				assertSameContent(random(i), InputConfiguration.loadBinary(c, String.class));
+				assertEquals(ends[i], c.position());
+			}
+		}
+	}
+
+	@Test
+	void xmlAndBinaryLoadTheSame() throws Exception {
+		InputConfiguration<String> config = random(7);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		config.saveBinary(out);
+		assertSameContent(InputConfiguration.load(config.save(), String.class),
+				InputConfiguration.loadBinary(new ByteArrayInputStream(out.toByteArray()), String.class));
+	}
+
+	@Test
+	void saveIncludesEveryChange() throws Exception {
+		List<Consumer<InputConfiguration<String>>> changes = new ArrayList<Consumer<InputConfiguration<String>>>();
+		changes.add(c -> c.addInput(3, SyntheticInputSource.class, JUMP, new SyntheticInputSource.Config((short) 11)));
+		changes.add(c -> c.getConfiguration(4, RemoteInputSource.class)
+				.computeIfAbsent(FIRE, k -> new ArrayList<SourceConfiguration>())
+				.add(new SyntheticInputSource.Config((short) -4)));
+		changes.add(c -> c.clearInput(5, UP));
+		changes.add(c -> c.addCombo(Combo.chord(UP, DOWN, RIGHT)));
+		changes.add(c -> c.removeCombos(JUMP));
+		changes.add(c -> c.addInput(PLAYERS + 5, SyntheticInputSource.class, DOWN,
+				new SyntheticInputSource.Config((short) 2)));
+		changes.add(InputConfiguration::clean);
+
+		// saved after every change, so unchanged parts come from the cache
+		InputConfiguration<String> saved = random(11);
+		saved.save();
+		for (int i = 0; i < changes.size(); i++) {
+			changes.get(i).accept(saved);
+			InputConfiguration<String> expected = random(11);
+			for (int j = 0; j <= i; j++)
+				changes.get(j).accept(expected);
+			assertEquals(expected.save(), saved.save(), "after change " + i);
+		}
+	}
+
+	@Test
+	void saveIncludesChangesToMapsReturnedBeforeSaving() throws Exception {
+		InputConfiguration<String> config = random(12);
+		List<SourceConfiguration> jump = config.getConfiguration(2, SyntheticInputSource.class)
+				.computeIfAbsent(JUMP, k -> new ArrayList<SourceConfiguration>());
+		config.save();
+		jump.add(new SyntheticInputSource.Config((short) 99));
+		assertEquals(jump, InputConfiguration.load(config.save(), String.class)
+				.getConfiguration(2, SyntheticInputSource.class).get(JUMP));
+	}
+
+	@Test
+	void saveIncludesChangesMadeInForEach() throws Exception {
+		InputConfiguration<String> config = random(13);
+		InputConfiguration<String> expected = random(13);
+		config.save();
+		long modifications = config.modifications();
+		for (InputConfiguration<String> c : Arrays.asList(config, expected))
+			c.forEach(SyntheticInputSource.class, (player, map) -> map.remove(UP));
+		assertEquals(expected.save(), config.save());
+		config.compile();
+		assertEquals(expected.save(), config.save());
+		assertNotEquals(modifications, config.modifications());
+	}
+
+	@Test
+	void binaryLoadsEqualConfigurationsAsSeparateInstances() throws Exception {
+		InputConfiguration<String> config = new InputConfiguration<String>();
+		config.addInput(0, SyntheticInputSource.class, JUMP, new SyntheticInputSource.Config((short) 5));
+		config.addInput(1, SyntheticInputSource.class, JUMP, new SyntheticInputSource.Config((short) 5));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		config.saveBinary(out);
+		InputConfiguration<String> loaded = InputConfiguration.loadBinary(new ByteArrayInputStream(out.toByteArray()),
+				String.class);
+		((SyntheticInputSource.Config) loaded.getConfiguration(0, SyntheticInputSource.class).get(JUMP).get(0)).value = 9;
+		assertEquals(new SyntheticInputSource.Config((short) 5),
+				loaded.getConfiguration(1, SyntheticInputSource.class).get(JUMP).get(0));
+	}
+
+	@Test
+	void rejectsInvalidCountsAndIndices() throws Exception {
+		byte[] header = { 0x49, 0x34, 0x4A, 0x42, 0, 2 };
+		// a count of 2^32 - 1 strings
+		byte[] count = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+		// one string, one identifier referencing the string at index 5
+		byte[] index = { 1, 0, 1, 'a', 1, 0, 5 };
+		for (byte[] data : Arrays.asList(count, index)) {
+			byte[] b = Arrays.copyOf(header, header.length + data.length);
+			System.arraycopy(data, 0, b, header.length, data.length);
+			assertThrows(IOException.class,
+					() -> InputConfiguration.loadBinary(new ByteArrayInputStream(b), String.class));
+		}
+	}
+
+	@Test
+	void rejectsTruncatedBinaryData() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		random(3).saveBinary(out);
+		byte[] data = out.toByteArray();
+		for (int length : new int[] { 0, 3, data.length / 2, data.length - 1 })
+			assertThrows(IOException.class, () -> InputConfiguration
+					.loadBinary(new ByteArrayInputStream(Arrays.copyOf(data, length)), String.class));
+	}
+
+}
@@ -0,0 +1,115 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests encoding and decoding differences between frames with
+ * {@link InputDeltaCodec}.
+ * 
+ * @author Floeze
+ *
+ */
+class InputDeltaCodecTest {
+
+	static void assertSameInputs(DenseInputMap<?> expected, DenseInputMap<?> actual) {
+		int players = Math.max(expected.players(), actual.players());
+		int actions = Math.max(expected.actions(), actual.actions());
+		for (int p = 0; p < players; p++)
+			for (int a = 0; a < actions; a++)
+				assertEquals(expected.getById(p, a), actual.getById(p, a), "player " + p + ", id " + a);
+	}
+
+	/**
+	 * Changes some inputs of a frame to random values, or releases them.
+	 */
+	private static void change(Random random, DenseInputMap<?> frame, int players, int actions, int changes) {
+		for (int i = 0; i < changes; i++)
+			frame.put(random.nextInt(players), random.nextInt(actions),
+					random.nextInt(3) == 0 ? 0 : (short) (random.nextInt(65536) - 32768));
+	}
+
+	/**
+	 * Encodes the difference between two frames.
+	 */
+	private static ByteBuffer encode(DenseInputMap<?> current, DenseInputMap<?> reference) {
+		ByteBuffer buffer = ByteBuffer.allocate(InputDeltaCodec.maxSize(current, reference));
+		InputDeltaCodec.encode(buffer, current, reference);
+		buffer.flip();
+		return buffer;
+	}
+
+	@Test
+	void roundTrip() {
+		Random random = new Random(1);
+		DenseInputMap<Object> current = new DenseInputMap<Object>(4, 70);
+		DenseInputMap<Object> previous = new DenseInputMap<Object>(4, 70);
+		DenseInputMap<Object> decoded = new DenseInputMap<Object>(4, 70);
+		for (int frame = 0; frame < 2000; frame++) {
+			// the frames grow now and then, so differences between sizes are encoded too
+			int players = frame < 500 ? 4 : frame < 1200 ? 9 : 20;
+			int actions = frame < 800 ? 70 : 200;
+			change(random, current, players, actions, random.nextInt(40));
+			ByteBuffer delta = encode(current, previous);
+			InputDeltaCodec.decode(delta, decoded);
+			assertEquals(0, delta.remaining());
+			assertSameInputs(current, decoded);
+			previous.copyFrom(current);
+		}
+	}
+
+	@Test
+	void encodesFullFrames() {
+		Random random = new Random(2);
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(8, 100);
+		change(random, frame, 8, 100, 300);
+		DenseInputMap<Object> decoded = new DenseInputMap<Object>(1, 1);
+		InputDeltaCodec.decode(encode(frame, null), decoded);
+		assertSameInputs(frame, decoded);
+	}
+
+	@Test
+	void encodesOnlyChanges() {
+		DenseInputMap<Object> previous = new DenseInputMap<Object>(1000, 64);
+		change(new Random(3), previous, 1000, 64, 5000);
+		DenseInputMap<Object> current = new DenseInputMap<Object>(1000, 64);
+		current.copyFrom(previous);
+		assertEquals(1, encode(current, previous).remaining());
+		current.put(500, 3, (short) (previous.getById(500, 3) + 1));
+		ByteBuffer delta = ByteBuffer.allocate(InputDeltaCodec.maxSize(current, previous));
+		assertEquals(1, InputDeltaCodec.encode(delta, current, previous));
+		delta.flip();
+		DenseInputMap<Object> decoded = new DenseInputMap<Object>(1000, 64);
+		decoded.copyFrom(previous);
+		InputDeltaCodec.decode(delta, decoded);
+		assertSameInputs(current, decoded);
+	}
+
+	@Test
+	void rejectsIncompleteDifferences() {
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(4, 10);
+		change(new Random(4), frame, 4, 10, 20);
+		ByteBuffer delta = encode(frame, null);
+		delta.limit(delta.limit() - 1);
+		assertThrows(BufferUnderflowException.class,
+				() -> InputDeltaCodec.decode(delta, new DenseInputMap<Object>(4, 10)));
+	}
+
+	@Test
+	void rejectsInputsOutOfBounds() {
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(4, 10);
+		frame.setById(3, 9, (short) 1);
+		assertThrows(IllegalArgumentException.class,
+				() -> InputDeltaCodec.decode(encode(frame, null), new DenseInputMap<Object>(4, 10), 3, 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> InputDeltaCodec.decode(encode(frame, null), new DenseInputMap<Object>(4, 10), 4, 9));
+		InputDeltaCodec.decode(encode(frame, null), new DenseInputMap<Object>(4, 10), 4, 10);
+	}
+
+}
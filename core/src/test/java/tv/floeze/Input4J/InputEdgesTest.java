@@ -0,0 +1,63 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests computing {@link InputEdges} from frames in which only some inputs are
+ * set.
+ * 
+ * @author Floeze
+ *
+ */
+class InputEdgesTest {
+
+	@Test
+	void matchesComparingEveryInput() {
+		Random random = new Random(9);
+		InputEdges<Object> edges = new InputEdges<Object>(null);
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(3, 70);
+		boolean[][] held = new boolean[20][200];
+		boolean[][] previous = new boolean[20][200];
+		for (int f = 0; f < 3000; f++) {
+			// the frames grow now and then, so the bitsets are resized
+			int players = f < 1000 ? 3 : f < 2000 ? 7 : 20;
+			int actions = f < 1500 ? 70 : 200;
+			for (int i = random.nextInt(30); i > 0; i--) {
+				int p = random.nextInt(players);
+				int a = random.nextInt(actions);
+				held[p][a] = !held[p][a];
+			}
+			frame.clear();
+			frame.ensureCapacity(players, actions);
+			for (int p = 0; p < players; p++)
+				for (int a = 0; a < actions; a++)
+					if (held[p][a])
+						frame.put(p, a, (short) (random.nextBoolean() ? 1 : -1));
+			edges.update(frame);
+
+			int next = edges.nextChanged(0);
+			for (int p = 0; p < frame.players(); p++)
+				for (int a = 0; a < frame.actions(); a++) {
+					boolean down = p < players && a < actions && held[p][a];
+					boolean before = p < players && a < actions && previous[p][a];
+					String input = "frame " + f + ", player " + p + ", id " + a;
+					assertEquals(down, edges.isPressedById(p, a), input);
+					assertEquals(down && !before, edges.isJustPressedById(p, a), input);
+					assertEquals(!down && before, edges.isJustReleasedById(p, a), input);
+					if (down != before) {
+						assertEquals(p, edges.getPlayer(next), input);
+						assertEquals(a, edges.getAction(next), input);
+						next = edges.nextChanged(next + 1);
+					}
+				}
+			assertEquals(-1, next, "frame " + f);
+			for (int p = 0; p < players; p++)
+				previous[p] = held[p].clone();
+		}
+	}
+
+}
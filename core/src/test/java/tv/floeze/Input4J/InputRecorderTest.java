@@ -0,0 +1,148 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests recording frames with {@link InputRecorder} and replaying them with
+ * {@link ReplayInputSource}.
+ * 
+ * @author Floeze
+ *
+ */
+class InputRecorderTest {
+
+	private static final int FRAMES = 1000;
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Records random frames, which grow after a while.
+	 * 
+	 * @param file file to record to
+	 * @return the recorded frames
+	 */
+	private static List<DenseInputMap<Object>> record(File file) throws IOException {
+		Random random = new Random(1);
+		List<DenseInputMap<Object>> frames = new ArrayList<DenseInputMap<Object>>();
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(3, 5);
+		try (InputRecorder recorder = new InputRecorder(file, 16)) {
+			for (int f = 0; f < FRAMES; f++) {
+				int players = f < 300 ? 3 : 6;
+				int actions = f < 500 ? 5 : 90;
+				for (int i = random.nextInt(10); i > 0; i--)
+					frame.put(random.nextInt(players), random.nextInt(actions),
+							random.nextBoolean() ? 0 : (short) (random.nextInt(65536) - 32768));
+				recorder.record(frame);
+				DenseInputMap<Object> copy = new DenseInputMap<Object>(1, 1);
+				copy.copyFrom(frame);
+				frames.add(copy);
+			}
+			assertEquals(FRAMES, recorder.getFrames());
+		}
+		return frames;
+	}
+
+	private static DenseInputMap<Object> update(ReplayInputSource replay) {
+		DenseInputMap<Object> map = new DenseInputMap<Object>(1, 1);
+		replay.update(map, null);
+		return map;
+	}
+
+	@Test
+	void replaysRecordedFrames() throws IOException {
+		File file = dir.resolve("log.bin").toFile();
+		List<DenseInputMap<Object>> frames = record(file);
+		ReplayInputSource replay = new ReplayInputSource(file, false);
+		replay.enable();
+		assertEquals(FRAMES, replay.getFrames());
+		for (int f = 0; f < FRAMES; f++)
+			InputDeltaCodecTest.assertSameInputs(frames.get(f), update(replay));
+		assertEquals(FRAMES, replay.getFrame());
+		InputDeltaCodecTest.assertSameInputs(new DenseInputMap<Object>(1, 1), update(replay));
+	}
+
+	@Test
+	void loops() throws IOException {
+		File file = dir.resolve("log.bin").toFile();
+		List<DenseInputMap<Object>> frames = record(file);
+		ReplayInputSource replay = new ReplayInputSource(file, true);
+		replay.enable();
+		for (int f = 0; f < FRAMES + 20; f++)
+			InputDeltaCodecTest.assertSameInputs(frames.get(f % FRAMES), update(replay));
+	}
+
+	@Test
+	void seeks() throws IOException {
+		File file = dir.resolve("log.bin").toFile();
+		List<DenseInputMap<Object>> frames = record(file);
+		ReplayInputSource replay = new ReplayInputSource(file, false);
+		replay.enable();
+		for (int f : new int[] { 700, 3, 256, 255, 999, 512, 513, 0, 15, 16, 17 }) {
+			replay.seek(f);
+			assertEquals(f, replay.getFrame());
+			InputDeltaCodecTest.assertSameInputs(frames.get(f), update(replay));
+		}
+		assertThrows(IllegalArgumentException.class, () -> replay.seek(FRAMES + 1));
+	}
+
+	@Test
+	void reopensLogAfterDisabling() throws IOException {
+		File file = dir.resolve("log.bin").toFile();
+		List<DenseInputMap<Object>> frames = record(file);
+		ReplayInputSource replay = new ReplayInputSource(file, false);
+		replay.enable();
+		update(replay);
+		replay.disable();
+		replay.seek(600);
+		replay.enable();
+		InputDeltaCodecTest.assertSameInputs(frames.get(600), update(replay));
+		replay.close();
+		replay.enable();
+		assertFalse(replay.isEnabled());
+		assertThrows(IOException.class, () -> replay.seek(3));
+	}
+
+	@Test
+	void recordsFramesLargerThanARegion() throws IOException {
+		File file = dir.resolve("log.bin").toFile();
+		Random random = new Random(2);
+		List<DenseInputMap<Object>> frames = new ArrayList<DenseInputMap<Object>>();
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(2, 600_000);
+		try (InputRecorder recorder = new InputRecorder(file, 8)) {
+			for (int f = 0; f < 40; f++) {
+				frame.put(random.nextInt(2), random.nextInt(600_000), (short) (random.nextInt(200) - 100));
+				recorder.record(frame);
+				DenseInputMap<Object> copy = new DenseInputMap<Object>(1, 1);
+				copy.copyFrom(frame);
+				frames.add(copy);
+			}
+		}
+		ReplayInputSource replay = new ReplayInputSource(file, false);
+		replay.enable();
+		for (DenseInputMap<Object> expected : frames)
+			InputDeltaCodecTest.assertSameInputs(expected, update(replay));
+		replay.close();
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		File file = dir.resolve("other.bin").toFile();
+		Files.write(file.toPath(), new byte[64]);
+		assertThrows(IOException.class, () -> new ReplayInputSource(file, false));
+	}
+
+}
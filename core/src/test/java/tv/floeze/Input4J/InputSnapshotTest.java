@@ -0,0 +1,95 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests reading an {@link InputSnapshot} while frames are published.
+ * 
+ * @author Floeze
+ *
+ */
+class InputSnapshotTest {
+
+	private static final int FRAMES = 20_000;
+
+	private static final int READERS = 2;
+
+	/**
+	 * Value of every input in a frame, so a frame mixing values of two frames
+	 * can be detected
+	 */
+	private static short value(long frame) {
+		return (short) (frame % 30000 + 1);
+	}
+
+	/**
+	 * Number of players of a frame. The frames grow while they are read.
+	 */
+	private static int players(long frame) {
+		return frame < FRAMES / 2 ? 4 : 9;
+	}
+
+	private static final int ACTIONS = 50;
+
+	@Test
+	void readersSeeWholeFrames() throws Throwable {
+		InputSnapshot<Object> snapshot = new InputSnapshot<Object>(null);
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] readers = new Thread[READERS];
+		for (int r = 0; r < READERS; r++) {
+			readers[r] = new Thread(() -> {
+				try {
+					DenseInputMap<Object> target = new DenseInputMap<Object>(1, 1);
+					long last = 0;
+					while (running.get()) {
+						long frame = snapshot.copyTo(target);
+						assertTrue(frame >= last, "frames go back from " + last + " to " + frame);
+						last = frame;
+						if (frame == 0)
+							continue;
+						// all inputs are from the same frame and none are missing
+						int count = 0;
+						for (short v : target.array()) {
+							if (v == value(frame))
+								count++;
+							else
+								assertEquals(0, v, "value of another frame in frame " + frame);
+						}
+						assertEquals(players(frame) * ACTIONS, count);
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			});
+			readers[r].start();
+		}
+
+		DenseInputMap<Object> frame = new DenseInputMap<Object>(4, ACTIONS);
+		for (long f = 1; f <= FRAMES; f++) {
+			for (int p = 0; p < players(f); p++)
+				for (int a = 0; a < ACTIONS; a++)
+					frame.put(p, a, value(f));
+			snapshot.publish(frame);
+			if (f % 100 == 0)
+				Thread.yield();
+		}
+		running.set(false);
+		for (Thread t : readers)
+			t.join();
+		if (failure.get() != null)
+			throw failure.get();
+
+		assertEquals(FRAMES, snapshot.getFrame());
+		assertEquals(value(FRAMES), snapshot.getById(8, ACTIONS - 1));
+		assertEquals(0, snapshot.getById(9, 0));
+		assertEquals(0, snapshot.getById(0, ACTIONS));
+	}
+
+}
@@ -0,0 +1,84 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests calling {@link InputListener}s with a {@link ListenerDispatcher}.
+ * 
+ * @author Floeze
+ *
+ */
+class ListenerDispatcherTest {
+
+	private static final int PLAYERS = 12, ACTIONS = 150;
+
+	@Test
+	void callsListenersOfChangedInputsInOrder() {
+		Random random = new Random(5);
+		ActionRegistry<String> registry = new InputConfiguration<String>().getActionRegistry();
+		for (int a = 0; a < ACTIONS; a++)
+			registry.register("a" + a);
+		ListenerDispatcher<String> dispatcher = new ListenerDispatcher<String>(registry);
+		List<String> calls = new ArrayList<String>();
+		List<InputSubscription<String>> subscriptions = new ArrayList<InputSubscription<String>>();
+		DenseInputMap<String> frame = new DenseInputMap<String>(registry, 1);
+		short[][] previous = new short[PLAYERS][ACTIONS];
+		short[][] current = new short[PLAYERS][ACTIONS];
+		// inputs subscribed in the previous frame, the others start at 0
+		boolean[][] known = new boolean[PLAYERS][ACTIONS];
+		for (int f = 0; f < 2000; f++) {
+			// subscriptions are made and cancelled between frames, some of them for
+			// inputs outside of the frames
+			if (random.nextInt(4) == 0 || subscriptions.isEmpty()) {
+				int player = random.nextInt(PLAYERS);
+				int action = random.nextInt(ACTIONS);
+				short threshold = (short) (random.nextBoolean() ? 0 : 100);
+				subscriptions.add(dispatcher.add(player, action, threshold,
+						(p, id, from, to) -> calls.add(p + " " + id + " " + from + " " + to)));
+			} else if (random.nextInt(8) == 0) {
+				subscriptions.remove(random.nextInt(subscriptions.size())).cancel();
+			}
+			// the frames grow now and then
+			int players = f < 700 ? 4 : PLAYERS;
+			int actions = f < 1200 ? 70 : ACTIONS;
+			for (int i = random.nextInt(20); i > 0; i--) {
+				int p = random.nextInt(players);
+				int a = random.nextInt(actions);
+				current[p][a] = random.nextBoolean() ? 0 : (short) (random.nextInt(400) - 200);
+			}
+			frame.clear();
+			frame.ensureCapacity(players, actions);
+			for (int p = 0; p < players; p++)
+				for (int a = 0; a < actions; a++)
+					if (current[p][a] != 0)
+						frame.put(p, a, current[p][a]);
+
+			List<String> expected = new ArrayList<String>();
+			List<InputSubscription<String>> sorted = new ArrayList<InputSubscription<String>>(subscriptions);
+			sorted.sort((a, b) -> a.player != b.player ? Integer.compare(a.player, b.player)
+					: Integer.compare(a.action, b.action));
+			for (InputSubscription<String> s : sorted) {
+				short from = known[s.player][s.action] ? previous[s.player][s.action] : 0;
+				short to = current[s.player][s.action];
+				if (from != to && s.accepts(from, to))
+					expected.add(s.player + " a" + s.action + " " + from + " " + to);
+			}
+			calls.clear();
+			dispatcher.dispatch(frame);
+			assertEquals(expected, calls, "frame " + f);
+			for (int p = 0; p < PLAYERS; p++) {
+				previous[p] = current[p].clone();
+				known[p] = new boolean[ACTIONS];
+			}
+			for (InputSubscription<String> s : subscriptions)
+				known[s.player][s.action] = true;
+		}
+	}
+
+}
@@ -0,0 +1,239 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RemoteInputSource} and {@link RemoteInputPublisher} over the
+ * loopback address.
+ * 
+ * @author Floeze
+ *
+ */
+class RemoteInputSourceTest {
+
+	enum Action {
+		JUMP, FIRE, MOVE
+	}
+
+	private final EnumActionRegistry<Action> registry = new EnumActionRegistry<Action>(Action.class);
+
+	private final InputConfiguration<Action> config = new InputConfiguration<Action>(registry);
+
+	private RemoteInputSource source;
+
+	@BeforeEach
+	void open() {
+		source = (RemoteInputSource) new RemoteInputSource.Builder(0).maxPlayers(8).build();
+		source.enable();
+	}
+
+	@AfterEach
+	void close() throws IOException {
+		source.close();
+	}
+
+	private RemoteInputPublisher<Action> publisher() throws IOException {
+		return new RemoteInputPublisher<Action>(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), source.getLocalPort()), registry);
+	}
+
+	/**
+	 * Updates the source until the inputs match or 5 seconds passed.
+	 * 
+	 * @param until condition the inputs have to match
+	 * @return the inputs of the last update
+	 */
+	private DenseInputMap<Action> update(Predicate<DenseInputMap<Action>> until) throws InterruptedException {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (true) {
+			DenseInputMap<Action> map = new DenseInputMap<Action>(registry, 8);
+			source.update(map, config);
+			if (until.test(map) || System.nanoTime() > deadline)
+				return map;
+			Thread.sleep(5);
+		}
+	}
+
+	private void connections(int connections) throws InterruptedException {
+		update(m -> source.getConnections() == connections);
+		assertEquals(connections, source.getConnections());
+	}
+
+	@Test
+	void appliesFrames() throws Exception {
+		try (RemoteInputPublisher<Action> publisher = publisher()) {
+			connections(1);
+
+			publisher.set(0, Action.JUMP, (short) 1);
+			publisher.set(3, Action.MOVE, (short) -200);
+			publisher.endFrame();
+			publisher.set(3, Action.MOVE, (short) -100);
+			publisher.endFrame();
+			publisher.set(3, Action.MOVE, (short) -100);
+			publisher.set(1, Action.FIRE, (short) 5);
+			publisher.endFrame();
+			publisher.flush();
+
+			// the tap and the largest move of all frames since the last update
+			DenseInputMap<Action> map = update(m -> source.getFrames() == 3);
+			assertEquals(3, source.getFrames());
+			assertEquals(1, map.get(0, Action.JUMP));
+			assertEquals(5, map.get(1, Action.FIRE));
+			assertEquals(-200, map.get(3, Action.MOVE));
+
+			publisher.set(3, Action.MOVE, (short) -100);
+			publisher.set(1, Action.FIRE, (short) 5);
+			publisher.endFrame();
+			publisher.flush();
+
+			// unchanged inputs are held, the released tap is not
+			map = update(m -> source.getFrames() == 4);
+			assertEquals(0, map.get(0, Action.JUMP));
+			assertEquals(5, map.get(1, Action.FIRE));
+			assertEquals(-100, map.get(3, Action.MOVE));
+
+			map = update(m -> true);
+			assertEquals(5, map.get(1, Action.FIRE));
+			assertEquals(-100, map.get(3, Action.MOVE));
+		}
+	}
+
+	@Test
+	void combinesConnections() throws Exception {
+		try (RemoteInputPublisher<Action> a = publisher(); RemoteInputPublisher<Action> b = publisher()) {
+			connections(2);
+			a.set(0, Action.MOVE, (short) 10);
+			a.endFrame();
+			a.flush();
+			b.set(0, Action.MOVE, (short) -20);
+			b.set(1, Action.JUMP, (short) 1);
+			b.endFrame();
+			b.flush();
+
+			DenseInputMap<Action> map = update(m -> source.getFrames() == 2);
+			assertEquals(-20, map.get(0, Action.MOVE));
+			assertEquals(1, map.get(1, Action.JUMP));
+		}
+	}
+
+	@Test
+	void releasesInputsOfClosedConnections() throws Exception {
+		RemoteInputPublisher<Action> publisher = publisher();
+		publisher.set(2, Action.FIRE, (short) 7);
+		publisher.endFrame();
+		publisher.flush();
+		assertEquals(7, update(m -> m.get(2, Action.FIRE) == 7).get(2, Action.FIRE));
+
+		publisher.close();
+		DenseInputMap<Action> map = update(m -> source.getConnections() == 0);
+		assertEquals(0, source.getConnections());
+		assertEquals(0, map.get(2, Action.FIRE));
+		assertEquals(0, update(m -> true).get(2, Action.FIRE));
+	}
+
+	@Test
+	void closesConnectionsWithWrongHandshake() throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), source.getLocalPort())) {
+			connections(1);
+			socket.getOutputStream().write(new byte[] { 1, 2, 3, 4, 5, 6, 7 });
+			socket.getOutputStream().flush();
+			connections(0);
+		}
+		assertWorks();
+	}
+
+	@Test
+	void closesConnectionsWithMalformedPackets() throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), source.getLocalPort())) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(RemoteInputSource.MAGIC);
+			out.writeShort(RemoteInputSource.VERSION);
+			// a delta ending in the middle of a varint
+			out.writeInt(3);
+			out.write(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+			out.flush();
+			update(m -> source.getConnections() == 0);
+			assertEquals(0, source.getConnections());
+			assertEquals(0, source.getFrames());
+		}
+		assertWorks();
+	}
+
+	@Test
+	void closesConnectionsWithOversizedPackets() throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), source.getLocalPort())) {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(RemoteInputSource.MAGIC);
+			out.writeShort(RemoteInputSource.VERSION);
+			out.writeInt(RemoteInputSource.DEFAULT_MAX_PACKET_SIZE + 1);
+			out.flush();
+			update(m -> source.getConnections() == 0);
+			assertEquals(0, source.getConnections());
+		}
+		assertWorks();
+	}
+
+	@Test
+	void closesConnectionsWithPlayersOutOfBounds() throws Exception {
+		try (RemoteInputPublisher<Action> publisher = publisher()) {
+			publisher.set(9, Action.JUMP, (short) 1);
+			publisher.endFrame();
+			publisher.flush();
+			DenseInputMap<Action> map = update(m -> source.getConnections() == 0);
+			assertEquals(0, source.getConnections());
+			assertEquals("{}", map.toString());
+		}
+		assertWorks();
+	}
+
+	@Test
+	void limitsConnections() throws Exception {
+		source.close();
+		source = (RemoteInputSource) new RemoteInputSource.Builder(0).maxConnections(1).build();
+		source.enable();
+		try (RemoteInputPublisher<Action> a = publisher(); RemoteInputPublisher<Action> b = publisher()) {
+			a.set(0, Action.JUMP, (short) 1);
+			a.endFrame();
+			a.flush();
+			b.set(1, Action.FIRE, (short) 1);
+			b.endFrame();
+			b.flush();
+			// give the second connection time to be accepted and closed
+			DenseInputMap<Action> map = update(m -> source.getFrames() == 1);
+			for (int i = 0; i < 20; i++) {
+				Thread.sleep(5);
+				update(m -> true);
+			}
+			assertEquals(1, source.getConnections());
+			assertEquals(1, source.getFrames());
+			assertEquals(1, map.get(0, Action.JUMP) + map.get(1, Action.FIRE));
+		}
+	}
+
+	/**
+	 * Checks that the source still receives inputs from new connections.
+	 */
+	private void assertWorks() throws Exception {
+		try (RemoteInputPublisher<Action> publisher = publisher()) {
+			publisher.set(0, Action.JUMP, (short) 1);
+			publisher.endFrame();
+			publisher.flush();
+			DenseInputMap<Action> map = update(m -> m.get(0, Action.JUMP) == 1);
+			assertEquals(1, map.get(0, Action.JUMP));
+			assertTrue(source.getConnections() >= 1);
+		}
+	}
+
+}
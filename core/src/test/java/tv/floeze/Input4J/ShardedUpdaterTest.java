@@ -0,0 +1,114 @@
+package tv.floeze.Input4J;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that sharded updates produce the same frames as updating the
+ * {@link InputSource}s one after another.
+ * 
+ * @author Floeze
+ *
+ */
+class ShardedUpdaterTest {
+
+	private static final int FRAMES = 30;
+
+	/**
+	 * An {@link InputSource} that cannot be sharded, pressing an input every
+	 * other update
+	 * 
+	 * @author Floeze
+	 *
+	 */
+	static final class Blinker extends InputSourceImpl {
+
+		private int updates;
+
+		@Override
+		protected boolean handleEnable() {
+			return true;
+		}
+
+		@Override
+		protected boolean handleDisable() {
+			return true;
+		}
+
+		@Override
+		protected <T> void handleUpdate(InputMap<T> map, InputConfiguration<T> config) {
+			if (updates++ % 2 == 0)
+				map.setById(5, 0, (short) 9);
+		}
+
+		@Override
+		protected void handleSaveInputs() {
+		}
+
+		@Override
+		protected <T> boolean handleSetInput(int player, T identifier, short value, InputConfiguration<T> config) {
+			return false;
+		}
+
+	}
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Updates an {@link Input4J} with {@link SyntheticInputSource}s and a
+	 * {@link Blinker}.
+	 * 
+	 * @param pattern {@link SyntheticInputSource.Pattern} of the first source
+	 * @param players number of players
+	 * @param shards  number of shards, or 0 to not shard
+	 * @return the frames
+	 */
+	private List<String> frames(SyntheticInputSource.Pattern pattern, int players, int shards) {
+		InputConfiguration<String> config = new InputConfiguration<String>();
+		SyntheticInputSource.bindAll(config, players, Arrays.asList("a", "b", "c"), (short) 5);
+		Input4J<String> input = new Input4J<String>(config);
+		input.addInputSource("pattern",
+				new SyntheticInputSource.Builder(pattern).seed(7).rate(0.3).burstLength(2));
+		input.addInputSource("random",
+				new SyntheticInputSource.Builder(SyntheticInputSource.Pattern.RANDOM).seed(9).rate(0.1));
+		input.addInputSource("blinker", new InputSourceBuilder() {
+			@Override
+			protected InputSource build() {
+				return new Blinker();
+			}
+		});
+		input.enableAll();
+		input.enableDoubleBuffering(players);
+		if (shards > 0)
+			input.enableSharding(shards, executor);
+		List<String> frames = new ArrayList<String>();
+		for (int i = 0; i < FRAMES; i++)
+			frames.add(input.update().toString());
+		return frames;
+	}
+
+	@Test
+	void shardedEqualsSerial() {
+		for (SyntheticInputSource.Pattern pattern : SyntheticInputSource.Pattern.values())
+			for (int players : new int[] { 1, 63, 64, 130, 1000 }) {
+				List<String> serial = frames(pattern, players, 0);
+				for (int shards : new int[] { 1, 2, 4, 7 })
+					assertEquals(serial, frames(pattern, players, shards),
+							pattern + ", " + players + " players, " + shards + " shards");
+			}
+	}
+
+}